@@ -0,0 +1,60 @@
+package com.kaltura.tvplayer
+
+import android.os.Build
+import android.os.Bundle
+import android.os.Debug
+import androidx.test.platform.app.InstrumentationRegistry
+import com.kaltura.playkit.PKLog
+
+
+private val log = PKLog.get("Benchmarks")
+
+/**
+ * Median time and mean allocation of one round of a benchmarked block. allocatedBytes is -1 when the runtime
+ * doesn't report it (before API 23).
+ */
+class Measurement(val medianNanos: Long, val allocatedBytes: Long) {
+    override fun toString() = "median ${medianNanos / 1000.0}us, " +
+            (if (allocatedBytes < 0) "allocations not reported" else "${allocatedBytes}B allocated")
+}
+
+/**
+ * Runs block warmupRounds times, then measures measuredRounds more runs of it.
+ */
+fun measure(warmupRounds: Int, measuredRounds: Int, block: () -> Unit): Measurement {
+    repeat(warmupRounds) { block() }
+
+    val samples = LongArray(measuredRounds)
+    val allocatedBefore = allocatedBytes()
+    for (i in samples.indices) {
+        val start = System.nanoTime()
+        block()
+        samples[i] = System.nanoTime() - start
+    }
+    val allocatedAfter = allocatedBytes()
+    samples.sort()
+
+    val perRound = if (allocatedBefore < 0 || allocatedAfter < 0) -1 else (allocatedAfter - allocatedBefore) / measuredRounds
+    return Measurement(samples[samples.size / 2], perRound)
+}
+
+/**
+ * Logs the measurements and reports them as instrumentation status, so they show up in the output of
+ * `adb shell am instrument -r` and in the test results of CI, not only in logcat.
+ */
+fun report(benchmark: String, measurements: Map<String, Measurement>) {
+    val status = Bundle()
+    for ((name, measurement) in measurements) {
+        log.d("$benchmark $name: $measurement")
+        status.putLong("$benchmark.$name.medianNanos", measurement.medianNanos)
+        status.putLong("$benchmark.$name.allocatedBytes", measurement.allocatedBytes)
+    }
+    InstrumentationRegistry.getInstrumentation().sendStatus(2, status)
+}
+
+private fun allocatedBytes(): Long {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+        return -1
+    }
+    return Debug.getRuntimeStat("art.gc.bytes-allocated")?.toLongOrNull() ?: -1
+}
@@ -0,0 +1,78 @@
+package com.kaltura.tvplayer
+
+import com.google.gson.Gson
+import com.kaltura.tvplayer.config.PhoenixConfigurationsResponse
+import com.kaltura.tvplayer.config.PhoenixTVPlayerParams
+import com.kaltura.tvplayer.config.PlayerConfigParser
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.InputStreamReader
+
+
+private const val WARMUP_ROUNDS = 200
+private const val MEASURED_ROUNDS = 2000
+
+// A serveByDevice answer padded with the kind of sections the player doesn't read.
+private val OTT_RESPONSE = """
+    {
+      "id": "f3ef4a8c-3d4e-4b5f-9d1c-1d2e3f4a5b6c",
+      "partnerId": 3009,
+      "configurationGroupId": "0b4d1f7c-default",
+      "appName": "com.kaltura.player.3009",
+      "clientVersion": "4",
+      "platform": "Android",
+      "externalPushId": "",
+      "isForceUpdate": false,
+      "content": "${"x".repeat(2048)}",
+      "params": {
+        "analyticsUrl": "https://analytics.kaltura.com",
+        "ovpPartnerId": 2254732,
+        "ovpServiceUrl": "https://cdnapisec.kaltura.com/",
+        "uiConfId": 41188731,
+        "languages": [ { "code": "en", "name": "English" }, { "code": "he", "name": "Hebrew" } ],
+        "features": { "dvr": true, "catchup": true, "startOver": false }
+      },
+      "objectType": "KalturaConfigurations"
+    }
+""".trimIndent()
+
+/**
+ * Compares parsing a config response the old way (whole body to a String, text search for
+ * KalturaAPIException, Gson object mapping) with the single-pass [PlayerConfigParser], in time and
+ * allocated bytes per parse. Allocation counts come from ART's runtime stats, so they are only reported on API 23+.
+ */
+class PlayerConfigParserBenchmark {
+
+    private val gson = Gson()
+    private val bytes = OTT_RESPONSE.toByteArray(Charsets.UTF_8)
+
+    @Test
+    fun parseCost() {
+        val expected = parseWithGson()
+        val actual = parseStreaming()
+        assertNotNull(expected)
+        assertNotNull(actual)
+        assertEquals(expected!!.analyticsUrl, actual!!.analyticsUrl)
+        assertEquals(expected.uiConfId, actual.uiConfId)
+        assertEquals(expected.ovpServiceUrl, actual.ovpServiceUrl)
+        assertEquals(expected.ovpPartnerId, actual.ovpPartnerId)
+
+        val gsonParse = measure(WARMUP_ROUNDS, MEASURED_ROUNDS) { parseWithGson() }
+        val streamingParse = measure(WARMUP_ROUNDS, MEASURED_ROUNDS) { parseStreaming() }
+        report("PlayerConfigParser.parse", mapOf("gson" to gsonParse, "streaming" to streamingParse))
+    }
+
+    // The pre-streaming path from NetworkUtils + PlayerConfigManager, kept here only as the baseline.
+    private fun parseWithGson(): PhoenixTVPlayerParams? {
+        val body = InputStreamReader(ByteArrayInputStream(bytes), Charsets.UTF_8).readText()
+        if (body.contains("KalturaAPIException")) {
+            return null
+        }
+        return gson.fromJson(body, PhoenixConfigurationsResponse::class.java).params
+    }
+
+    private fun parseStreaming() =
+            PlayerConfigParser.parseOtt(InputStreamReader(ByteArrayInputStream(bytes), Charsets.UTF_8))
+}
@@ -0,0 +1,85 @@
+package com.kaltura.tvplayer
+
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.gson.Gson
+import com.kaltura.tvplayer.config.PhoenixTVPlayerParams
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.BufferedReader
+import java.io.File
+import java.io.FileReader
+
+
+private const val PARTNER_ID = 3009
+private const val WARMUP_ROUNDS = 50
+private const val MEASURED_ROUNDS = 500
+
+/**
+ * Compares a cold read of one partner config through the store with the JSON path it replaced
+ * (1 KB char buffer + Gson). "Cold" means no in-memory cache: every round opens and decodes the file.
+ */
+class PlayerConfigStoreBenchmark {
+
+    private val gson = Gson()
+    private lateinit var dir: File
+
+    @Before
+    fun setUp() {
+        dir = File(InstrumentationRegistry.getInstrumentation().targetContext.cacheDir, "PlayerConfigStoreBenchmark")
+        dir.deleteRecursively()
+        dir.mkdirs()
+    }
+
+    @After
+    fun tearDown() {
+        dir.deleteRecursively()
+    }
+
+    @Test
+    fun coldReadLatency() {
+        val params = PhoenixTVPlayerParams().apply {
+            serviceUrl = "https://api.frs1.ott.kaltura.com/api_v3/"
+            analyticsUrl = "https://analytics.kaltura.com"
+            uiConfId = 41188731
+            partnerId = PARTNER_ID
+            ovpServiceUrl = "https://cdnapisec.kaltura.com/"
+            ovpPartnerId = 2254732
+        }
+
+        val jsonFile = File(dir, "$PARTNER_ID.json")
+        jsonFile.writeText(gson.toJson(params))
+        assertTrue(PlayerConfigStore(dir).save(KalturaPlayer.Type.ott, PARTNER_ID, PlayerConfigManager.CachedConfig(System.currentTimeMillis(), params)))
+
+        val json = measure(WARMUP_ROUNDS, MEASURED_ROUNDS) { readJson(jsonFile) }
+        val store = measure(WARMUP_ROUNDS, MEASURED_ROUNDS) { PlayerConfigStore(dir).load(KalturaPlayer.Type.ott, PARTNER_ID) }
+        report("PlayerConfigStore.coldRead", mapOf("json" to json, "store" to store))
+
+        val loaded = PlayerConfigStore(dir).load(KalturaPlayer.Type.ott, PARTNER_ID)
+        assertNotNull(loaded)
+        val loadedParams = loaded!!.params as PhoenixTVPlayerParams
+        assertEquals(params.serviceUrl, loadedParams.serviceUrl)
+        assertEquals(params.analyticsUrl, loadedParams.analyticsUrl)
+        assertEquals(params.uiConfId, loadedParams.uiConfId)
+        assertEquals(params.partnerId, loadedParams.partnerId)
+        assertEquals(params.ovpServiceUrl, loadedParams.ovpServiceUrl)
+        assertEquals(params.ovpPartnerId, loadedParams.ovpPartnerId)
+    }
+
+    // The pre-store read path, kept here only as the baseline.
+    private fun readJson(file: File): PhoenixTVPlayerParams {
+        val json = StringBuilder()
+        BufferedReader(FileReader(file)).use { reader ->
+            val buffer = CharArray(1024)
+            var size = reader.read(buffer)
+            while (size > 0) {
+                json.append(buffer, 0, size)
+                size = reader.read(buffer)
+            }
+        }
+        return gson.fromJson(json.toString(), PhoenixTVPlayerParams::class.java)
+    }
+}
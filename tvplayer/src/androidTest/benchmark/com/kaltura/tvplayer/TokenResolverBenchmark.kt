@@ -0,0 +1,105 @@
+package com.kaltura.tvplayer
+
+import android.text.TextUtils
+import com.kaltura.tvplayer.utils.MapTokenResolver
+import com.kaltura.tvplayer.utils.TokenResolver
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+
+private const val WARMUP_ROUNDS = 500
+private const val MEASURED_ROUNDS = 5000
+
+private val TOKENS = mapOf(
+        "entryId" to "1_w9zx2eti",
+        "entryName" to "Sintel - Open Movie",
+        "entryType" to "Vod",
+        "ks" to "djJ8MjIxNTg0MXzJ9a1YtB8HmZ1GQmvmA6yZxyUEzy7H3nCZqFZ1G0XM",
+        "uiConfId" to "41188731",
+        "partnerId" to "2215841",
+        "kavaPartnerId" to "2215841",
+        "referrer" to "app://com.kaltura.player.test"
+)
+
+// The String fields ConfigResolver hands to the resolver for an app-supplied KavaAnalyticsConfig.
+private val KAVA_FIELDS = listOf(
+        "https://analytics.kaltura.com/api_v3/index.php",
+        "{{ks}}",
+        "{{referrer}}",
+        "{{entryId}}",
+        "playlist_{{entryId}}",
+        "custom-var-{{entryName}}",
+        "Android",
+        "app-version-4.12.0"
+)
+
+// A Youbora JsonObject config serialized as one string, the way ConfigResolver used to resolve it.
+private val YOUBORA_JSON = """{"accountCode":"kalturatest","username":"test-user","haltOnError":true,"enableAnalytics":true,""" +
+        """"enableSmartAds":false,"content":{"contentTitle":"{{entryName}}","contentType":"{{entryType}}","contentIsLive":false,""" +
+        """"contentCustomDimensions":{"contentCustomDimension1":"{{entryId}}","contentCustomDimension2":"{{partnerId}}"}},""" +
+        """"app":{"appName":"kaltura-player-android","appReleaseVersion":"4.12.0"},"user":{"userType":"paid","userObfuscateIp":true},""" +
+        """"properties":{"kalturaInfo":{"entryId":"{{entryId}}","partnerId":"{{kavaPartnerId}}","uiConfId":"{{uiConfId}}"},""" +
+        """"year":"2010","cast":"Halina Reijn","director":"Colin Levy","owner":"Blender","device":"Android","quality":"HD"},""" +
+        """"extraParams":{"param1":"{{ks}}","param2":"mobile","param3":"{{referrer}}"}}"""
+
+/**
+ * Compares the single-pass [MapTokenResolver], with and without its resolved-string cache, with the TextUtils.replace
+ * implementation it replaced, on the strings a Kava and a Youbora plugin config produce. Runs as an instrumented
+ * test; JMH isn't available for Android modules.
+ */
+class TokenResolverBenchmark {
+
+    @Test
+    fun resolveConfigs() {
+        val legacy = LegacyResolver(TOKENS)
+        val singlePass = TestResolver(TOKENS)
+
+        val inputs = KAVA_FIELDS + YOUBORA_JSON
+        // Not checked against the legacy resolver: TextUtils.replace only replaces the first occurrence of a token,
+        // and the Youbora config uses {{entryId}} twice.
+        for (input in inputs) {
+            assertEquals(replaceAll(input), singlePass.resolve(input))
+        }
+
+        val legacyResolve = measure(WARMUP_ROUNDS, MEASURED_ROUNDS) { resolveAll(legacy, inputs) }
+        val coldResolve = measure(WARMUP_ROUNDS, MEASURED_ROUNDS) {
+            singlePass.invalidate()
+            resolveAll(singlePass, inputs)
+        }
+        val cachedResolve = measure(WARMUP_ROUNDS, MEASURED_ROUNDS) { resolveAll(singlePass, inputs) }
+        report("TokenResolver.resolve", mapOf("TextUtils.replace" to legacyResolve, "single pass" to coldResolve,
+                "single pass cached" to cachedResolve))
+    }
+
+    private fun resolveAll(resolver: TokenResolver, inputs: List<String>) {
+        for (input in inputs) {
+            resolver.resolve(input)
+        }
+    }
+
+    // Every occurrence of every token; none of the values holds a token, so the order doesn't matter.
+    private fun replaceAll(input: String) =
+            TOKENS.entries.fold(input) { resolved, token -> resolved.replace("{{${token.key}}}", token.value) }
+
+    private class TestResolver(private val tokens: Map<String, String>) : MapTokenResolver() {
+        init {
+            publish(tokens)
+        }
+
+        // A new snapshot starts with an empty resolved-string cache.
+        fun invalidate() = publish(tokens)
+    }
+
+    // The pre-single-pass MapTokenResolver, kept here only as the baseline.
+    private class LegacyResolver(tokens: Map<String, String>) : TokenResolver {
+        private val sources = tokens.keys.map { "{{$it}}" }.toTypedArray()
+        private val destinations: Array<CharSequence> = tokens.values.toTypedArray()
+
+        override fun resolve(string: String?): String? {
+            if (string == null || sources.isEmpty()) {
+                return string
+            }
+            return TextUtils.replace(string, sources, destinations).toString()
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.kaltura.tvplayer;
+
+import androidx.annotation.Nullable;
+
+import com.kaltura.netkit.utils.ErrorElement;
+import com.kaltura.tvplayer.config.TVPlayerParams;
+
+/**
+ * Outcome of {@code initialize()}: how long each of its concurrent stages took and which of them failed.
+ */
+public class InitializeResult {
+
+    public enum Stage {
+        /** DRM provisioning and capability detection. */
+        DRM,
+        /** Retrieving the player config (from cache or network). */
+        PLAYER_CONFIG,
+        /** Looking up and registering the known plugins. */
+        PLUGINS,
+        /** Connecting to the hosts in the player config; starts once the config is known. */
+        WARM_UP
+    }
+
+    public final long totalMs;
+    @Nullable public final TVPlayerParams playerConfig;
+    private final long[] durationsMs;
+    private final ErrorElement[] errors;
+    private final boolean[] timedOut;
+
+    InitializeResult(long totalMs, @Nullable TVPlayerParams playerConfig, long[] durationsMs, ErrorElement[] errors, boolean[] timedOut) {
+        this.totalMs = totalMs;
+        this.playerConfig = playerConfig;
+        this.durationsMs = durationsMs;
+        this.errors = errors;
+        this.timedOut = timedOut;
+    }
+
+    /**
+     * @return true if the player config is available, so players can be created and load media. A DRM failure
+     * only affects protected content.
+     */
+    public boolean isReady() {
+        return getError(Stage.PLAYER_CONFIG) == null;
+    }
+
+    /**
+     * @return how long the stage took (until the deadline if it timed out), or -1 if it didn't run.
+     */
+    public long getDurationMs(Stage stage) {
+        return durationsMs[stage.ordinal()];
+    }
+
+    @Nullable
+    public ErrorElement getError(Stage stage) {
+        return errors[stage.ordinal()];
+    }
+
+    /**
+     * @return true if the stage was still running at the deadline; it goes on in the background, and its error
+     * is a timeout.
+     */
+    public boolean isTimedOut(Stage stage) {
+        return timedOut[stage.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder out = new StringBuilder("InitializeResult{ready=").append(isReady()).append(", total=").append(totalMs).append("ms");
+        for (Stage stage : Stage.values()) {
+            out.append(", ").append(stage).append('=').append(getDurationMs(stage)).append("ms");
+            if (isTimedOut(stage)) {
+                out.append(" (timed out)");
+            } else if (getError(stage) != null) {
+                out.append(" (").append(getError(stage).getMessage()).append(')');
+            }
+        }
+        return out.append('}').toString();
+    }
+}
@@ -13,20 +13,47 @@ public class KalturaOttPlayer extends KalturaPlayer {
     }
 
     public static KalturaOttPlayer create(Context context, PlayerInitOptions initOptions) {
-        if (playerConfigRetrieved) {
+        if (PlayerConfigManager.isConfigReady()) {
             initOptions.setTVPlayerParams(PlayerConfigManager.retrieve(Type.ott, initOptions.partnerId));
         }
         return new KalturaOttPlayer(context, initOptions);
     }
 
     public static void initialize(Context context, int partnerId, @NonNull String serverUrl) {
-        KalturaPlayer.initializeDrm(context);
-        PlayerConfigManager.retrieve(context, Type.ott, partnerId, serverUrl, (config, error, freshness) -> {
-            if (error != null) {
-                log.e("initialize KalturaPlayerType failed");
-            } else {
-                KalturaPlayer.playerConfigRetrieved = true;
-            }
-        });
+        initialize(context, partnerId, serverUrl, false);
+    }
+
+    /**
+     * @param warmUpConnections also resolve and connect to the service and analytics hosts as soon as the
+     *                          player config is known, so the first media request doesn't pay for the handshake.
+     */
+    public static void initialize(Context context, int partnerId, @NonNull String serverUrl, boolean warmUpConnections) {
+        initialize(context, partnerId, serverUrl, warmUpConnections, false);
+    }
+
+    /**
+     * @param warmUpConnections see {@link #initialize(Context, int, String, boolean)}.
+     * @param preparePlugins also look up the known plugin classes on a background thread and register them on the
+     *                       main thread, so the first player created doesn't pay for it.
+     */
+    public static void initialize(Context context, int partnerId, @NonNull String serverUrl, boolean warmUpConnections, boolean preparePlugins) {
+        PlayerInitializer.initialize(context, Type.ott, partnerId, serverUrl, warmUpConnections, preparePlugins, 0, null);
+    }
+
+    /**
+     * Runs DRM provisioning, player config retrieval and plugin registration at the same time, and calls the listener
+     * on the main thread once all of them are done, with the duration and error of each. The listener is called
+     * within 10 seconds; stages still running then are reported as timed out.
+     */
+    public static void initialize(Context context, int partnerId, @NonNull String serverUrl, @NonNull OnInitializeListener listener) {
+        initialize(context, partnerId, serverUrl, false, listener);
+    }
+
+    /**
+     * Like {@link #initialize(Context, int, String, OnInitializeListener)}, with connection warm-up as a fourth stage if
+     * warmUpConnections is set.
+     */
+    public static void initialize(Context context, int partnerId, @NonNull String serverUrl, boolean warmUpConnections, @NonNull OnInitializeListener listener) {
+        PlayerInitializer.initialize(context, Type.ott, partnerId, serverUrl, warmUpConnections, true, PlayerInitializer.DEFAULT_TIMEOUT_MS, listener);
     }
 }
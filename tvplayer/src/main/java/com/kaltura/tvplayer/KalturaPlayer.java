@@ -2,7 +2,7 @@ package com.kaltura.tvplayer;
 
 import android.content.Context;
 import android.net.Uri;
-import android.os.CountDownTimer;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.TextUtils;
@@ -12,6 +12,7 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.google.gson.JsonObject;
 import com.kaltura.netkit.connect.executor.APIOkRequestsExecutor;
 import com.kaltura.netkit.connect.response.ResultElement;
 import com.kaltura.netkit.utils.ErrorElement;
@@ -47,6 +48,7 @@ import com.kaltura.playkit.providers.PlaylistProvider;
 import com.kaltura.playkit.providers.api.ovp.OvpConfigs;
 import com.kaltura.playkit.utils.Consts;
 import com.kaltura.tvplayer.config.PhoenixTVPlayerParams;
+import com.kaltura.tvplayer.config.TVPlayerParams;
 import com.kaltura.tvplayer.playlist.BasicMediaOptions;
 import com.kaltura.tvplayer.playlist.BasicPlaylistOptions;
 import com.kaltura.tvplayer.playlist.OTTPlaylistOptions;
@@ -58,24 +60,32 @@ import com.kaltura.tvplayer.playlist.PlaylistController;
 
 import com.kaltura.tvplayer.playlist.PlaylistEvent;
 import com.kaltura.tvplayer.utils.ConfigResolver;
+import com.kaltura.tvplayer.utils.ConfigTemplate;
 import com.kaltura.tvplayer.utils.NetworkUtils;
 
 import java.io.File;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import okhttp3.Call;
 
 public abstract class KalturaPlayer {
 
     private static final PKLog log = PKLog.get("KalturaPlayer");
 
     public static final String DEFAULT_OVP_SERVER_URL = "https://cdnapisec.kaltura.com/";
-    public static final int COUNT_DOWN_TOTAL = 5000;
+    public static final int COUNT_DOWN_TOTAL = 5000; // default wait for the player config, see PlayerInitOptions.setPlayerConfigTimeoutMs()
+    /** @deprecated loads no longer poll for the player config. */
+    @Deprecated
     public static final int COUNT_DOWN_INTERVAL = 100;
     public static final String OKHTTP = "okhttp";
 
-    static boolean playerConfigRetrieved;
-
     private static final String KALTURA_PLAYER_INIT_EXCEPTION = "KalturaPlayer.initialize() was not called or hasn't finished.";
     private static final String KALTURA_PLAYLIST_INIT_EXCEPTION = "KalturaPlayer.initialize() was not called or hasn't finished.";
     public static ErrorElement KalturaPlayerNotInitializedError = new ErrorElement("KalturaPlayerNotInitializedError", KALTURA_PLAYER_INIT_EXCEPTION, 777);
@@ -94,7 +104,6 @@ public abstract class KalturaPlayer {
     }
 
     private MessageBus messageBus;
-    private boolean pluginsRegistered;
     private Type tvPlayerType;
 
     private Integer partnerId;
@@ -113,11 +122,27 @@ public abstract class KalturaPlayer {
     private PKMediaEntry mediaEntry;
     private PrepareState prepareState = PrepareState.not_prepared;
     private PlayerTokenResolver tokenResolver = new PlayerTokenResolver();
+    private final MediaEntryInterceptorPipeline interceptorPipeline = new MediaEntryInterceptorPipeline(mainHandler);
     private PlayerInitOptions initOptions;
     private PlaylistController playlistController;
+    // The media or playlist load in progress; a new one cancels it.
+    private LoadRequest currentLoadRequest;
+    private final StartupTracer startupTracer = new StartupTracer();
+    private final Map<String, ConfigTemplate> pluginConfigTemplates = new HashMap<>();
+    // Resolved JsonObject / Bundle configs share their untouched parts with the app's: each plugin gets its own copy,
+    // made again only when the resolved config changes.
+    private final Map<String, Object> resolvedPluginConfigs = new HashMap<>();
+    private final Map<String, Object> pluginConfigCopies = new HashMap<>();
+    // The config instance each plugin was last given, to skip updates that wouldn't change anything.
+    private final Map<String, Object> appliedPluginConfigs = new HashMap<>();
+    private Object kavaDefaultsConfig;
+    private String kavaDefaultsInputs;
+    // Listener groups registered through addListener(), so a pooled player can be handed out clean.
+    private final Set<Object> listenerGroups = new HashSet<>();
 
     KalturaPlayer(Context context, Type tvPlayerType, PlayerInitOptions initOptions) {
 
+        startupTracer.beginSession();
         this.context = context;
         this.tvPlayerType = tvPlayerType;
         this.initOptions = initOptions;
@@ -134,7 +159,9 @@ public abstract class KalturaPlayer {
         if (OKHTTP.equals(PKHttpClientManager.getHttpProvider())) {
             APIOkRequestsExecutor.setClientBuilder(PKHttpClientManager.newClientBuilder()); // share connection-pool with netkit
         }
+        startupTracer.begin(PlayerStartupTimeline.Phase.REGISTER_PLUGINS);
         registerPlugins(context);
+        startupTracer.end(PlayerStartupTimeline.Phase.REGISTER_PLUGINS);
         loadPlayer();
     }
 
@@ -163,6 +190,10 @@ public abstract class KalturaPlayer {
     }
 
     protected static void initializeDrm(Context context) {
+        initializeDrm(context, null);
+    }
+
+    static void initializeDrm(Context context, @Nullable MediaSupport.DrmInitCallback drmInitCallback) {
         MediaSupport.initializeDrm(context, (pkDeviceCapabilitiesInfo, provisionError) -> {
             String provisionPerformedStatus = "succeeded";
             if (pkDeviceCapabilitiesInfo.isProvisionPerformed()) {
@@ -171,10 +202,34 @@ public abstract class KalturaPlayer {
                 }
             }
             log.d("DRM initialized; supportedDrmSchemes: " + pkDeviceCapabilitiesInfo.getSupportedDrmSchemes() + " isHardwareDrmSupported = " + pkDeviceCapabilitiesInfo.isHardwareDrmSupported() + " provisionPerformedStatus = " + provisionPerformedStatus);
+            if (drmInitCallback != null) {
+                drmInitCallback.done(pkDeviceCapabilitiesInfo, provisionError);
+            }
         });
 
     }
 
+    // Pre-opens connections to the hosts the first provider and analytics calls will go to.
+    protected static void warmUpConnections(TVPlayerParams config) {
+        warmUpConnections(config, null);
+    }
+
+    static void warmUpConnections(TVPlayerParams config, @Nullable Runnable onDone) {
+        if (config == null) {
+            if (onDone != null) {
+                onDone.run();
+            }
+            return;
+        }
+        List<String> urls = new ArrayList<>();
+        urls.add(config.serviceUrl);
+        urls.add(config.analyticsUrl);
+        if (config instanceof PhoenixTVPlayerParams) {
+            urls.add(((PhoenixTVPlayerParams) config).ovpServiceUrl);
+        }
+        NetworkUtils.warmUpConnections(urls, onDone);
+    }
+
     private static String buildReferrer(Context context, String referrer) {
         if (referrer != null) {
             // If a referrer is given, it must be a valid URL.
@@ -193,6 +248,28 @@ public abstract class KalturaPlayer {
         return ConfigResolver.resolve(config, tokenResolver);
     }
 
+    // The default Kava config only depends on these inputs; rebuild it (and so update the plugin) only when they change.
+    private Object getCachedKavaDefaultsConfig() {
+        String inputs = ovpPartnerId + "|" + referrer + "|" + ks + "|" + getPlaylistIdForKava();
+        if (initOptions.tvPlayerParams != null) {
+            inputs += "|" + initOptions.tvPlayerParams.analyticsUrl + "|" + initOptions.tvPlayerParams.uiConfId;
+        }
+        if (kavaDefaultsConfig == null || !inputs.equals(kavaDefaultsInputs)) {
+            kavaDefaultsConfig = resolve(getKavaDefaultsConfig(ovpPartnerId, referrer));
+            kavaDefaultsInputs = inputs;
+        }
+        return kavaDefaultsConfig;
+    }
+
+    private String getPlaylistIdForKava() {
+        if (playlistController != null &&
+                playlistController.getPlaylist() != null &&
+                playlistController.getPlaylistType() == PKPlaylistType.OVP_ID) {
+            return playlistController.getPlaylist().getId();
+        }
+        return null;
+    }
+
     private KavaAnalyticsConfig getKavaDefaultsConfig(Integer partnerId, String referrer) {
 
         KavaAnalyticsConfig kavaAnalyticsConfig = new KavaAnalyticsConfig();
@@ -226,11 +303,9 @@ public abstract class KalturaPlayer {
             kavaAnalyticsConfig.setReferrer(referrer);
         }
 
-        if (playlistController != null &&
-                playlistController.getPlaylist() != null &&
-                playlistController.getPlaylistType() == PKPlaylistType.OVP_ID &&
-                playlistController.getPlaylist().getId() != null) {
-            kavaAnalyticsConfig.setPlaylistId(playlistController.getPlaylist().getId());
+        String playlistId = getPlaylistIdForKava();
+        if (playlistId != null) {
+            kavaAnalyticsConfig.setPlaylistId(playlistId);
         }
 
         return kavaAnalyticsConfig;
@@ -241,10 +316,17 @@ public abstract class KalturaPlayer {
     }
 
     private void loadPlayer() {
+        startupTracer.begin(PlayerStartupTimeline.Phase.LOAD_PLAYER);
         tokenResolver.update(initOptions);
         PKPluginConfigs combinedPluginConfigs = setupPluginsConfiguration();
         pkPlayer = PlayKitManager.loadPlayer(context, combinedPluginConfigs, messageBus);
+        for (Map.Entry<String, Object> plugin : combinedPluginConfigs) {
+            appliedPluginConfigs.put(plugin.getKey(), plugin.getValue());
+        }
+        startupTracer.end(PlayerStartupTimeline.Phase.LOAD_PLAYER);
+        startupTracer.begin(PlayerStartupTimeline.Phase.UPDATE_PLAYER_SETTINGS);
         updatePlayerSettings();
+        startupTracer.end(PlayerStartupTimeline.Phase.UPDATE_PLAYER_SETTINGS);
         if (!combinedPluginConfigs.hasConfig(KavaAnalyticsPlugin.factory.getName()) && Integer.valueOf(KavaAnalyticsConfig.DEFAULT_KAVA_PARTNER_ID).equals(ovpPartnerId)) {
             NetworkUtils.sendKavaImpression(context);
         }
@@ -392,13 +474,31 @@ public abstract class KalturaPlayer {
         if (pluginConfigs != null) {
             for (Map.Entry<String, Object> entry : pluginConfigs) {
                 String pluginName = entry.getKey();
-                combinedPluginConfigs.setPluginConfig(pluginName, resolve(entry.getValue()));
+                combinedPluginConfigs.setPluginConfig(pluginName, resolvePluginConfig(pluginName, entry.getValue()));
             }
         }
         addKalturaPluginConfigs(combinedPluginConfigs);
         return combinedPluginConfigs;
     }
 
+    // Plugin configs are compiled once and only re-resolved when a token they use changes.
+    private Object resolvePluginConfig(String pluginName, Object config) {
+        ConfigTemplate template = pluginConfigTemplates.get(pluginName);
+        if (template == null || template.getConfig() != config) {
+            template = ConfigTemplate.compile(config);
+            pluginConfigTemplates.put(pluginName, template);
+        }
+        final Object resolved = template.resolve(tokenResolver);
+        if (!(resolved instanceof JsonObject || resolved instanceof Bundle)) {
+            return resolved;
+        }
+        if (resolvedPluginConfigs.get(pluginName) != resolved) {
+            resolvedPluginConfigs.put(pluginName, resolved);
+            pluginConfigCopies.put(pluginName, ConfigResolver.copyContainers(resolved));
+        }
+        return pluginConfigCopies.get(pluginName);
+    }
+
     public View getPlayerView() {
         return view;
     }
@@ -415,6 +515,7 @@ public abstract class KalturaPlayer {
     }
 
     public void setMedia(@NonNull PKMediaEntry mediaEntry) {
+        startupTracer.beginSessionIfIdle();
         tokenResolver.update(mediaEntry, getKS());
 
         if (externalSubtitles != null) {
@@ -469,6 +570,8 @@ public abstract class KalturaPlayer {
                 .setMediaEntry(mediaEntry)
                 .setStartPosition(startPosition);
 
+        startupTracer.begin(PlayerStartupTimeline.Phase.PREPARE);
+        startupTracer.begin(PlayerStartupTimeline.Phase.FIRST_FRAME);
         pkPlayer.prepare(config);
         prepareState = PrepareState.preparing;
         pkPlayer.addListener(this, PlayerEvent.canPlay, new PKEvent.Listener<PlayerEvent>() {
@@ -476,25 +579,54 @@ public abstract class KalturaPlayer {
             public void onEvent(PlayerEvent event) {
                 prepareState = PrepareState.prepared;
                 pkPlayer.removeListener(this);
+                startupTracer.end(PlayerStartupTimeline.Phase.PREPARE);
+                if (!autoPlay) {
+                    postStartupTimeline();
+                }
             }
         });
         if (autoPlay) {
+            pkPlayer.addListener(this, PlayerEvent.playing, new PKEvent.Listener<PlayerEvent>() {
+                @Override
+                public void onEvent(PlayerEvent event) {
+                    pkPlayer.removeListener(this);
+                    startupTracer.end(PlayerStartupTimeline.Phase.FIRST_FRAME);
+                    postStartupTimeline();
+                }
+            });
             pkPlayer.play();
         }
     }
 
+    private void postStartupTimeline() {
+        final PlayerStartupTimeline timeline = startupTracer.finish();
+        if (timeline != null && messageBus != null) {
+            log.d(timeline.toString());
+            messageBus.post(new PlayerStartupEvent.StartupTimeline(timeline));
+        }
+    }
+
     public PKMediaEntry getMediaEntry() {
         return mediaEntry;
     }
 
+    /**
+     * Applies a plugin config. A config the app changed in place must be passed here again: the configs given at
+     * init are compiled once and their placeholders are not looked for again until then.
+     */
     public void updatePluginConfig(@NonNull String pluginName, @Nullable Object pluginConfig) {
         if (initOptions.pluginConfigs != null) {
             initOptions.pluginConfigs.setPluginConfig(pluginName, pluginConfig);
         }
+        // The app may have changed the same config instance in place; compile it again on next use.
+        pluginConfigTemplates.remove(pluginName);
+        resolvedPluginConfigs.remove(pluginName);
+        appliedPluginConfigs.put(pluginName, pluginConfig);
         pkPlayer.updatePluginConfig(pluginName, pluginConfig);
     }
 
     private void updateInternalPluginConfig(@NonNull String pluginName, @Nullable Object pluginConfig) {
+        appliedPluginConfigs.put(pluginName, pluginConfig);
         pkPlayer.updatePluginConfig(pluginName, pluginConfig);
     }
 
@@ -524,6 +656,7 @@ public abstract class KalturaPlayer {
 
     public void destroy() {
         log.d("destroy KalturaPlayer");
+        cancelCurrentLoad();
         if (pkPlayer != null) {
             pkPlayer.removeListeners(this);
             pkPlayer.destroy();
@@ -540,6 +673,43 @@ public abstract class KalturaPlayer {
         pkPlayer.stop();
     }
 
+    /**
+     * Stops playback and drops everything tied to the current media and its listeners, keeping the loaded
+     * PlayKit player and plugins, so the instance can be handed to a new owner. See {@link KalturaPlayerPool}.
+     * Listeners added directly on {@link #getMessageBus()} are not tracked and must be removed by their owner.
+     */
+    void resetForReuse() {
+        cancelCurrentLoad();
+        startupTracer.reset();
+        pkPlayer.stop();
+        for (Object groupId : listenerGroups) {
+            pkPlayer.removeListeners(groupId);
+        }
+        listenerGroups.clear();
+        pkPlayer.removeListeners(this);
+
+        // The next owner adds the view to its own layout, and the old one must not keep it (or its activity) alive.
+        final View playerView = pkPlayer.getView();
+        if (playerView != null && playerView.getParent() instanceof ViewGroup) {
+            ((ViewGroup) playerView.getParent()).removeView(playerView);
+        }
+
+        if (playlistController != null) {
+            playlistController.release();
+            playlistController = null;
+        }
+        mediaEntry = null;
+        prepareState = PrepareState.not_prepared;
+        startPosition = null;
+        externalSubtitles = null;
+        ks = initOptions.ks;
+        preload = initOptions.preload != null ? initOptions.preload : true;
+        autoPlay = initOptions.autoplay != null ? initOptions.autoplay : true;
+        if (autoPlay) {
+            preload = true; // autoplay implies preload
+        }
+    }
+
     public <T extends PKController> T getController(Class<T> type) {
         return pkPlayer.getController(type);
     }
@@ -608,14 +778,17 @@ public abstract class KalturaPlayer {
     }
 
     public <E extends PKEvent> void addListener(Object groupId, Class<E> type, PKEvent.Listener<E> listener) {
+        listenerGroups.add(groupId);
         pkPlayer.addListener(groupId, type, listener);
     }
 
     public void addListener(Object groupId, Enum type, PKEvent.Listener listener) {
+        listenerGroups.add(groupId);
         pkPlayer.addListener(groupId, type, listener);
     }
 
     public void removeListeners(@NonNull Object groupId) {
+        listenerGroups.remove(groupId);
         pkPlayer.removeListeners(groupId);
     }
 
@@ -686,49 +859,118 @@ public abstract class KalturaPlayer {
         return playlistController;
     }
 
+    Context getContext() {
+        return context;
+    }
+
+    /**
+     * Releases the previous controller, if it is another one.
+     */
     public void setPlaylistController(PlaylistController playlistController) {
+        if (this.playlistController != null && this.playlistController != playlistController) {
+            this.playlistController.release();
+        }
         this.playlistController = playlistController;
     }
 
     // Called by implementation of loadMedia()
-    private void mediaLoadCompleted(final ResultElement<PKMediaEntry> response, final OnEntryLoadListener onEntryLoadListener) {
+    private void mediaLoadCompleted(final PKMediaEntry entry, final ErrorElement loadError, final LoadRequest request, final OnEntryLoadListener onEntryLoadListener) {
+
+        if (request.isCancelled()) {
+            log.d("media load was cancelled; dropping its result");
+            return;
+        }
+        startupTracer.end(PlayerStartupTimeline.Phase.PROVIDER_LOAD);
 
-        final PKMediaEntry entry = response.getResponse();
         if (entry != null) {
-            applyMediaEntryInterceptors(entry, () ->
-                    mainHandler.post(() -> {
-                        setMedia(entry);
-                        onEntryLoadListener.onEntryLoadComplete(entry, response.getError());
-                    }));
-        } else {
-            onEntryLoadListener.onEntryLoadComplete(null, response.getError());
+            interceptAndSetMedia(entry, loadError, request, onEntryLoadListener);
+        } else if (request.complete()) {
+            onEntryLoadListener.onEntryLoadComplete(null, loadError);
         }
     }
 
+    private void interceptAndSetMedia(final PKMediaEntry entry, final ErrorElement loadError, final LoadRequest request, final OnEntryLoadListener onEntryLoadListener) {
+        startupTracer.begin(PlayerStartupTimeline.Phase.INTERCEPTORS);
+        request.onCancel(applyMediaEntryInterceptors(entry, (interceptedEntry, error) ->
+                mainHandler.post(() -> {
+                    startupTracer.end(PlayerStartupTimeline.Phase.INTERCEPTORS);
+                    if (!request.complete()) {
+                        log.d("media load was cancelled; dropping its result");
+                        return;
+                    }
+                    if (error != null) {
+                        onEntryLoadListener.onEntryLoadComplete(null, error);
+                        return;
+                    }
+                    setMedia(interceptedEntry);
+                    onEntryLoadListener.onEntryLoadComplete(interceptedEntry, loadError);
+                })));
+    }
+
+    /**
+     * Sets an entry that was loaded before, cancelling the load in progress so its result does not replace it.
+     */
+    void setMediaCancellingLoad(@NonNull PKMediaEntry mediaEntry) {
+        cancelCurrentLoad();
+        setMedia(mediaEntry);
+    }
+
+    /**
+     * Plays an entry from {@link #resolveMediaEntry}: cancels the load in progress and applies the interceptors
+     * to the entry before setting it, like loadMedia() does for the provider's entry. Cancelled by the next load.
+     */
+    void loadResolvedMedia(@NonNull PKMediaEntry mediaEntry, @NonNull final OnEntryLoadListener listener) {
+        final LoadRequest request = startLoadRequest();
+        startupTracer.beginSession();
+        interceptAndSetMedia(mediaEntry, null, request, listener);
+    }
+
+    /**
+     * Applies the loaded interceptors with the deadline and failure policy of the init options. The listener is
+     * called once they are done, also if one of them failed and the policy is abort (the remaining ones are not
+     * applied then). With a deadline the interceptors work on a copy, whose result is copied back into mediaEntry.
+     */
     public void applyMediaEntryInterceptors(PKMediaEntry mediaEntry, PKMediaEntryInterceptor.Listener listener) {
-        List<PKMediaEntryInterceptor> localInterceptors = pkPlayer.getLoadedPluginsByType(PKMediaEntryInterceptor.class);
-        applyMediaEntryInterceptor(localInterceptors, mediaEntry, listener);
+        applyMediaEntryInterceptors(mediaEntry, (interceptedEntry, error) -> {
+            if (interceptedEntry != mediaEntry) {
+                copyMediaEntry(interceptedEntry, mediaEntry);
+            }
+            listener.onComplete();
+        });
     }
 
-    private void applyMediaEntryInterceptor(List<PKMediaEntryInterceptor> localInterceptors,
-                                            PKMediaEntry mediaEntry,
-                                            PKMediaEntryInterceptor.Listener listener) {
-        if (localInterceptors.isEmpty()) {
-            listener.onComplete();
-            return;
+    private static void copyMediaEntry(PKMediaEntry from, PKMediaEntry to) {
+        for (Field field : ConfigResolver.getFields(PKMediaEntry.class)) {
+            try {
+                field.set(to, field.get(from));
+            } catch (IllegalAccessException e) {
+                log.e("Can't copy media entry field " + field.getName(), e);
+            }
         }
+    }
 
-        PKMediaEntryInterceptor interceptor = localInterceptors.get(0);
-        interceptor.apply(mediaEntry, () -> {
-            localInterceptors.remove(0);
-            applyMediaEntryInterceptor(localInterceptors, mediaEntry, listener);
-        });
+    private Runnable applyMediaEntryInterceptors(PKMediaEntry mediaEntry, MediaEntryInterceptorPipeline.Callback callback) {
+        List<PKMediaEntryInterceptor> localInterceptors = pkPlayer.getLoadedPluginsByType(PKMediaEntryInterceptor.class);
+        long timeoutMs = (initOptions.mediaEntryInterceptorTimeoutMs != null) ? initOptions.mediaEntryInterceptorTimeoutMs : MediaEntryInterceptorPipeline.DEFAULT_TIMEOUT_MS;
+        PKMediaEntryInterceptor.FailurePolicy failurePolicy = (initOptions.mediaEntryInterceptorFailurePolicy != null) ? initOptions.mediaEntryInterceptorFailurePolicy : PKMediaEntryInterceptor.FailurePolicy.skip;
+        return interceptorPipeline.apply(localInterceptors, mediaEntry, timeoutMs, failurePolicy, callback);
+    }
+
+    /**
+     * @return latency, timeout and failure counts of the media entry interceptors, by interceptor class name.
+     */
+    public Map<String, MediaEntryInterceptorPipeline.Stats> getMediaEntryInterceptorStats() {
+        return interceptorPipeline.getStats();
     }
 
-    private void playlistLoadCompleted(final ResultElement<PKPlaylist> response, final OnPlaylistLoadListener onPlaylistLoadListener) {
+    private void playlistLoadCompleted(final ResultElement<PKPlaylist> response, final LoadRequest request, final OnPlaylistLoadListener onPlaylistLoadListener) {
 
         final PKPlaylist playlist = response.getResponse();
         mainHandler.post(() -> {
+            if (!request.complete()) {
+                log.d("playlist load was cancelled; dropping its result");
+                return;
+            }
             if (response.getError() != null) {
                 log.e(response.getError().getMessage());
 
@@ -771,39 +1013,30 @@ public abstract class KalturaPlayer {
         if (!isValidOVPPlayer())
             return;
 
-        new CountDownTimer(COUNT_DOWN_TOTAL, COUNT_DOWN_INTERVAL) {
-            @Override
-            public void onTick(long millisUntilFinished) {
-                if (playerConfigRetrieved || (initOptions != null && initOptions.tvPlayerParams != null)) {
-                    cancel();
-                    log.d("OVP loadPlaylist by id Done");
-                    if (playerConfigRetrieved) {
-                        initOptions.setTVPlayerParams(PlayerConfigManager.retrieve(Type.ovp, initOptions.partnerId));
-                    }
-                    populatePartnersValues();
-                    final PlaylistProvider provider = playlistOptions.buildPlaylistProvider(getServerUrl(), getPartnerId(), playlistOptions.ks);
-                    provider.load(response -> playlistLoadCompleted(response, (playlist, error) -> {
-                        if (error != null) {
-                            return;
-                        }
-                        PlaylistController playlistController = new PKPlaylistController(KalturaPlayer.this, playlist, PKPlaylistType.OVP_ID);
-                        playlistController.setPlaylistOptions(playlistOptions);
-                        controllerListener.onPlaylistControllerComplete(playlistController, null);
-                        setPlaylistController(playlistController);
-                        if (messageBus != null) {
-                            messageBus.post(new PlaylistEvent.PlaylistStarted(playlist));
-                        }
-                        playlistController.playItem(playlistOptions.startIndex, autoPlay);
-                    }));
+        final LoadRequest request = startLoadRequest();
+        whenPlayerConfigReady(Type.ovp, request, () -> {
+            log.d("OVP loadPlaylist by id Done");
+            final PlaylistProvider provider = playlistOptions.buildPlaylistProvider(getServerUrl(), getPartnerId(), playlistOptions.ks);
+            request.onCancel(provider::cancel);
+            provider.load(response -> playlistLoadCompleted(response, request, (playlist, error) -> {
+                if (error != null) {
+                    return;
                 }
-            }
-
-            @Override
-            public void onFinish() {
-                log.e("OVP loadPlaylist by id KalturaPlayerNotInitializedError");
+                PlaylistController playlistController = new PKPlaylistController(KalturaPlayer.this, playlist, PKPlaylistType.OVP_ID);
+                playlistController.setPlaylistOptions(playlistOptions);
+                controllerListener.onPlaylistControllerComplete(playlistController, null);
+                setPlaylistController(playlistController);
+                if (messageBus != null) {
+                    messageBus.post(new PlaylistEvent.PlaylistStarted(playlist));
+                }
+                playlistController.playItem(playlistOptions.startIndex, autoPlay);
+            }));
+        }, () -> {
+            log.e("OVP loadPlaylist by id KalturaPlayerNotInitializedError");
+            if (request.complete()) {
                 controllerListener.onPlaylistControllerComplete(null, KalturaPlaylistInitializedError);
             }
-        }.start();
+        });
     }
 
 
@@ -819,39 +1052,30 @@ public abstract class KalturaPlayer {
             return;
         }
 
-        new CountDownTimer(COUNT_DOWN_TOTAL, COUNT_DOWN_INTERVAL) {
-            @Override
-            public void onTick(long millisUntilFinished) {
-                if (playerConfigRetrieved || (initOptions != null && initOptions.tvPlayerParams != null)) {
-                    cancel();
-                    log.d("OVP loadPlaylist Done");
-                    if (playerConfigRetrieved) {
-                        initOptions.setTVPlayerParams(PlayerConfigManager.retrieve(Type.ovp, initOptions.partnerId));
-                    }
-                    populatePartnersValues();
-                    final PlaylistProvider provider = playlistOptions.buildPlaylistProvider(getServerUrl(), getPartnerId(), playlistOptions.ks);
-                    provider.load(response -> playlistLoadCompleted(response, (playlist, error) -> {
-                        if (error != null) {
-                            return;
-                        }
-                        PlaylistController playlistController = new PKPlaylistController(KalturaPlayer.this, playlist, PKPlaylistType.OVP_LIST);
-                        playlistController.setPlaylistOptions(playlistOptions);
-                        controllerListener.onPlaylistControllerComplete(playlistController, null);
-                        setPlaylistController(playlistController);
-                        if (messageBus != null) {
-                            messageBus.post(new PlaylistEvent.PlaylistStarted(playlist));
-                        }
-                        playlistController.playItem(playlistOptions.startIndex, autoPlay);
-                    }));
+        final LoadRequest request = startLoadRequest();
+        whenPlayerConfigReady(Type.ovp, request, () -> {
+            log.d("OVP loadPlaylist Done");
+            final PlaylistProvider provider = playlistOptions.buildPlaylistProvider(getServerUrl(), getPartnerId(), playlistOptions.ks);
+            request.onCancel(provider::cancel);
+            provider.load(response -> playlistLoadCompleted(response, request, (playlist, error) -> {
+                if (error != null) {
+                    return;
                 }
-            }
-
-            @Override
-            public void onFinish() {
-                log.e("OVP loadPlaylist KalturaPlaylistInitializedError");
+                PlaylistController playlistController = new PKPlaylistController(KalturaPlayer.this, playlist, PKPlaylistType.OVP_LIST);
+                playlistController.setPlaylistOptions(playlistOptions);
+                controllerListener.onPlaylistControllerComplete(playlistController, null);
+                setPlaylistController(playlistController);
+                if (messageBus != null) {
+                    messageBus.post(new PlaylistEvent.PlaylistStarted(playlist));
+                }
+                playlistController.playItem(playlistOptions.startIndex, autoPlay);
+            }));
+        }, () -> {
+            log.e("OVP loadPlaylist KalturaPlaylistInitializedError");
+            if (request.complete()) {
                 controllerListener.onPlaylistControllerComplete(null, KalturaPlaylistInitializedError);
             }
-        }.start();
+        });
     }
 
     public void loadPlaylist(@NonNull OTTPlaylistOptions playlistOptions, @NonNull final OnPlaylistControllerListener controllerListener) {
@@ -865,39 +1089,30 @@ public abstract class KalturaPlayer {
             }
             return;
         }
-        new CountDownTimer(COUNT_DOWN_TOTAL, COUNT_DOWN_INTERVAL) {
-            @Override
-            public void onTick(long millisUntilFinished) {
-                if (playerConfigRetrieved || (initOptions != null && initOptions.tvPlayerParams != null)) {
-                    cancel();
-                    log.d("OTT loadPlaylist Done");
-                    if (playerConfigRetrieved) {
-                        initOptions.setTVPlayerParams(PlayerConfigManager.retrieve(Type.ott, initOptions.partnerId));
-                    }
-                    populatePartnersValues();
-                    final PlaylistProvider provider = playlistOptions.buildPlaylistProvider(getServerUrl(), getPartnerId(), playlistOptions.ks);
-                    provider.load(response -> playlistLoadCompleted(response, (playlist, error) -> {
-                        if (error != null) {
-                            return;
-                        }
-                        PlaylistController playlistController = new PKPlaylistController(KalturaPlayer.this, playlist, PKPlaylistType.OTT_LIST);
-                        playlistController.setPlaylistOptions(playlistOptions);
-                        controllerListener.onPlaylistControllerComplete(playlistController, null);
-                        setPlaylistController(playlistController);
-                        if (messageBus != null) {
-                            messageBus.post(new PlaylistEvent.PlaylistStarted(playlist));
-                        }
-                        playlistController.playItem(playlistOptions.startIndex, autoPlay);
-                    }));
+        final LoadRequest request = startLoadRequest();
+        whenPlayerConfigReady(Type.ott, request, () -> {
+            log.d("OTT loadPlaylist Done");
+            final PlaylistProvider provider = playlistOptions.buildPlaylistProvider(getServerUrl(), getPartnerId(), playlistOptions.ks);
+            request.onCancel(provider::cancel);
+            provider.load(response -> playlistLoadCompleted(response, request, (playlist, error) -> {
+                if (error != null) {
+                    return;
                 }
-            }
-
-            @Override
-            public void onFinish() {
-                log.e("OTT loadPlaylist KalturaPlayerNotInitializedError");
+                PlaylistController playlistController = new PKPlaylistController(KalturaPlayer.this, playlist, PKPlaylistType.OTT_LIST);
+                playlistController.setPlaylistOptions(playlistOptions);
+                controllerListener.onPlaylistControllerComplete(playlistController, null);
+                setPlaylistController(playlistController);
+                if (messageBus != null) {
+                    messageBus.post(new PlaylistEvent.PlaylistStarted(playlist));
+                }
+                playlistController.playItem(playlistOptions.startIndex, autoPlay);
+            }));
+        }, () -> {
+            log.e("OTT loadPlaylist KalturaPlayerNotInitializedError");
+            if (request.complete()) {
                 controllerListener.onPlaylistControllerComplete(null, KalturaPlaylistInitializedError);
             }
-        }.start();
+        });
     }
 
     public void loadPlaylist(@NonNull BasicPlaylistOptions playlistOptions, @NonNull final OnPlaylistControllerListener controllerListener) {
@@ -916,6 +1131,10 @@ public abstract class KalturaPlayer {
             return;
         }
 
+        // Nothing to wait for here, but the previous load is still superseded.
+        final LoadRequest request = startLoadRequest();
+        request.complete();
+
         List<PKPlaylistMedia> playlistMediaEntryList = new ArrayList<>();
         for (int i = 0; i < playlistOptions.basicMediaOptionsList.size(); i++) {
             playlistMediaEntryList.add(new BasicMediaOptions(playlistOptions.basicMediaOptionsList.get(i).getPKMediaEntry()));
@@ -943,29 +1162,21 @@ public abstract class KalturaPlayer {
         if (!isValidOTTPlayer())
             return;
 
+        final LoadRequest request = startLoadRequest();
+        startupTracer.beginSession();
         prepareLoadMedia(mediaOptions);
 
-        new CountDownTimer(COUNT_DOWN_TOTAL, COUNT_DOWN_INTERVAL) {
-            @Override
-            public void onTick(long millisUntilFinished) {
-                if (playerConfigRetrieved || (initOptions != null && initOptions.tvPlayerParams != null)) {
-                    cancel();
-                    log.d("OTT loadMedia Done");
-                    if (playerConfigRetrieved) {
-                        initOptions.setTVPlayerParams(PlayerConfigManager.retrieve(Type.ott, initOptions.partnerId));
-                    }
-                    populatePartnersValues();
-                    final MediaEntryProvider provider = mediaOptions.buildMediaProvider(getServerUrl(), getPartnerId());
-                    provider.load(response -> mediaLoadCompleted(response, listener));
-                }
-            }
-
-            @Override
-            public void onFinish() {
-                log.e("KalturaPlayerNotInitializedError");
+        startupTracer.begin(PlayerStartupTimeline.Phase.CONFIG_WAIT);
+        whenPlayerConfigReady(Type.ott, request, () -> {
+            startupTracer.end(PlayerStartupTimeline.Phase.CONFIG_WAIT);
+            log.d("OTT loadMedia Done");
+            loadMediaEntry(mediaOptions, request, listener);
+        }, () -> {
+            log.e("KalturaPlayerNotInitializedError");
+            if (request.complete()) {
                 listener.onEntryLoadComplete(null, KalturaPlayerNotInitializedError);
             }
-        }.start();
+        });
     }
 
     public void loadMedia(@NonNull OVPMediaOptions mediaOptions, @NonNull final OnEntryLoadListener listener) {
@@ -973,29 +1184,155 @@ public abstract class KalturaPlayer {
         if (!isValidOVPPlayer())
             return;
 
+        final LoadRequest request = startLoadRequest();
+        startupTracer.beginSession();
         prepareLoadMedia(mediaOptions);
 
-        new CountDownTimer(COUNT_DOWN_TOTAL, COUNT_DOWN_INTERVAL) {
-            @Override
-            public void onTick(long millisUntilFinished) {
-                if (playerConfigRetrieved || (initOptions != null && initOptions.tvPlayerParams != null)) {
-                    cancel();
-                    log.d("OVP loadMedia Done");
-                    if (playerConfigRetrieved) {
-                        initOptions.setTVPlayerParams(PlayerConfigManager.retrieve(Type.ovp, initOptions.partnerId));
-                    }
-                    populatePartnersValues();
-                    final MediaEntryProvider provider = mediaOptions.buildMediaProvider(getServerUrl(), getPartnerId());
-                    provider.load(response -> mediaLoadCompleted(response, listener));
-                }
+        startupTracer.begin(PlayerStartupTimeline.Phase.CONFIG_WAIT);
+        whenPlayerConfigReady(Type.ovp, request, () -> {
+            startupTracer.end(PlayerStartupTimeline.Phase.CONFIG_WAIT);
+            log.d("OVP loadMedia Done");
+            loadMediaEntry(mediaOptions, request, listener);
+        }, () -> {
+            log.e("KalturaPlayerNotInitializedError");
+            if (request.complete()) {
+                listener.onEntryLoadComplete(null, KalturaPlayerNotInitializedError);
             }
+        });
+    }
 
-            @Override
-            public void onFinish() {
-                log.e("KalturaPlayerNotInitializedError");
+    private void loadMediaEntry(MediaOptions mediaOptions, LoadRequest request, OnEntryLoadListener listener) {
+        startupTracer.begin(PlayerStartupTimeline.Phase.PROVIDER_LOAD);
+        fetchMediaEntry(mediaOptions, request, (entry, loadError) -> mediaLoadCompleted(entry, loadError, request, listener));
+    }
+
+    // Gets the entry from the provider, or from MediaEntryCache when the init options enable it. The listener is
+    // called without interceptors applied, and always after this returns: on the provider thread, or on the main
+    // thread for a cache hit - posted rather than called in place, so the caller's load is set up before its result
+    // arrives. Callers check the request for cancellation themselves.
+    private void fetchMediaEntry(MediaOptions mediaOptions, LoadRequest request, OnEntryLoadListener listener) {
+        final String cacheKey = Boolean.TRUE.equals(initOptions.mediaEntryCacheEnabled) ? mediaOptions.getCacheKey(tvPlayerType, getServerUrl(), getPartnerId()) : null;
+        if (cacheKey != null) {
+            final PKMediaEntry cachedEntry = MediaEntryCache.get(cacheKey);
+            if (cachedEntry != null) {
+                log.d("media entry " + cachedEntry.getId() + " served from cache");
+                mainHandler.post(() -> listener.onEntryLoadComplete(cachedEntry, null));
+                return;
+            }
+        }
+
+        final MediaEntryProvider provider = mediaOptions.buildMediaProvider(getServerUrl(), getPartnerId());
+        request.onCancel(provider::cancel);
+        provider.load(response -> {
+            if (cacheKey != null && response.getResponse() != null && response.getError() == null) {
+                MediaEntryCache.put(cacheKey, mediaOptions.getMediaId(), response.getResponse());
+            }
+            listener.onEntryLoadComplete(response.getResponse(), response.getError());
+        });
+    }
+
+    /**
+     * Resolves the provider entry of the given options without setting it on the player and without cancelling the
+     * current load, so a playlist can resolve upcoming items while one is playing. The interceptors are not applied:
+     * they run when the entry is played, see {@link #loadResolvedMedia}.
+     * The listener is called on the main thread, unless the returned request is cancelled first.
+     */
+    LoadRequest resolveMediaEntry(@NonNull MediaOptions mediaOptions, @NonNull final OnEntryLoadListener listener) {
+        final LoadRequest request = new LoadRequest();
+        whenPlayerConfigReady(tvPlayerType, request, () -> fetchMediaEntry(mediaOptions, request, (entry, loadError) ->
+                mainHandler.post(() -> {
+                    if (request.complete()) {
+                        listener.onEntryLoadComplete(entry, loadError);
+                    }
+                })), () -> mainHandler.post(() -> {
+            if (request.complete()) {
                 listener.onEntryLoadComplete(null, KalturaPlayerNotInitializedError);
             }
-        }.start();
+        }));
+        return request;
+    }
+
+    /**
+     * Resolves the entries added to the batch with one API request, the way {@link #resolveMediaEntry} does for one
+     * entry. The response is parsed off the main thread; the listener is called on the main thread, unless the
+     * returned request is cancelled first.
+     */
+    LoadRequest resolveMediaEntries(@NonNull MediaEntryBatch batch, @NonNull final MediaEntryBatch.Listener listener) {
+        final LoadRequest request = new LoadRequest();
+        whenPlayerConfigReady(tvPlayerType, request, () -> {
+            final String serverUrl = getServerUrl();
+            final int partnerId = getPartnerId();
+            final Call call = NetworkUtils.executeJsonPOSTRequest("resolveMediaEntries", batch.getUrl(serverUrl),
+                    batch.buildRequest(partnerId), (response, error) -> {
+                        final Map<String, PKMediaEntry> entries = (response != null) ? batch.parseResponse(response, serverUrl, partnerId) :
+                                Collections.<String, PKMediaEntry>emptyMap();
+                        mainHandler.post(() -> {
+                            if (request.complete()) {
+                                listener.onBatchLoadComplete(entries, error);
+                            }
+                        });
+                    });
+            request.onCancel(call::cancel);
+        }, () -> mainHandler.post(() -> {
+            if (request.complete()) {
+                listener.onBatchLoadComplete(Collections.<String, PKMediaEntry>emptyMap(), KalturaPlayerNotInitializedError);
+            }
+        }));
+        return request;
+    }
+
+    // Runs onReady on the main thread once the player config is known: on the next loop iteration if it was passed in
+    // the init options or initialize() has already retrieved it, otherwise as soon as initialize() completes.
+    // onTimeout runs if that takes too long. Cancelling the request stops the wait.
+    private void whenPlayerConfigReady(Type type, LoadRequest request, Runnable onReady, Runnable onTimeout) {
+        if (!PlayerConfigManager.isConfigReady() && initOptions.tvPlayerParams != null) {
+            final Runnable ready = () -> {
+                populatePartnersValues();
+                onReady.run();
+            };
+            mainHandler.post(ready);
+            request.onCancel(() -> mainHandler.removeCallbacks(ready));
+            return;
+        }
+
+        request.onCancel(PlayerConfigManager.whenConfigReady(getPlayerConfigTimeoutMs(), () -> {
+            initOptions.setTVPlayerParams(PlayerConfigManager.retrieve(type, initOptions.partnerId));
+            populatePartnersValues();
+            postConfigCacheStats();
+            onReady.run();
+        }, onTimeout));
+    }
+
+    /**
+     * @return the load started by the last loadMedia() or loadPlaylist() call, to cancel it; null if there is none.
+     * The request stays here after its result was delivered, until the next load supersedes it.
+     */
+    @Nullable
+    public LoadRequest getCurrentLoadRequest() {
+        return currentLoadRequest;
+    }
+
+    private LoadRequest startLoadRequest() {
+        cancelCurrentLoad();
+        currentLoadRequest = new LoadRequest();
+        return currentLoadRequest;
+    }
+
+    void cancelCurrentLoad() {
+        if (currentLoadRequest != null) {
+            currentLoadRequest.cancel();
+            currentLoadRequest = null;
+        }
+    }
+
+    private void postConfigCacheStats() {
+        if (messageBus != null && Boolean.TRUE.equals(initOptions.configCacheStatsEventsEnabled)) {
+            messageBus.post(new PlayerConfigEvent.ConfigCacheStats(PlayerConfigManager.getCacheStats()));
+        }
+    }
+
+    private long getPlayerConfigTimeoutMs() {
+        return initOptions.playerConfigTimeoutMs != null ? initOptions.playerConfigTimeoutMs : COUNT_DOWN_TOTAL;
     }
 
     private boolean isValidOVPPlayer() {
@@ -1051,11 +1388,8 @@ public abstract class KalturaPlayer {
     }
 
     private void registerPlugins(Context context) {
-        // Plugin registration is static and only done once, but requires a Context.
-        if (!pluginsRegistered) {
-            registerCommonPlugins(context);
-            pluginsRegistered = true;
-        }
+        // Plugin registration is static and KnownPlugin only does it once per process, but it requires a Context.
+        registerCommonPlugins(context);
     }
 
     private boolean isOTTPlayer() {
@@ -1065,7 +1399,7 @@ public abstract class KalturaPlayer {
     private void addKalturaPluginConfigs(PKPluginConfigs combinedPluginConfigs) {
         if (!Integer.valueOf(KavaAnalyticsConfig.DEFAULT_KAVA_PARTNER_ID).equals(ovpPartnerId) && !combinedPluginConfigs.hasConfig(KavaAnalyticsPlugin.factory.getName())) {
             log.d("Adding Automatic Kava Plugin");
-            combinedPluginConfigs.setPluginConfig(KavaAnalyticsPlugin.factory.getName(), resolve(getKavaDefaultsConfig(ovpPartnerId, referrer)));
+            combinedPluginConfigs.setPluginConfig(KavaAnalyticsPlugin.factory.getName(), getCachedKavaDefaultsConfig());
         }
 
         if (isOTTPlayer() && !combinedPluginConfigs.hasConfig(PhoenixAnalyticsPlugin.factory.getName())) {
@@ -1083,6 +1417,10 @@ public abstract class KalturaPlayer {
     private void updateKalturaPluginConfigs(PKPluginConfigs combined) {
         log.d("updateKalturaPluginConfigs");
         for (Map.Entry<String, Object> plugin : combined) {
+            // Resolution hands back the same instance while a config's tokens are unchanged; those plugins are up to date.
+            if (appliedPluginConfigs.get(plugin.getKey()) == plugin.getValue()) {
+                continue;
+            }
             updateInternalPluginConfig(plugin.getKey(), plugin.getValue());
         }
     }
@@ -1098,6 +1436,10 @@ public abstract class KalturaPlayer {
         return new PhoenixAnalyticsConfig(getPartnerId(), getServerUrl(), getKS(), Consts.DEFAULT_ANALYTICS_TIMER_INTERVAL_HIGH_SEC);
     }
 
+    public interface OnInitializeListener {
+        void onInitialized(InitializeResult result);
+    }
+
     public interface OnEntryLoadListener {
         void onEntryLoadComplete(PKMediaEntry entry, ErrorElement error);
     }
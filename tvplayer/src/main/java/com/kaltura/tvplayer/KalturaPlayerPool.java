@@ -0,0 +1,146 @@
+package com.kaltura.tvplayer;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.kaltura.playkit.PKEvent;
+import com.kaltura.playkit.PlayerEvent;
+import com.kaltura.tvplayer.utils.LatencyHistogram;
+
+/**
+ * Keeps built players around for reuse, so switching media (e.g. zapping between live channels) doesn't pay for
+ * plugin registration, {@code PlayKitManager.loadPlayer} and the player settings chain every time.
+ *
+ * Players are keyed by player type and the values of the public fields of their {@link PlayerInitOptions}. Settings
+ * objects and plugin configs are compared by their class and JSON form, so options built separately with equal
+ * contents share a key. An option that can't be written as JSON keeps its player from being shared: it is destroyed
+ * on release rather than kept idle. The KS is not part of the key; a reused player gets the KS of the options it is
+ * acquired with.
+ *
+ * A released player is stopped and reset instead of destroyed, and kept while its key has fewer than maxIdlePerKey
+ * idle players. All methods must be called on the main thread.
+ */
+public class KalturaPlayerPool {
+
+    private final Context context;
+    private final PlayerPool<KalturaPlayer> pool;
+    private final LatencyHistogram timeToFirstFrame = new LatencyHistogram();
+
+    public KalturaPlayerPool(Context context, int maxIdlePerKey) {
+        this.context = context;
+        this.pool = new PlayerPool<>(new PlayerPool.Players<KalturaPlayer>() {
+            @Override
+            public KalturaPlayer create(KalturaPlayer.Type type, PlayerInitOptions initOptions) {
+                return createPlayer(type, initOptions);
+            }
+
+            @Override
+            public void reuse(KalturaPlayer player, PlayerInitOptions initOptions) {
+                player.setKS(initOptions.ks);
+            }
+
+            @Override
+            public void reset(KalturaPlayer player) {
+                player.resetForReuse();
+            }
+
+            @Override
+            public void destroy(KalturaPlayer player) {
+                player.destroy();
+            }
+        }, maxIdlePerKey);
+    }
+
+    /**
+     * Builds players for the given options until their key has count idle players (at most maxIdlePerKey).
+     * One player is built per main-thread message, so warming up several doesn't block a frame for all of them.
+     * Nothing is built for options that keep their player from being shared.
+     */
+    public void prewarm(@NonNull KalturaPlayer.Type type, @NonNull PlayerInitOptions initOptions, int count) {
+        pool.prewarm(type, initOptions, count);
+    }
+
+    /**
+     * @return an idle player built with matching options if there is one, otherwise a newly created player.
+     * Give it back with {@link #release(KalturaPlayer)} instead of destroying it.
+     */
+    @NonNull
+    public KalturaPlayer acquire(@NonNull KalturaPlayer.Type type, @NonNull PlayerInitOptions initOptions) {
+        final long startTime = SystemClock.elapsedRealtime();
+        final KalturaPlayer player = pool.acquire(type, initOptions);
+        trackFirstFrame(player, startTime);
+        return player;
+    }
+
+    /**
+     * Takes back a player from {@link #acquire}: stops and resets it for the next owner, or destroys it if its key
+     * already has maxIdlePerKey idle players or its options keep it from being shared. The caller must not use it
+     * afterwards.
+     */
+    public void release(@NonNull KalturaPlayer player) {
+        pool.release(player);
+    }
+
+    /**
+     * Destroys all idle players. Players currently lent out are not affected.
+     */
+    public void clear() {
+        pool.clear();
+    }
+
+    public Stats getStats() {
+        return new Stats(pool.getHitCount(), pool.getMissCount(), pool.getIdleCount(), pool.getLentCount(),
+                timeToFirstFrame.snapshot());
+    }
+
+    private KalturaPlayer createPlayer(KalturaPlayer.Type type, PlayerInitOptions initOptions) {
+        switch (type) {
+            case ovp:
+                return KalturaOvpPlayer.create(context, initOptions);
+            case ott:
+                return KalturaOttPlayer.create(context, initOptions);
+            default:
+                return KalturaBasicPlayer.create(context, initOptions);
+        }
+    }
+
+    // Time from acquire() to the first playing event, the closest PlayerEvent to a first rendered frame.
+    private void trackFirstFrame(KalturaPlayer player, long startTime) {
+        player.addListener(this, PlayerEvent.playing, new PKEvent.Listener<PlayerEvent>() {
+            @Override
+            public void onEvent(PlayerEvent event) {
+                timeToFirstFrame.record(SystemClock.elapsedRealtime() - startTime);
+                player.removeListener(this);
+            }
+        });
+    }
+
+    public static class Stats {
+        public final int hitCount;
+        public final int missCount;
+        public final int idleCount;
+        public final int lentCount;
+        public final LatencyHistogram.Snapshot timeToFirstFrame;
+
+        Stats(int hitCount, int missCount, int idleCount, int lentCount, LatencyHistogram.Snapshot timeToFirstFrame) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.idleCount = idleCount;
+            this.lentCount = lentCount;
+            this.timeToFirstFrame = timeToFirstFrame;
+        }
+
+        public double getHitRate() {
+            final int total = hitCount + missCount;
+            return total > 0 ? (double) hitCount / total : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "KalturaPlayerPool.Stats{hitRate=" + getHitRate() + ", hits=" + hitCount + ", misses=" + missCount +
+                    ", idle=" + idleCount + ", lent=" + lentCount + ", timeToFirstFrame: " + timeToFirstFrame + "}";
+        }
+    }
+}
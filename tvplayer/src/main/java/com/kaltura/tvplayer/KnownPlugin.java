@@ -1,6 +1,10 @@
 package com.kaltura.tvplayer;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
 
 import com.kaltura.playkit.PKLog;
 import com.kaltura.playkit.PKPlugin;
@@ -10,6 +14,10 @@ import com.kaltura.playkit.plugins.ott.PhoenixAnalyticsPlugin;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 enum KnownPlugin {
 
@@ -31,9 +39,23 @@ enum KnownPlugin {
 
     private static final PKLog log = PKLog.get("KnownPlugin");
 
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Registration is process-wide: each plugin is registered with PlayKitManager at most once. Guarded by the class.
+    private static final Set<KnownPlugin> registered = EnumSet.noneOf(KnownPlugin.class);
+
+    // The background preparation: if it runs, if an OTT player asked for it, who waits for it. Guarded by the class.
+    private static boolean backgroundRunning;
+    private static boolean backgroundOTT;
+    private static final List<Runnable> backgroundCallbacks = new ArrayList<>();
+
     public final String className;
     public final PKPlugin.Factory factory;
 
+    // Result of looking up className, kept so a missing plugin is only probed (and logged) once. Guarded by the class.
+    private PKPlugin.Factory discoveredFactory;
+    private boolean discovered;
+
     KnownPlugin(String className, PKPlugin.Factory factory) {
         this.className = className;
         this.factory = factory;
@@ -44,19 +66,25 @@ enum KnownPlugin {
     }
 
     protected static void registerPluginByName(Context context, String pluginClassName) {
+        final PKPlugin.Factory factory = findFactory(pluginClassName);
+        if (factory != null) {
+            PlayKitManager.registerPlugins(context, factory);
+        }
+    }
+
+    private static PKPlugin.Factory findFactory(String pluginClassName) {
         try {
             Class pluginClass = Class.forName(pluginClassName);
             final Field factoryField = pluginClass.getField("factory");
             if (!Modifier.isStatic(factoryField.getModifiers())) {
                 log.e("Plugin factory " + pluginClassName + ".factory is not static");
-                return;
+                return null;
             }
             final PKPlugin.Factory factory = (PKPlugin.Factory) factoryField.get(null);
             if (factory == null) {
                 log.e("Plugin factory " + pluginClassName + ".factory is null");
-                return;
             }
-            PlayKitManager.registerPlugins(context, factory);
+            return factory;
 
         } catch (ClassNotFoundException e) {
             // This is ok and very common
@@ -70,16 +98,53 @@ enum KnownPlugin {
         } catch (RuntimeException e) {
             log.e("Something bad", e);
         }
+        return null;
     }
 
-    void register(Context context) {
+    // Looks the plugin class up without holding the class lock while it loads, so a player created meanwhile on the
+    // main thread doesn't wait for it; if two threads race, the first result is kept.
+    private PKPlugin.Factory getFactory() {
         if (factory != null) {
-            PlayKitManager.registerPlugins(context, factory);
-        } else {
-            registerPluginByName(context, className);
+            return factory;
+        }
+        synchronized (KnownPlugin.class) {
+            if (discovered) {
+                return discoveredFactory;
+            }
+        }
+        final PKPlugin.Factory found = findFactory(className);
+        synchronized (KnownPlugin.class) {
+            if (!discovered) {
+                discoveredFactory = found;
+                discovered = true;
+            }
+            return discoveredFactory;
+        }
+    }
+
+    /**
+     * Registers the plugin with PlayKitManager, once per process. Must be called on the main thread, like the rest of
+     * the PlayKitManager API.
+     */
+    void register(Context context) {
+        synchronized (KnownPlugin.class) {
+            if (registered.contains(this)) {
+                return;
+            }
+        }
+        final PKPlugin.Factory pluginFactory = getFactory();
+        if (pluginFactory != null) {
+            PlayKitManager.registerPlugins(context, pluginFactory);
+        }
+        synchronized (KnownPlugin.class) {
+            registered.add(this);
         }
     }
 
+    /**
+     * Registers the known plugins that are on the classpath, once per process; later calls return right away.
+     * Must be called on the main thread.
+     */
     static void registerAll(Context context, boolean isOTTPlayer) {
         for (KnownPlugin plugin : values()) {
             if (plugin == KnownPlugin.phoenixBookmarks && !isOTTPlayer) {
@@ -88,4 +153,66 @@ enum KnownPlugin {
             plugin.register(context);
         }
     }
+
+    private static synchronized boolean isAllRegistered(boolean isOTTPlayer) {
+        for (KnownPlugin plugin : values()) {
+            if (plugin == KnownPlugin.phoenixBookmarks && !isOTTPlayer) {
+                continue;
+            }
+            if (!registered.contains(plugin)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks up and loads the plugin classes on a background thread, then registers them on the main thread, so the
+     * first player created finds them ready. Players still call registerAll themselves; the lookups they would repeat
+     * are cached. Calls made while a preparation is running join it instead of starting another thread; onDone runs
+     * on the main thread once the plugins they need are registered.
+     */
+    static void registerAllInBackground(Context context, boolean isOTTPlayer, @Nullable Runnable onDone) {
+        synchronized (KnownPlugin.class) {
+            if (!isAllRegistered(isOTTPlayer)) {
+                backgroundOTT |= isOTTPlayer;
+                if (onDone != null) {
+                    backgroundCallbacks.add(onDone);
+                }
+                if (!backgroundRunning) {
+                    backgroundRunning = true;
+                    startBackgroundDiscovery(context.getApplicationContext());
+                }
+                return;
+            }
+        }
+        if (onDone != null) {
+            mainHandler.post(onDone);
+        }
+    }
+
+    private static void startBackgroundDiscovery(Context appContext) {
+        new Thread(() -> {
+            for (KnownPlugin plugin : values()) {
+                plugin.getFactory();
+            }
+            mainHandler.post(() -> {
+                final boolean isOTTPlayer;
+                final List<Runnable> callbacks;
+                synchronized (KnownPlugin.class) {
+                    // Whoever joined until now is served by this registration; later calls start a new preparation,
+                    // which finds the lookups done.
+                    isOTTPlayer = backgroundOTT;
+                    backgroundRunning = false;
+                    backgroundOTT = false;
+                    callbacks = new ArrayList<>(backgroundCallbacks);
+                    backgroundCallbacks.clear();
+                }
+                registerAll(appContext, isOTTPlayer);
+                for (Runnable callback : callbacks) {
+                    callback.run();
+                }
+            });
+        }, "KnownPluginDiscovery").start();
+    }
 }
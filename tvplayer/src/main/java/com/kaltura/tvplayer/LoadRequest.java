@@ -0,0 +1,74 @@
+package com.kaltura.tvplayer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handle of a media or playlist load started by {@link KalturaPlayer}, from {@link KalturaPlayer#getCurrentLoadRequest()}.
+ * Starting another load on the same player cancels the previous one. A cancelled load stops waiting for the player config, cancels its provider request and
+ * its media entry interceptors, and never reaches setMedia or its listener.
+ */
+public class LoadRequest {
+
+    private final List<Runnable> cancelActions = new ArrayList<>();
+    private boolean cancelled;
+    private boolean completed;
+
+    LoadRequest() {
+    }
+
+    /**
+     * Cancels the load if it is still in progress; does nothing once its result was delivered.
+     */
+    public void cancel() {
+        final List<Runnable> actions;
+        synchronized (this) {
+            if (cancelled || completed) {
+                return;
+            }
+            cancelled = true;
+            actions = new ArrayList<>(cancelActions);
+            cancelActions.clear();
+        }
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Registers what to undo on cancel: runs it right away if the load is already cancelled.
+     */
+    void onCancel(Runnable action) {
+        synchronized (this) {
+            if (!cancelled) {
+                if (!completed) {
+                    cancelActions.add(action);
+                }
+                return;
+            }
+        }
+        action.run();
+    }
+
+    /**
+     * Marks the result as delivered, unless the load was cancelled first.
+     *
+     * @return false if the load was cancelled and its result must be dropped.
+     */
+    synchronized boolean complete() {
+        if (cancelled) {
+            return false;
+        }
+        completed = true;
+        cancelActions.clear();
+        return true;
+    }
+}
@@ -0,0 +1,290 @@
+package com.kaltura.tvplayer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.kaltura.netkit.utils.ErrorElement;
+import com.kaltura.playkit.PKDrmParams;
+import com.kaltura.playkit.PKLog;
+import com.kaltura.playkit.PKMediaEntry;
+import com.kaltura.playkit.PKMediaFormat;
+import com.kaltura.playkit.PKMediaSource;
+import com.kaltura.playkit.PlayKitManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Several media entries resolved with one Kaltura API multi-request, instead of one provider round trip each. Only
+ * the options a batch can express are added to it; the others are left to their own provider. A batch is built on
+ * the main thread and parsed on the network thread, so it is not used again once sent.
+ */
+abstract class MediaEntryBatch {
+
+    private static final PKLog log = PKLog.get("MediaEntryBatch");
+
+    /** Items beyond this go in another batch, so a response stays small enough to parse quickly. */
+    static final int MAX_ITEMS = 10;
+
+    interface Listener {
+        /**
+         * @param entries - the resolved entries by the ids {@link #add} returned; the ids missing failed or weren't
+         *                found, and are left to the provider.
+         * @param error - the error of the request as a whole, if it failed.
+         */
+        void onBatchLoadComplete(@NonNull Map<String, PKMediaEntry> entries, @Nullable ErrorElement error);
+    }
+
+    // The sub-requests, numbered from 1 in the request body; results come back in the same order.
+    private final List<JsonObject> requests = new ArrayList<>();
+    private int itemCount;
+
+    @Nullable
+    static MediaEntryBatch create(KalturaPlayer.Type type) {
+        switch (type) {
+            case ovp:
+                return new OvpMediaEntryBatch();
+            case ott:
+                return new PhoenixMediaEntryBatch();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the id the entry of the options will be keyed by, or null if this kind of batch can't resolve them or
+     * the batch is full.
+     */
+    @Nullable
+    final String add(MediaOptions mediaOptions) {
+        if (itemCount >= MAX_ITEMS) {
+            return null;
+        }
+        final String id = addItem(mediaOptions);
+        if (id != null) {
+            itemCount++;
+        }
+        return id;
+    }
+
+    final int size() {
+        return itemCount;
+    }
+
+    @Nullable
+    protected abstract String addItem(MediaOptions mediaOptions);
+
+    /**
+     * @param serverUrl - as returned by {@link KalturaPlayer#getServerUrl()}.
+     */
+    abstract String getUrl(String serverUrl);
+
+    /**
+     * @return the multi-request body.
+     */
+    abstract JsonObject buildRequest(int partnerId);
+
+    /**
+     * @return the resolved entries by id; see {@link Listener#onBatchLoadComplete}.
+     */
+    abstract Map<String, PKMediaEntry> parseResponse(JsonElement response, String serverUrl, int partnerId);
+
+    /**
+     * Adds a sub-request.
+     *
+     * @return its number, by which later sub-requests refer to its result.
+     */
+    protected final int addRequest(JsonObject request) {
+        requests.add(request);
+        return requests.size();
+    }
+
+    protected final JsonObject buildMultiRequest(String apiVersion) {
+        final JsonObject body = new JsonObject();
+        body.addProperty("apiVersion", apiVersion);
+        body.addProperty("format", 1);
+        body.addProperty("clientTag", PlayKitManager.CLIENT_TAG);
+        for (int i = 0; i < requests.size(); i++) {
+            body.add(String.valueOf(i + 1), requests.get(i));
+        }
+        return body;
+    }
+
+    /**
+     * @return the results of the sub-requests by number (index 0 is the result of request 1), with null for the
+     * ones that failed.
+     */
+    protected final List<JsonObject> getResults(JsonElement response) {
+        JsonArray results = null;
+        if (response.isJsonArray()) {
+            results = response.getAsJsonArray(); // OVP
+        } else if (response.isJsonObject() && response.getAsJsonObject().has("result")) {
+            final JsonElement result = response.getAsJsonObject().get("result"); // Phoenix
+            if (result.isJsonArray()) {
+                results = result.getAsJsonArray();
+            }
+        }
+        if (results == null) {
+            log.w("unexpected multi-request response");
+            return Collections.emptyList();
+        }
+
+        final List<JsonObject> parsed = new ArrayList<>();
+        for (JsonElement result : results) {
+            parsed.add(isError(result) ? null : result.getAsJsonObject());
+        }
+        return parsed;
+    }
+
+    // OVP returns the exception as the result, Phoenix wraps it in an "error" member.
+    private static boolean isError(JsonElement result) {
+        if (result == null || !result.isJsonObject()) {
+            return true;
+        }
+        final JsonObject object = result.getAsJsonObject();
+        JsonObject error = object.has("error") && object.get("error").isJsonObject() ? object.getAsJsonObject("error") : null;
+        if (error == null && "KalturaAPIException".equals(getString(object, "objectType"))) {
+            error = object;
+        }
+        if (error != null) {
+            log.w("multi-request item failed: " + getString(error, "code") + " " + getString(error, "message"));
+            return true;
+        }
+        return false;
+    }
+
+    @Nullable
+    protected static JsonObject resultAt(List<JsonObject> results, int requestNumber) {
+        return requestNumber > 0 && requestNumber <= results.size() ? results.get(requestNumber - 1) : null;
+    }
+
+    @Nullable
+    protected static String getString(JsonObject object, String name) {
+        final JsonElement value = object.get(name);
+        return value != null && value.isJsonPrimitive() ? value.getAsString() : null;
+    }
+
+    protected static long getLong(JsonObject object, String name, long defaultValue) {
+        final JsonElement value = object.get(name);
+        try {
+            return value != null && value.isJsonPrimitive() ? value.getAsLong() : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return true if the playback context carries a block action or messages (access control, missing flavors etc.);
+     * the provider reports those properly, so the entry is left to it.
+     */
+    protected static boolean isPlaybackRestricted(JsonObject playbackContext) {
+        for (JsonObject action : getObjects(playbackContext, "actions")) {
+            if ("1".equals(getString(action, "type")) || "BLOCK".equals(getString(action, "type"))) {
+                return true;
+            }
+        }
+        return !getObjects(playbackContext, "messages").isEmpty();
+    }
+
+    /**
+     * @param sourceIdPrefix - prefixed to each source's own id.
+     * @param manifestKs - added to OVP playManifest URLs; null to leave the URLs as they are.
+     * @return the sources of the playback context the player can play; sources of unknown formats or DRM schemes are
+     * skipped.
+     */
+    protected static List<PKMediaSource> parseSources(JsonObject playbackContext, String sourceIdPrefix, @Nullable String manifestKs) {
+        final List<PKMediaSource> sources = new ArrayList<>();
+        for (JsonObject source : getObjects(playbackContext, "sources")) {
+            final PKMediaFormat format = toMediaFormat(getString(source, "format"));
+            final String url = getString(source, "url");
+            if (format == null || url == null || url.isEmpty()) {
+                continue;
+            }
+
+            final List<JsonObject> drms = getObjects(source, "drm");
+            final List<PKDrmParams> drmData = new ArrayList<>();
+            for (JsonObject drm : drms) {
+                final PKDrmParams.Scheme scheme = toDrmScheme(getString(drm, "scheme"));
+                if (scheme != null) {
+                    drmData.add(new PKDrmParams(getString(drm, "licenseURL"), scheme));
+                }
+            }
+            if (!drms.isEmpty() && drmData.isEmpty()) {
+                continue; // only for DRM schemes other platforms use
+            }
+
+            String id = getString(source, "deliveryProfileId");
+            if (id == null) {
+                id = getString(source, "id");
+            }
+            sources.add(new PKMediaSource()
+                    .setId(sourceIdPrefix + "_" + id)
+                    .setUrl(manifestKs != null ? addManifestKs(url, manifestKs) : url)
+                    .setMediaFormat(format)
+                    .setDrmData(drmData.isEmpty() ? null : drmData));
+        }
+        return sources;
+    }
+
+    @Nullable
+    private static PKMediaFormat toMediaFormat(@Nullable String format) {
+        if (format == null) {
+            return null;
+        }
+        switch (format) {
+            case "mpegdash":
+                return PKMediaFormat.dash;
+            case "applehttp":
+                return PKMediaFormat.hls;
+            case "url":
+                return PKMediaFormat.mp4;
+            default:
+                return null;
+        }
+    }
+
+    // OVP prefixes the scheme with its plugin ("drm.WIDEVINE_CENC"), Phoenix doesn't.
+    @Nullable
+    private static PKDrmParams.Scheme toDrmScheme(@Nullable String scheme) {
+        if (scheme == null) {
+            return null;
+        }
+        switch (scheme.substring(scheme.lastIndexOf('.') + 1)) {
+            case "WIDEVINE_CENC":
+                return PKDrmParams.Scheme.WidevineCENC;
+            case "PLAYREADY_CENC":
+                return PKDrmParams.Scheme.PlayReadyCENC;
+            case "WIDEVINE":
+                return PKDrmParams.Scheme.WidevineClassic;
+            default:
+                return null;
+        }
+    }
+
+    // playManifest takes the KS as a path parameter, before the file name.
+    private static String addManifestKs(String url, String ks) {
+        final int fileStart = url.lastIndexOf("/a.");
+        if (!url.contains("/playManifest/") || url.contains("/ks/") || fileStart < 0) {
+            return url;
+        }
+        return url.substring(0, fileStart) + "/ks/" + ks + url.substring(fileStart);
+    }
+
+    protected static List<JsonObject> getObjects(JsonObject object, String name) {
+        final List<JsonObject> objects = new ArrayList<>();
+        final JsonElement value = object.get(name);
+        if (value != null && value.isJsonArray()) {
+            for (JsonElement item : value.getAsJsonArray()) {
+                if (item.isJsonObject()) {
+                    objects.add(item.getAsJsonObject());
+                }
+            }
+        }
+        return objects;
+    }
+}
@@ -0,0 +1,220 @@
+package com.kaltura.tvplayer;
+
+import android.os.Parcel;
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import com.kaltura.playkit.PKLog;
+import com.kaltura.playkit.PKMediaEntry;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Process-wide LRU cache of the media entries returned by the OVP and OTT providers, so re-opening an entry
+ * within the TTL doesn't go to the network again. Used by players whose init options enable it, see
+ * {@link PlayerInitOptions#setMediaEntryCacheEnabled(Boolean)}.
+ *
+ * Entries are keyed by player type, server, partner, a hash of the KS and the value options of the media asset -
+ * ids, formats, context - so different users or playback contexts never share an entry, and the KS itself is not
+ * kept. The cache is bounded by the Parcel size of its entries. Interceptors and setMedia() change the entry they
+ * are given, so the cache keeps its own copy and hands out a new copy on every hit.
+ */
+public class MediaEntryCache {
+
+    private static final PKLog log = PKLog.get("MediaEntryCache");
+
+    public static final int DEFAULT_MAX_SIZE_BYTES = 1024 * 1024;
+    public static final long DEFAULT_TTL_MS = 5 * 60 * 1000;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static LruCache<String, CachedEntry> entries = newEntries(DEFAULT_MAX_SIZE_BYTES);
+    private static volatile long ttlMs = DEFAULT_TTL_MS;
+    private static int hitCount;
+    private static int missCount;
+    private static int expiredCount;
+
+    /**
+     * Sets the size limit, in bytes of the entries' Parcel form, and the TTL. Changing the size limit drops the
+     * current entries.
+     */
+    public static synchronized void configure(int maxSizeBytes, long ttlMs) {
+        if (maxSizeBytes != entries.maxSize()) {
+            entries = newEntries(maxSizeBytes);
+        }
+        MediaEntryCache.ttlMs = ttlMs;
+    }
+
+    private static LruCache<String, CachedEntry> newEntries(int maxSizeBytes) {
+        return new LruCache<String, CachedEntry>(maxSizeBytes) {
+            @Override
+            protected int sizeOf(String key, CachedEntry value) {
+                return value.sizeBytes;
+            }
+        };
+    }
+
+    /**
+     * Drops the entries of the given entry id, reference id or asset id, whatever the other options were.
+     */
+    public static synchronized void invalidate(String mediaId) {
+        for (Map.Entry<String, CachedEntry> entry : entries.snapshot().entrySet()) {
+            if (mediaId != null && mediaId.equals(entry.getValue().mediaId)) {
+                entries.remove(entry.getKey());
+            }
+        }
+    }
+
+    public static synchronized void invalidateAll() {
+        entries.evictAll();
+    }
+
+    public static synchronized Stats getStats() {
+        return new Stats(hitCount, missCount, expiredCount, entries.snapshot().size(), entries.size());
+    }
+
+    public static synchronized void resetStats() {
+        hitCount = 0;
+        missCount = 0;
+        expiredCount = 0;
+    }
+
+    /**
+     * @return a copy of the cached entry, or null if there is none or it expired.
+     */
+    @Nullable
+    static synchronized PKMediaEntry get(String key) {
+        final CachedEntry cached = entries.get(key);
+        if (cached == null) {
+            missCount++;
+            return null;
+        }
+        if (SystemClock.elapsedRealtime() >= cached.expiresAt) {
+            entries.remove(key);
+            expiredCount++;
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return copy(cached.mediaEntry);
+    }
+
+    static void put(String key, String mediaId, PKMediaEntry mediaEntry) {
+        // Copy and measure in one go.
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(mediaEntry, 0);
+            final int sizeBytes = parcel.dataSize();
+            parcel.setDataPosition(0);
+            final PKMediaEntry copy = parcel.readParcelable(PKMediaEntry.class.getClassLoader());
+            synchronized (MediaEntryCache.class) {
+                entries.put(key, new CachedEntry(copy, mediaId, sizeBytes, SystemClock.elapsedRealtime() + ttlMs));
+            }
+        } catch (RuntimeException e) {
+            log.e("Can't cache media entry " + mediaEntry.getId(), e);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * @param values the value options of the media asset: strings, enums, numbers, Lists and Maps of them.
+     * @return the cache key of the given options; the KS is part of it as a hash only.
+     */
+    static String keyOf(KalturaPlayer.Type type, String serverUrl, int partnerId, @Nullable String ks, Object... values) {
+        final StringBuilder key = new StringBuilder(type.name());
+        appendValue(key, serverUrl);
+        appendValue(key, partnerId);
+        appendValue(key, ks != null ? sha256(ks) : null);
+        for (Object value : values) {
+            // Maps in key order, so equal options make equal keys whatever Map they came in.
+            appendValue(key, value instanceof Map ? new TreeMap<>((Map<?, ?>) value) : value);
+        }
+        return key.toString();
+    }
+
+    // Length-prefixed, so a separator inside a value can't make two different option sets meet.
+    private static void appendValue(StringBuilder key, Object value) {
+        final String string = String.valueOf(value);
+        key.append('|').append(value != null ? string.length() : -1).append(':').append(string);
+    }
+
+    private static String sha256(String string) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(string.getBytes(UTF_8));
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android version has SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // A deep copy, through the entry's Parcelable implementation; null if it can't be copied (and so isn't cached).
+    @Nullable
+    static PKMediaEntry copy(PKMediaEntry mediaEntry) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(mediaEntry, 0);
+            parcel.setDataPosition(0);
+            return parcel.readParcelable(PKMediaEntry.class.getClassLoader());
+        } catch (RuntimeException e) {
+            log.e("Can't copy media entry " + mediaEntry.getId(), e);
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static class CachedEntry {
+        final PKMediaEntry mediaEntry;
+        final String mediaId;
+        final int sizeBytes;
+        final long expiresAt;
+
+        CachedEntry(PKMediaEntry mediaEntry, String mediaId, int sizeBytes, long expiresAt) {
+            this.mediaEntry = mediaEntry;
+            this.mediaId = mediaId;
+            this.sizeBytes = sizeBytes;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static class Stats {
+        public final int hitCount;
+        public final int missCount;
+        /** Misses that found an entry past its TTL. */
+        public final int expiredCount;
+        public final int size;
+        /** Parcel size of the cached entries. */
+        public final int sizeBytes;
+
+        Stats(int hitCount, int missCount, int expiredCount, int size, int sizeBytes) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.expiredCount = expiredCount;
+            this.size = size;
+            this.sizeBytes = sizeBytes;
+        }
+
+        public double getHitRate() {
+            final int total = hitCount + missCount;
+            return total > 0 ? (double) hitCount / total : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "MediaEntryCache.Stats{hitRate=" + getHitRate() + ", hits=" + hitCount + ", misses=" + missCount +
+                    ", expired=" + expiredCount + ", size=" + size + ", sizeBytes=" + sizeBytes + "}";
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.kaltura.tvplayer;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import com.kaltura.netkit.utils.ErrorElement;
+import com.kaltura.playkit.PKLog;
+import com.kaltura.playkit.PKMediaEntry;
+import com.kaltura.tvplayer.utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Applies the loaded {@link PKMediaEntryInterceptor}s to a media entry, in order. Consecutive
+ * {@link PKMediaEntryInterceptor.Concurrent} interceptors are applied together and the next step waits for all of
+ * them. An interceptor that throws, or misses its deadline if one is set, is handled by the
+ * {@link PKMediaEntryInterceptor.FailurePolicy}. Latency, timeouts and failures are kept per interceptor class.
+ *
+ * Without a deadline the interceptors change the given entry, as they always did. With one, a late interceptor may
+ * still change whatever entry it was given, so each step works on a copy of the entry so far and the copy is kept
+ * only if every interceptor of the step completed in time; a step skipped for a timeout is dropped as a whole. An
+ * entry that can't be copied is applied in place, and a timeout then fails the run whatever the policy.
+ */
+public class MediaEntryInterceptorPipeline {
+
+    private static final PKLog log = PKLog.get("MediaEntryInterceptorPipeline");
+
+    /** No deadline: each interceptor is waited for as long as it takes. */
+    public static final long DEFAULT_TIMEOUT_MS = 0;
+
+    interface Callback {
+        /**
+         * @param mediaEntry the intercepted entry: the one given to apply(), or its intercepted copy if a deadline was set.
+         * @param error null unless an interceptor failed with the abort policy, or timed out on an entry that couldn't
+         *              be copied.
+         */
+        void onComplete(PKMediaEntry mediaEntry, @Nullable ErrorElement error);
+    }
+
+    private final Handler handler;
+    private final ConcurrentMap<String, Metrics> metrics = new ConcurrentHashMap<>();
+
+    MediaEntryInterceptorPipeline(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * @param timeoutMs deadline of each interceptor; 0 or less waits as long as it takes and applies the interceptors
+     *                  to the given entry itself.
+     * @return cancels the run: no further interceptor is applied and the callback isn't called.
+     */
+    Runnable apply(List<PKMediaEntryInterceptor> interceptors, PKMediaEntry mediaEntry, long timeoutMs,
+                   PKMediaEntryInterceptor.FailurePolicy failurePolicy, Callback callback) {
+        final Run run = new Run(new ArrayList<>(interceptors), mediaEntry, timeoutMs, failurePolicy, callback);
+        run.applyNextStep();
+        return run::cancel;
+    }
+
+    public Map<String, Stats> getStats() {
+        final Map<String, Stats> stats = new HashMap<>();
+        for (Map.Entry<String, Metrics> entry : metrics.entrySet()) {
+            final Metrics interceptorMetrics = entry.getValue();
+            stats.put(entry.getKey(), new Stats(entry.getKey(), interceptorMetrics.latency.snapshot(),
+                    interceptorMetrics.timeoutCount.get(), interceptorMetrics.failureCount.get()));
+        }
+        return stats;
+    }
+
+    private Metrics metricsFor(String interceptorName) {
+        Metrics interceptorMetrics = metrics.get(interceptorName);
+        if (interceptorMetrics == null) {
+            metrics.putIfAbsent(interceptorName, new Metrics());
+            interceptorMetrics = metrics.get(interceptorName);
+        }
+        return interceptorMetrics;
+    }
+
+    private class Run {
+        private final List<PKMediaEntryInterceptor> interceptors;
+        private final long timeoutMs;
+        private final PKMediaEntryInterceptor.FailurePolicy failurePolicy;
+        private final Callback callback;
+
+        // Guarded by this.
+        private int nextIndex;
+        private int pendingCount;
+        private boolean finished;
+        private final List<Runnable> pendingDeadlines = new ArrayList<>();
+        // The entry as the completed steps left it, and the one the current step works on.
+        private PKMediaEntry mediaEntry;
+        private PKMediaEntry stepEntry;
+        private boolean stepDropped;
+
+        Run(List<PKMediaEntryInterceptor> interceptors, PKMediaEntry mediaEntry, long timeoutMs,
+            PKMediaEntryInterceptor.FailurePolicy failurePolicy, Callback callback) {
+            this.interceptors = interceptors;
+            this.mediaEntry = mediaEntry;
+            this.timeoutMs = timeoutMs;
+            this.failurePolicy = failurePolicy;
+            this.callback = callback;
+        }
+
+        private void applyNextStep() {
+            final List<PKMediaEntryInterceptor> step = new ArrayList<>();
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                if (nextIndex < interceptors.size()) {
+                    // A step is one interceptor, or a run of consecutive Concurrent ones.
+                    do {
+                        step.add(interceptors.get(nextIndex++));
+                    } while (step.get(0) instanceof PKMediaEntryInterceptor.Concurrent
+                            && nextIndex < interceptors.size()
+                            && interceptors.get(nextIndex) instanceof PKMediaEntryInterceptor.Concurrent);
+                    pendingCount = step.size();
+                    stepEntry = mediaEntry;
+                    stepDropped = false;
+                }
+            }
+
+            if (step.isEmpty()) {
+                finish(null);
+                return;
+            }
+            PKMediaEntry entry = mediaEntry;
+            if (timeoutMs > 0) {
+                final PKMediaEntry copy = MediaEntryCache.copy(entry);
+                if (copy != null) {
+                    entry = copy;
+                }
+                synchronized (this) {
+                    stepEntry = entry;
+                }
+            }
+            for (PKMediaEntryInterceptor interceptor : step) {
+                applyInterceptor(interceptor, entry);
+            }
+        }
+
+        private void applyInterceptor(PKMediaEntryInterceptor interceptor, PKMediaEntry entry) {
+            final String name = interceptor.getClass().getName();
+            final long startTime = SystemClock.elapsedRealtime();
+            final AtomicBoolean done = new AtomicBoolean();
+
+            final Runnable deadline = () -> {
+                if (done.compareAndSet(false, true)) {
+                    metricsFor(name).timeoutCount.incrementAndGet();
+                    interceptorTimedOut(name, entry);
+                }
+            };
+            if (timeoutMs > 0) {
+                synchronized (this) {
+                    pendingDeadlines.add(deadline);
+                }
+                handler.postDelayed(deadline, timeoutMs);
+            }
+
+            try {
+                interceptor.apply(entry, () -> {
+                    if (!done.compareAndSet(false, true)) {
+                        log.w("Interceptor " + name + " completed after its deadline or more than once; ignored");
+                        return;
+                    }
+                    removeDeadline(deadline);
+                    metricsFor(name).latency.record(SystemClock.elapsedRealtime() - startTime);
+                    interceptorDone();
+                });
+            } catch (RuntimeException e) {
+                if (done.compareAndSet(false, true)) {
+                    removeDeadline(deadline);
+                    metricsFor(name).failureCount.incrementAndGet();
+                    log.e("Interceptor " + name + " failed", e);
+                    interceptorFailed(name, "failed: " + e.getMessage(), entry);
+                }
+            }
+        }
+
+        private void removeDeadline(Runnable deadline) {
+            synchronized (this) {
+                pendingDeadlines.remove(deadline);
+            }
+            handler.removeCallbacks(deadline);
+        }
+
+        private void cancel() {
+            final List<Runnable> deadlines;
+            synchronized (this) {
+                finished = true;
+                deadlines = new ArrayList<>(pendingDeadlines);
+                pendingDeadlines.clear();
+            }
+            for (Runnable deadline : deadlines) {
+                handler.removeCallbacks(deadline);
+            }
+        }
+
+        private void interceptorTimedOut(String name, PKMediaEntry entry) {
+            final String reason = "didn't complete within " + timeoutMs + "ms";
+            if (!isCopy(entry)) {
+                // Applied in place: the late interceptor may still change the entry, so it can't be played.
+                log.e("Interceptor " + name + " " + reason + " on an entry that couldn't be copied; aborting");
+                finish(ErrorElement.LoadError.message("Media entry interceptor " + name + " " + reason));
+                return;
+            }
+            interceptorFailed(name, reason, entry);
+        }
+
+        private void interceptorFailed(String name, String reason, PKMediaEntry entry) {
+            if (failurePolicy == PKMediaEntryInterceptor.FailurePolicy.abort) {
+                log.e("Interceptor " + name + " " + reason + "; aborting");
+                finish(ErrorElement.LoadError.message("Media entry interceptor " + name + " " + reason));
+            } else {
+                log.w("Interceptor " + name + " " + reason + "; skipping it");
+                if (isCopy(entry)) {
+                    synchronized (this) {
+                        stepDropped = true;
+                    }
+                }
+                interceptorDone();
+            }
+        }
+
+        private synchronized boolean isCopy(PKMediaEntry entry) {
+            return entry != mediaEntry;
+        }
+
+        private void interceptorDone() {
+            synchronized (this) {
+                if (finished || --pendingCount > 0) {
+                    return;
+                }
+                if (stepDropped) {
+                    log.w("Dropping the changes of a step with a failed interceptor");
+                } else {
+                    mediaEntry = stepEntry;
+                }
+            }
+            applyNextStep();
+        }
+
+        private void finish(ErrorElement error) {
+            final PKMediaEntry result;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                result = mediaEntry;
+            }
+            callback.onComplete(result, error);
+        }
+    }
+
+    private static class Metrics {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicInteger timeoutCount = new AtomicInteger();
+        final AtomicInteger failureCount = new AtomicInteger();
+    }
+
+    public static class Stats {
+        public final String interceptorName;
+        /** Time to completion of the applications that completed in time. */
+        public final LatencyHistogram.Snapshot latency;
+        public final int timeoutCount;
+        public final int failureCount;
+
+        Stats(String interceptorName, LatencyHistogram.Snapshot latency, int timeoutCount, int failureCount) {
+            this.interceptorName = interceptorName;
+            this.latency = latency;
+            this.timeoutCount = timeoutCount;
+            this.failureCount = failureCount;
+        }
+
+        @Override
+        public String toString() {
+            return "MediaEntryInterceptorPipeline.Stats{" + interceptorName + ", timeouts=" + timeoutCount +
+                    ", failures=" + failureCount + ", latency: " + latency + "}";
+        }
+    }
+}
@@ -14,5 +14,21 @@ public abstract class MediaOptions {
     public @Nullable CountDownOptions playlistCountDownOptions;
 
     public abstract MediaEntryProvider buildMediaProvider(String serverUrl, int partnerId);
+
+    /**
+     * @return the {@link MediaEntryCache} key of the entry these options load, or null if it must not be cached.
+     */
+    @Nullable
+    String getCacheKey(KalturaPlayer.Type type, String serverUrl, int partnerId) {
+        return null;
+    }
+
+    /**
+     * @return the id the entry can be invalidated by in {@link MediaEntryCache}.
+     */
+    @Nullable
+    String getMediaId() {
+        return null;
+    }
 }
 
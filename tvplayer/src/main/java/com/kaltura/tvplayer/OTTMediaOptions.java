@@ -20,4 +20,21 @@ public class OTTMediaOptions extends MediaOptions {
     public MediaEntryProvider buildMediaProvider(String serverUrl, int partnerId) {
         return new PhoenixMediaProvider(serverUrl, partnerId, ottMediaAsset);
     }
+
+    @Override
+    String getCacheKey(KalturaPlayer.Type type, String serverUrl, int partnerId) {
+        if (ottMediaAsset == null) {
+            return null;
+        }
+        return MediaEntryCache.keyOf(type, serverUrl, partnerId, ottMediaAsset.getKs(), ottMediaAsset.getAssetId(),
+                ottMediaAsset.getAssetType(), ottMediaAsset.getContextType(), ottMediaAsset.getAssetReferenceType(),
+                ottMediaAsset.getProtocol(), ottMediaAsset.getFormats(), ottMediaAsset.getMediaFileIds(),
+                ottMediaAsset.getUrlType(), ottMediaAsset.getStreamerType(), ottMediaAsset.getAdapterData(),
+                ottMediaAsset.getReferrer());
+    }
+
+    @Override
+    String getMediaId() {
+        return ottMediaAsset != null ? ottMediaAsset.getAssetId() : null;
+    }
 }
@@ -54,6 +54,23 @@ public class OVPMediaOptions extends MediaOptions {
         return new KalturaOvpMediaProvider(serverUrl, partnerId, ovpMediaAsset.getKs())
                 .setEntryId(ovpMediaAsset.getEntryId()).setReferenceId(ovpMediaAsset.getReferenceId()).setUseApiCaptions(this.useApiCaptions).setReferrer(ovpMediaAsset.getReferrer());
     }
+
+    @Override
+    String getCacheKey(KalturaPlayer.Type type, String serverUrl, int partnerId) {
+        if (ovpMediaAsset == null) {
+            return null;
+        }
+        return MediaEntryCache.keyOf(type, serverUrl, partnerId, ovpMediaAsset.getKs(), ovpMediaAsset.getEntryId(),
+                ovpMediaAsset.getReferenceId(), ovpMediaAsset.getReferrer(), useApiCaptions);
+    }
+
+    @Override
+    String getMediaId() {
+        if (ovpMediaAsset == null) {
+            return null;
+        }
+        return ovpMediaAsset.getEntryId() != null ? ovpMediaAsset.getEntryId() : ovpMediaAsset.getReferenceId();
+    }
 }
 
 
@@ -0,0 +1,193 @@
+package com.kaltura.tvplayer;
+
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.kaltura.playkit.PKMediaEntry;
+import com.kaltura.playkit.PKMediaSource;
+import com.kaltura.playkit.providers.api.ovp.OvpConfigs;
+import com.kaltura.playkit.providers.ovp.OVPMediaAsset;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * OVP entries by entry id: one baseEntry.list per KS for the entries, and a baseEntry.getPlaybackContext per entry
+ * for its sources. Entries without a KS share one widget session. Options by reference id or with API captions are
+ * left to {@link com.kaltura.playkit.providers.ovp.KalturaOvpMediaProvider}.
+ */
+class OvpMediaEntryBatch extends MediaEntryBatch {
+
+    private static final String API_VERSION = "3.3.0";
+    private static final String WIDGET_SESSION_KS = "{1:result:ks}";
+    private static final int LIVE_STREAM_TYPE = 7;
+    private static final int DVR_ENABLED = 1;
+
+    private final List<Item> items = new ArrayList<>();
+    private int widgetSessionRequest;
+
+    @Nullable
+    @Override
+    protected String addItem(MediaOptions mediaOptions) {
+        if (!(mediaOptions instanceof OVPMediaOptions) || ((OVPMediaOptions) mediaOptions).isUseApiCaptions()) {
+            return null;
+        }
+        final OVPMediaAsset mediaAsset = ((OVPMediaOptions) mediaOptions).getOvpMediaAsset();
+        if (mediaAsset == null || TextUtils.isEmpty(mediaAsset.getEntryId())) {
+            return null;
+        }
+        final Item item = new Item(String.valueOf(items.size()), mediaAsset);
+        items.add(item);
+        return item.id;
+    }
+
+    @Override
+    String getUrl(String serverUrl) {
+        return serverUrl + OvpConfigs.ApiPrefix + "service/multirequest";
+    }
+
+    @Override
+    JsonObject buildRequest(int partnerId) {
+        for (Item item : items) {
+            if (TextUtils.isEmpty(item.ks)) {
+                final JsonObject widgetSession = new JsonObject();
+                widgetSession.addProperty("service", "session");
+                widgetSession.addProperty("action", "startWidgetSession");
+                widgetSession.addProperty("widgetId", "_" + partnerId);
+                widgetSessionRequest = addRequest(widgetSession);
+                break;
+            }
+        }
+
+        final Map<String, Set<String>> entryIdsByKs = new LinkedHashMap<>();
+        for (Item item : items) {
+            Set<String> entryIds = entryIdsByKs.get(item.getRequestKs());
+            if (entryIds == null) {
+                entryIds = new LinkedHashSet<>();
+                entryIdsByKs.put(item.getRequestKs(), entryIds);
+            }
+            entryIds.add(item.entryId);
+        }
+        final Map<String, Integer> listRequests = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entryIds : entryIdsByKs.entrySet()) {
+            final JsonObject filter = new JsonObject();
+            filter.addProperty("objectType", "KalturaBaseEntryFilter");
+            filter.addProperty("idIn", TextUtils.join(",", entryIds.getValue()));
+
+            final JsonObject list = new JsonObject();
+            list.addProperty("service", "baseEntry");
+            list.addProperty("action", "list");
+            list.addProperty("ks", entryIds.getKey());
+            list.add("filter", filter);
+            listRequests.put(entryIds.getKey(), addRequest(list));
+        }
+
+        for (Item item : items) {
+            item.listRequest = listRequests.get(item.getRequestKs());
+
+            final JsonObject contextDataParams = new JsonObject();
+            contextDataParams.addProperty("objectType", "KalturaContextDataParams");
+            contextDataParams.addProperty("flavorTags", "all");
+            if (item.referrer != null) {
+                contextDataParams.addProperty("referrer", item.referrer);
+            }
+
+            final JsonObject playbackContext = new JsonObject();
+            playbackContext.addProperty("service", "baseEntry");
+            playbackContext.addProperty("action", "getPlaybackContext");
+            playbackContext.addProperty("ks", item.getRequestKs());
+            playbackContext.addProperty("entryId", item.entryId);
+            playbackContext.add("contextDataParams", contextDataParams);
+            item.playbackContextRequest = addRequest(playbackContext);
+        }
+        return buildMultiRequest(API_VERSION);
+    }
+
+    @Override
+    Map<String, PKMediaEntry> parseResponse(JsonElement response, String serverUrl, int partnerId) {
+        final List<JsonObject> results = getResults(response);
+        final JsonObject widgetSession = resultAt(results, widgetSessionRequest);
+        final String widgetKs = (widgetSession != null) ? getString(widgetSession, "ks") : null;
+
+        final Map<String, PKMediaEntry> entries = new HashMap<>();
+        for (Item item : items) {
+            final String ks = TextUtils.isEmpty(item.ks) ? widgetKs : item.ks;
+            final JsonObject list = resultAt(results, item.listRequest);
+            final JsonObject playbackContext = resultAt(results, item.playbackContextRequest);
+            if (ks == null || list == null || playbackContext == null || isPlaybackRestricted(playbackContext)) {
+                continue;
+            }
+            JsonObject baseEntry = null;
+            for (JsonObject object : getObjects(list, "objects")) {
+                if (item.entryId.equals(getString(object, "id"))) {
+                    baseEntry = object;
+                    break;
+                }
+            }
+            if (baseEntry == null) {
+                continue;
+            }
+            final List<PKMediaSource> sources = parseSources(playbackContext, item.entryId, ks);
+            if (!sources.isEmpty()) {
+                entries.put(item.id, toMediaEntry(baseEntry, sources));
+            }
+        }
+        return entries;
+    }
+
+    private static PKMediaEntry toMediaEntry(JsonObject baseEntry, List<PKMediaSource> sources) {
+        PKMediaEntry.MediaEntryType mediaType = PKMediaEntry.MediaEntryType.Vod;
+        if (getLong(baseEntry, "type", 0) == LIVE_STREAM_TYPE) {
+            mediaType = (getLong(baseEntry, "dvrStatus", 0) == DVR_ENABLED) ? PKMediaEntry.MediaEntryType.DvrLive : PKMediaEntry.MediaEntryType.Live;
+        }
+        long duration = getLong(baseEntry, "msDuration", -1);
+        if (duration < 0) {
+            duration = getLong(baseEntry, "duration", 0) * 1000;
+        }
+
+        final Map<String, String> metadata = new HashMap<>();
+        for (String name : new String[] {"name", "description", "thumbnailUrl", "referenceId", "tags"}) {
+            final String value = getString(baseEntry, name);
+            if (value != null) {
+                metadata.put(name, value);
+            }
+        }
+        metadata.put("entryId", getString(baseEntry, "id"));
+
+        return new PKMediaEntry()
+                .setId(getString(baseEntry, "id"))
+                .setName(getString(baseEntry, "name"))
+                .setDuration(duration)
+                .setMediaType(mediaType)
+                .setSources(sources)
+                .setMetadata(metadata);
+    }
+
+    private static class Item {
+        final String id;
+        final String entryId;
+        final String ks;
+        final String referrer;
+        int listRequest;
+        int playbackContextRequest;
+
+        Item(String id, OVPMediaAsset mediaAsset) {
+            this.id = id;
+            this.entryId = mediaAsset.getEntryId();
+            this.ks = mediaAsset.getKs();
+            this.referrer = mediaAsset.getReferrer();
+        }
+
+        String getRequestKs() {
+            return TextUtils.isEmpty(ks) ? WIDGET_SESSION_KS : ks;
+        }
+    }
+}
@@ -8,4 +8,21 @@ public interface PKMediaEntryInterceptor {
     interface Listener {
         void onComplete();
     }
+
+    /**
+     * Marks an interceptor that doesn't depend on the ones before it and touches no part of the entry that other
+     * Concurrent interceptors do. Consecutive Concurrent interceptors are applied at the same time.
+     */
+    interface Concurrent {
+    }
+
+    /**
+     * What to do when an interceptor misses its deadline or throws.
+     */
+    enum FailurePolicy {
+        /** Go on with the next interceptor and play the entry as it is. */
+        skip,
+        /** Stop and fail the media load. */
+        abort
+    }
 }
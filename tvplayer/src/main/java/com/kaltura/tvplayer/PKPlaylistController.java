@@ -23,12 +23,20 @@ import com.kaltura.tvplayer.playlist.PKBasicPlaylist;
 import com.kaltura.tvplayer.playlist.PKPlaylistType;
 import com.kaltura.tvplayer.playlist.PlaylistController;
 import com.kaltura.tvplayer.playlist.PlaylistEvent;
+import com.kaltura.tvplayer.playlist.PlaylistMediaFootprint;
 import com.kaltura.tvplayer.playlist.PlaylistOptions;
+import com.kaltura.tvplayer.playlist.PlaylistPreloadPolicy;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class PKPlaylistController implements PlaylistController {
 
@@ -44,9 +52,14 @@ public class PKPlaylistController implements PlaylistController {
     private boolean playlistAutoContinue = true;
     private boolean loopEnabled;
     private boolean recoverOnError;
+    private boolean windowPreloaded; // for the current item
 
     private List<PKPlaylistMedia> origlPlaylistEntries;
-    private Map<String, PKMediaEntry> loadedMediasMap; // map of the media id and it's PKMediaEntry (ovp/ott in entryId format basic any string that ws given by user as id)
+    private PlaylistMediaCache loadedMediasMap; // map of the media id and it's PKMediaEntry (ovp/ott in entryId format basic any string that ws given by user as id)
+
+    private final Deque<Integer> pendingPrefetches = new ArrayDeque<>();
+    private final Map<Integer, LoadRequest> activePrefetches = new HashMap<>(); // by media index, the items of a batch share one request
+    private int awaitedPrefetchIndex = -1; // the current item when it is played by its running prefetch
 
     private enum CacheMediaType {
         Prev, Current, Next
@@ -59,7 +72,8 @@ public class PKPlaylistController implements PlaylistController {
         this.playlistType = playlistType;
 
         origlPlaylistEntries = new ArrayList<>();
-        loadedMediasMap = new HashMap<>();
+        loadedMediasMap = new PlaylistMediaCache(kalturaPlayer.getContext());
+        loadedMediasMap.setEvictionListener(this::onLoadedMediaEvicted);
     }
 
     @Override
@@ -137,6 +151,224 @@ public class PKPlaylistController implements PlaylistController {
         }
     }
 
+    /**
+     * Prefetch a range of items - will resolve the medias that were not loaded yet, several per API multi-request where
+     * their options allow it, so playing them is served from memory. Does not affect the current playback, not relevant for basic player.
+     *
+     * @param fromIndex - first media index in playlist.
+     * @param count - number of medias from fromIndex.
+     */
+    public void prefetch(int fromIndex, int count) {
+        if (kalturaPlayer.getTvPlayerType() == KalturaPlayer.Type.basic || playlist == null || playlist.getMediaList() == null) {
+            return;
+        }
+
+        int toIndex = Math.min(fromIndex + count, playlist.getMediaListSize());
+        for (int index = Math.max(fromIndex, 0); index < toIndex; index++) {
+            enqueuePrefetch(index);
+        }
+        startPrefetches();
+    }
+
+    private void enqueuePrefetch(int index) {
+        if (needsPrefetch(index) && !pendingPrefetches.contains(index)) {
+            pendingPrefetches.add(index);
+        }
+    }
+
+    private boolean needsPrefetch(int index) {
+        if (playlist.getMediaList().get(index) == null || activePrefetches.containsKey(index)) {
+            return false;
+        }
+        // an id mapped to null failed to play, leave it to the recoverOnError handling
+        String mediaId = getCacheMediaId(index);
+        return !TextUtils.isEmpty(mediaId) && !loadedMediasMap.containsKey(mediaId);
+    }
+
+    // resolves the pending items in the order they were requested, with at most maxConcurrentRequests of the preload
+    // policy running at a time. The items a multi-request can express go in batches of up to MediaEntryBatch.MAX_ITEMS,
+    // the others are resolved by their provider one by one.
+    private void startPrefetches() {
+        PlaylistPreloadPolicy preloadPolicy = getPreloadPolicy();
+        int maxConcurrentRequests = (preloadPolicy != null) ? preloadPolicy.getMaxConcurrentRequests() : PlaylistPreloadPolicy.DEFAULT_MAX_CONCURRENT_REQUESTS;
+        while (new HashSet<>(activePrefetches.values()).size() < maxConcurrentRequests && !pendingPrefetches.isEmpty()) {
+            MediaEntryBatch batch = MediaEntryBatch.create(kalturaPlayer.getTvPlayerType());
+            Map<Integer, String> batchIds = new LinkedHashMap<>(); // by media index
+            while (!pendingPrefetches.isEmpty() && (batch == null || batch.size() < MediaEntryBatch.MAX_ITEMS)) {
+                int index = pendingPrefetches.poll();
+                if (!needsPrefetch(index)) {
+                    continue;
+                }
+                MediaOptions mediaOptions = (kalturaPlayer.getTvPlayerType() == KalturaPlayer.Type.ovp) ? buildOVPMediaOptions(index) : buildOTTMediaOptions(index);
+                if (mediaOptions == null) {
+                    continue;
+                }
+                String batchId = (batch != null) ? batch.add(mediaOptions) : null;
+                if (batchId != null) {
+                    batchIds.put(index, batchId);
+                } else if (batchIds.isEmpty()) {
+                    startPrefetch(index, mediaOptions);
+                    break;
+                } else {
+                    // send the batch first, the item takes the next free request
+                    pendingPrefetches.addFirst(index);
+                    break;
+                }
+            }
+            if (!batchIds.isEmpty()) {
+                startBatchPrefetch(batch, batchIds);
+            }
+        }
+    }
+
+    private void startPrefetch(int index, MediaOptions mediaOptions) {
+        String mediaId = getCacheMediaId(index);
+        log.d("prefetch index = " + index + " mediaId = " + mediaId);
+        LoadRequest request = kalturaPlayer.resolveMediaEntry(mediaOptions, (entry, loadError) -> {
+            activePrefetches.remove(index);
+            if (loadError != null) {
+                // not cached, playItem() will load it again and report the error if there is one
+                log.w("prefetch of index " + index + " failed: " + loadError.getMessage());
+            } else if (!loadedMediasMap.containsKey(mediaId)) {
+                loadedMediasMap.putResolved(mediaId, index, entry);
+            }
+            if (index == awaitedPrefetchIndex) {
+                awaitedPrefetchIndex = -1;
+                playLoadedOrLoadItem(index, mediaId);
+            }
+            startPrefetches();
+        });
+        if (!request.isCompleted()) {
+            activePrefetches.put(index, request);
+        }
+    }
+
+    private void startBatchPrefetch(MediaEntryBatch batch, Map<Integer, String> batchIds) {
+        Map<Integer, String> mediaIds = new HashMap<>(); // by media index
+        for (int index : batchIds.keySet()) {
+            mediaIds.put(index, getCacheMediaId(index));
+        }
+        log.d("prefetch indexes = " + batchIds.keySet() + " in one request");
+        LoadRequest request = kalturaPlayer.resolveMediaEntries(batch, (entries, loadError) -> {
+            for (Map.Entry<Integer, String> item : batchIds.entrySet()) {
+                int index = item.getKey();
+                String mediaId = mediaIds.get(index);
+                PKMediaEntry entry = entries.get(item.getValue());
+                activePrefetches.remove(index);
+                if (entry == null) {
+                    // not cached, playItem() will load it with its provider, which reports the error if there is one
+                    log.w("prefetch of index " + index + " failed" + ((loadError != null) ? ": " + loadError.getMessage() : ""));
+                } else if (!loadedMediasMap.containsKey(mediaId)) {
+                    loadedMediasMap.putResolved(mediaId, index, entry);
+                }
+            }
+            if (batchIds.containsKey(awaitedPrefetchIndex)) {
+                int index = awaitedPrefetchIndex;
+                awaitedPrefetchIndex = -1;
+                playLoadedOrLoadItem(index, mediaIds.get(index));
+            }
+            startPrefetches();
+        });
+        if (!request.isCompleted()) {
+            for (int index : batchIds.keySet()) {
+                activePrefetches.put(index, request);
+            }
+        }
+    }
+
+    @Nullable
+    private PlaylistPreloadPolicy getPreloadPolicy() {
+        return (playlistOptions != null) ? playlistOptions.preloadPolicy : null;
+    }
+
+    // the indexes the preload policy keeps resolved around the current item, nearest first and forward before backward
+    private List<Integer> getPreloadWindow(PlaylistPreloadPolicy preloadPolicy) {
+        List<Integer> window = new ArrayList<>();
+        for (int i = 1; i <= preloadPolicy.getForwardCount(); i++) {
+            addToPreloadWindow(window, currentPlayingIndex + i);
+        }
+        for (int i = 1; i <= preloadPolicy.getBackwardCount(); i++) {
+            addToPreloadWindow(window, currentPlayingIndex - i);
+        }
+        return window;
+    }
+
+    private void addToPreloadWindow(List<Integer> window, int index) {
+        int playlistSize = playlist.getMediaListSize();
+        if (loopEnabled && playlistSize > 0) {
+            index = ((index % playlistSize) + playlistSize) % playlistSize;
+        }
+        if (index >= 0 && index < playlistSize && index != currentPlayingIndex && !window.contains(index)) {
+            window.add(index);
+        }
+    }
+
+    // resolves the window of the current item, once per item
+    private void preloadWindow() {
+        PlaylistPreloadPolicy preloadPolicy = getPreloadPolicy();
+        if (preloadPolicy == null || windowPreloaded || kalturaPlayer.getTvPlayerType() == KalturaPlayer.Type.basic ||
+                playlist == null || playlist.getMediaList() == null) {
+            return;
+        }
+        windowPreloaded = true;
+        for (int index : getPreloadWindow(preloadPolicy)) {
+            enqueuePrefetch(index);
+        }
+        startPrefetches();
+    }
+
+    // the current item and its window are kept in the loaded medias over the size limit, so resolving the window does
+    // not evict its own items
+    private void pinPreloadWindow() {
+        PlaylistPreloadPolicy preloadPolicy = getPreloadPolicy();
+        List<Integer> pinnedIndexes = (preloadPolicy != null) ? getPreloadWindow(preloadPolicy) : new ArrayList<>();
+        pinnedIndexes.add(currentPlayingIndex);
+        loadedMediasMap.setPinnedIndexes(pinnedIndexes);
+    }
+
+    // an item of the current window was dropped for low memory: the window is resolved again at the next preload trigger
+    private void onLoadedMediaEvicted(int index, boolean lowMemory) {
+        PlaylistPreloadPolicy preloadPolicy = getPreloadPolicy();
+        if (lowMemory && preloadPolicy != null && windowPreloaded && getPreloadWindow(preloadPolicy).contains(index)) {
+            windowPreloaded = false;
+        }
+    }
+
+    // the user moved to another item: drop the preloads that are not in its window, except the one of the item itself.
+    // A batch is kept while any of its items is still wanted.
+    private void retainPrefetchesInWindow() {
+        PlaylistPreloadPolicy preloadPolicy = getPreloadPolicy();
+        if (preloadPolicy == null) {
+            return;
+        }
+        List<Integer> window = getPreloadWindow(preloadPolicy);
+        pendingPrefetches.retainAll(window);
+        Set<LoadRequest> wantedRequests = new HashSet<>();
+        for (Map.Entry<Integer, LoadRequest> prefetch : activePrefetches.entrySet()) {
+            if (window.contains(prefetch.getKey()) || prefetch.getKey() == currentPlayingIndex) {
+                wantedRequests.add(prefetch.getValue());
+            }
+        }
+        Iterator<Map.Entry<Integer, LoadRequest>> activeIterator = activePrefetches.entrySet().iterator();
+        while (activeIterator.hasNext()) {
+            Map.Entry<Integer, LoadRequest> prefetch = activeIterator.next();
+            if (!wantedRequests.contains(prefetch.getValue())) {
+                log.d("cancel prefetch index = " + prefetch.getKey());
+                prefetch.getValue().cancel();
+                activeIterator.remove();
+            }
+        }
+    }
+
+    private void cancelPrefetches() {
+        awaitedPrefetchIndex = -1;
+        pendingPrefetches.clear();
+        for (LoadRequest request : activePrefetches.values()) {
+            request.cancel();
+        }
+        activePrefetches.clear();
+    }
+
     /**
      *  playback will start automatically
      */
@@ -164,17 +396,39 @@ public class PKPlaylistController implements PlaylistController {
 
         boolean isValidIndex = isValidPlaylistIndex(index);
         currentPlayingIndex = index;
+        loadedMediasMap.setCurrentIndex(index);
+        windowPreloaded = false;
+        awaitedPrefetchIndex = -1;
         if (!isValidIndex) {
             return;
         }
+        pinPreloadWindow();
+        retainPrefetchesInWindow();
         String mediaId = getCacheMediaId(CacheMediaType.Current);
 
-        if (loadedMediasMap.containsKey(mediaId) && loadedMediasMap.get(mediaId) != null) {
-            kalturaPlayer.setMedia(loadedMediasMap.get(mediaId));
-            return;
+        if (loadedMediasMap.get(mediaId) == null && activePrefetches.containsKey(index)) {
+            // the item is being prefetched, play it when that completes instead of requesting it again
+            log.d("playItem index = " + index + " waits for its prefetch");
+            kalturaPlayer.cancelCurrentLoad();
+            awaitedPrefetchIndex = index;
+        } else {
+            playLoadedOrLoadItem(index, mediaId);
         }
 
-        if (kalturaPlayer.getTvPlayerType() == KalturaPlayer.Type.ovp) {
+        PlaylistPreloadPolicy preloadPolicy = getPreloadPolicy();
+        if (preloadPolicy != null && preloadPolicy.getTrigger() == PlaylistPreloadPolicy.Trigger.ON_START) {
+            preloadWindow();
+        }
+    }
+
+    // plays the item from the loaded medias if it is there, otherwise loads it
+    private void playLoadedOrLoadItem(int index, String mediaId) {
+        PKMediaEntry loadedEntry = loadedMediasMap.get(mediaId);
+        if (loadedEntry != null && loadedMediasMap.isResolvedOnly(mediaId)) {
+            playResolvedItem(index, mediaId, loadedEntry);
+        } else if (loadedEntry != null) {
+            kalturaPlayer.setMediaCancellingLoad(loadedEntry);
+        } else if (kalturaPlayer.getTvPlayerType() == KalturaPlayer.Type.ovp) {
             playItemOVP(index);
         } else if (kalturaPlayer.getTvPlayerType() == KalturaPlayer.Type.ott) {
             playItemOTT(index);
@@ -183,15 +437,58 @@ public class PKPlaylistController implements PlaylistController {
         }
     }
 
+    // a prefetched entry is played through the interceptors, which are applied once and kept in the cache
+    private void playResolvedItem(int index, String mediaId, PKMediaEntry resolvedEntry) {
+        kalturaPlayer.loadResolvedMedia(resolvedEntry, (entry, loadError) -> {
+            if (loadError != null) {
+                log.e("prefetched media error = " + loadError.getMessage());
+                if (kalturaPlayer.getMessageBus() == null) {
+                    return;
+                }
+                kalturaPlayer.getMessageBus().post(new PlaylistEvent.PlaylistLoadMediaError(index, new ErrorElement(loadError.getMessage(), loadError.getCode())));
+            } else {
+                loadedMediasMap.put(mediaId, index, entry);
+            }
+        });
+    }
+
     private void playItemOVP(int index) {
 
+        PKPlaylistMedia pkPlaylistMedia = playlist.getMediaList().get(index);
+        OVPMediaOptions ovpMediaOptions = buildOVPMediaOptions(index);
+        if (ovpMediaOptions == null) {
+            return; // error cannot play item
+        }
+
+        kalturaPlayer.loadMedia(ovpMediaOptions, (entry, loadError) -> {
+            if (loadError != null) {
+                log.e("OVPMedia error = " + loadError.getMessage());
+                if (kalturaPlayer.getMessageBus() == null) {
+                    return;
+                }
+                kalturaPlayer.getMessageBus().post(new PlaylistEvent.PlaylistLoadMediaError(index, new ErrorElement(loadError.getMessage(), loadError.getCode())));
+            } else {
+                if (playlist.getMediaList() != null && !playlist.getMediaList().isEmpty() && pkPlaylistMedia != null) {
+                    loadedMediasMap.put(getCacheMediaId(index), index, entry);
+                    log.d("OVPMedia onEntryLoadComplete entry = " + entry.getId());
+                } else {
+                    log.e("OVPMedia onEntryLoadComplete playlist.getMediaList().get(" + index + ") == null");
+                }
+            }
+        });
+    }
+
+    // the options to load the media at the index with; null if there is no media to load
+    @Nullable
+    private OVPMediaOptions buildOVPMediaOptions(int index) {
+
         OVPMediaOptions ovpMediaOptions;
         PKPlaylistMedia pkPlaylistMedia = playlist.getMediaList().get(index);
         if (playlistOptions instanceof OVPPlaylistOptions) {
             OVPPlaylistOptions ovpPlaylistOptions = (OVPPlaylistOptions) playlistOptions;
             ovpMediaOptions = getNextMediaOptions(index, ovpPlaylistOptions);
             if (ovpMediaOptions == null) {
-                return; // error cannot play any next item
+                return null; // error cannot play any next item
             }
             OVPMediaAsset ovpMediaAsset = ovpMediaOptions.getOvpMediaAsset();
             if (ovpMediaAsset != null) {
@@ -205,7 +502,7 @@ public class PKPlaylistController implements PlaylistController {
         } else { // PlaylistId case
             OVPPlaylistIdOptions ovpPlaylistIdOptions = (OVPPlaylistIdOptions) playlistOptions;
             if (pkPlaylistMedia == null) {
-                return; // error cannot play item
+                return null; // error cannot play item
             }
             OVPMediaAsset ovpMediaAsset = new OVPMediaAsset();
             ovpMediaAsset.setEntryId(pkPlaylistMedia.getId());
@@ -215,42 +512,16 @@ public class PKPlaylistController implements PlaylistController {
             ovpMediaOptions = new OVPMediaOptions(ovpMediaAsset);
             ovpMediaOptions.setUseApiCaptions(ovpPlaylistIdOptions.useApiCaptions);
         }
-
-        kalturaPlayer.loadMedia(ovpMediaOptions, (entry, loadError) -> {
-            if (loadError != null) {
-                log.e("OVPMedia error = " + loadError.getMessage());
-                if (kalturaPlayer.getMessageBus() == null) {
-                    return;
-                }
-                kalturaPlayer.getMessageBus().post(new PlaylistEvent.PlaylistLoadMediaError(index, new ErrorElement(loadError.getMessage(), loadError.getCode())));
-            } else {
-                if (playlist.getMediaList() != null && !playlist.getMediaList().isEmpty() && pkPlaylistMedia != null) {
-                    loadedMediasMap.put(getCacheMediaId(CacheMediaType.Current), entry);
-                    log.d("OVPMedia onEntryLoadComplete entry = " + entry.getId());
-                } else {
-                    log.e("OVPMedia onEntryLoadComplete playlist.getMediaList().get(" + index + ") == null");
-                }
-            }
-        });
+        return ovpMediaOptions;
     }
 
     private void playItemOTT(int index) {
         log.d("playItemOTT  " + index) ;
 
-        OTTPlaylistOptions ottPlaylistOptions =  (OTTPlaylistOptions) playlistOptions;
-        OTTMediaOptions ottMediaOptions = getNextMediaOptions(index, ottPlaylistOptions);
+        OTTMediaOptions ottMediaOptions = buildOTTMediaOptions(index);
         if (ottMediaOptions == null) {
             return; // error cannot play any next item
         }
-        OTTMediaAsset ottMediaAsset = ottMediaOptions.getOttMediaAsset();
-        if (ottMediaAsset != null) {
-            if (ottMediaAsset.getKs() == null) {
-                ottMediaAsset.setKs(ottPlaylistOptions.ks);
-            }
-            if (ottMediaAsset.getReferrer() == null) {
-                ottMediaAsset.setReferrer(kalturaPlayer.getInitOptions().referrer);
-            }
-        }
 
         kalturaPlayer.loadMedia(ottMediaOptions, (entry, loadError) -> {
             if (loadError != null) {
@@ -266,7 +537,7 @@ public class PKPlaylistController implements PlaylistController {
             }
             else {
                 if (playlist.getMediaList() != null && !playlist.getMediaList().isEmpty() && playlist.getMediaList().get(index) != null) {
-                    loadedMediasMap.put(getCacheMediaId(CacheMediaType.Current), entry);
+                    loadedMediasMap.put(getCacheMediaId(index), index, entry);
                     log.d("OTTMedia onEntryLoadComplete entry = " + entry.getId());
                 } else {
                     log.e("OTTMedia onEntryLoadComplete playlist.getMediaList().get(" + index + ") == null");
@@ -275,6 +546,26 @@ public class PKPlaylistController implements PlaylistController {
         });
     }
 
+    // the options to load the media at the index with; null if there is no media to load
+    @Nullable
+    private OTTMediaOptions buildOTTMediaOptions(int index) {
+        OTTPlaylistOptions ottPlaylistOptions =  (OTTPlaylistOptions) playlistOptions;
+        OTTMediaOptions ottMediaOptions = getNextMediaOptions(index, ottPlaylistOptions);
+        if (ottMediaOptions == null) {
+            return null;
+        }
+        OTTMediaAsset ottMediaAsset = ottMediaOptions.getOttMediaAsset();
+        if (ottMediaAsset != null) {
+            if (ottMediaAsset.getKs() == null) {
+                ottMediaAsset.setKs(ottPlaylistOptions.ks);
+            }
+            if (ottMediaAsset.getReferrer() == null) {
+                ottMediaAsset.setReferrer(kalturaPlayer.getInitOptions().referrer);
+            }
+        }
+        return ottMediaOptions;
+    }
+
     private void playItemBasic(int index) {
         BasicPlaylistOptions basicPlaylistOptions = (BasicPlaylistOptions) playlistOptions;
         PKMediaEntry pkMediaEntry = getNextMediaOptions(index, basicPlaylistOptions);
@@ -284,7 +575,7 @@ public class PKPlaylistController implements PlaylistController {
 
         List<PKPlaylistMedia> basicMediaOptionsList = ((PKBasicPlaylist) playlist).getBasicMediaOptionsList();
         if (basicMediaOptionsList != null && !basicMediaOptionsList.isEmpty() && basicMediaOptionsList.get(index) != null) {
-            loadedMediasMap.put(getCacheMediaId(CacheMediaType.Current), pkMediaEntry);
+            loadedMediasMap.put(getCacheMediaId(index), index, pkMediaEntry);
             kalturaPlayer.setMedia(pkMediaEntry, 0L);
         } else {
             log.e("BasicMedia onEntryLoadComplete basicMediaOptionsList.get(" + index + ") == null");
@@ -432,10 +723,20 @@ public class PKPlaylistController implements PlaylistController {
         return loadedMediasMap.containsKey(mediaId) && loadedMediasMap.get(mediaId) != null;
     }
 
+    /**
+     * getLoadedMediasFootprint - number and estimated size of the resolved medias kept in memory.
+     *
+     * @return - PlaylistMediaFootprint
+     */
+    public PlaylistMediaFootprint getLoadedMediasFootprint() {
+        return loadedMediasMap.getFootprint();
+    }
+
     @Override
     public void setLoop(boolean mode) {
         log.d("setLoop mode = " + mode);
         loopEnabled = mode;
+        loadedMediasMap.setLoop(mode, (playlist != null) ? playlist.getMediaListSize() : 0);
         if (kalturaPlayer.getMessageBus() == null) {
             return;
         }
@@ -479,7 +780,9 @@ public class PKPlaylistController implements PlaylistController {
         log.d("reset");
         currentPlayingIndex = -1;
         loopEnabled  = false;
+        loadedMediasMap.setLoop(false, 0);
         playlistAutoContinue = true;
+        cancelPrefetches();
         loadedMediasMap.clear();
         origlPlaylistEntries.clear();
         if (kalturaPlayer != null && kalturaPlayer.getTvPlayerType() != KalturaPlayer.Type.basic && playlist != null && playlist.getMediaList() != null) {
@@ -504,6 +807,7 @@ public class PKPlaylistController implements PlaylistController {
         setLoop(playlistOptions.loopEnabled);
         setAutoContinue(playlistOptions.autoContinue);
         setRecoverOnError(playlistOptions.recoverOnError);
+        loadedMediasMap.setMaxEntries(playlistOptions.loadedMediasLimit);
     }
 
     @Override
@@ -517,6 +821,10 @@ public class PKPlaylistController implements PlaylistController {
     private void subscribeToPlayerEvents() {
 
         kalturaPlayer.addListener(this, PlayerEvent.playing, event -> {
+            PlaylistPreloadPolicy preloadPolicy = getPreloadPolicy();
+            if (preloadPolicy != null && preloadPolicy.getTrigger() == PlaylistPreloadPolicy.Trigger.AFTER_FIRST_FRAME) {
+                preloadWindow();
+            }
         });
 
         kalturaPlayer.addListener(this, PlayerEvent.replay, event -> {
@@ -581,6 +889,12 @@ public class PKPlaylistController implements PlaylistController {
                 playlistCountDownOptions = new CountDownOptions(fixedTimeToShow, tmpCountDownOptions.getDurationMS(), tmpCountDownOptions.shouldDisplay());
             }
 
+            PlaylistPreloadPolicy preloadPolicy = getPreloadPolicy();
+            if (preloadPolicy != null && preloadPolicy.getTrigger() == PlaylistPreloadPolicy.Trigger.AT_PERCENT_PLAYED &&
+                    event.duration > 0 && event.position * 100 >= event.duration * preloadPolicy.getPercentPlayed()) {
+                preloadWindow();
+            }
+
             if (event.position >= event.duration) {
                 return;
             }
@@ -596,7 +910,7 @@ public class PKPlaylistController implements PlaylistController {
                     return;
                 }
                 String mediaId = getCacheMediaId(CacheMediaType.Current);
-                loadedMediasMap.put(mediaId, null);
+                loadedMediasMap.put(mediaId, currentPlayingIndex, null);
                 if (isAutoContinueEnabled()) {
                     playNext();
                 } else {
@@ -627,7 +941,14 @@ public class PKPlaylistController implements PlaylistController {
         } else if (cacheMediaType == CacheMediaType.Prev) {
             mediaListIndex -= 1;
         }
-        
+        return getCacheMediaId(mediaListIndex);
+    }
+
+    private String getCacheMediaId(int mediaListIndex) {
+        if (mediaListIndex < 0 || mediaListIndex >= playlist.getMediaList().size()) {
+            return "";
+        }
+
         PKPlaylistMedia pkPlaylistMedia = playlist.getMediaList().get(mediaListIndex);
         if (pkPlaylistMedia == null) {
             return "";
@@ -657,7 +978,11 @@ public class PKPlaylistController implements PlaylistController {
                     log.d("SEND COUNT DOWN EVENT position = " + event.position);
                     kalturaPlayer.getMessageBus().post(new PlaylistEvent.PlaylistCountDownStart(currentPlayingIndex, playlistCountDownOptions));
                     playlistCountDownOptions.setEventSent(true);
-                    preloadNext();
+                    if (getPreloadPolicy() == null) {
+                        preloadNext();
+                    } else {
+                        preloadWindow();
+                    }
                 } else if (event.position >= Math.min(playlistCountDownOptions.getTimeToShowMS() + playlistCountDownOptions.getDurationMS(), event.duration)) {
                     kalturaPlayer.getMessageBus().post(new PlaylistEvent.PlaylistCountDownEnd(currentPlayingIndex, playlistCountDownOptions));
                     //log.d("playhead updated handlePlaylistMediaEnded");
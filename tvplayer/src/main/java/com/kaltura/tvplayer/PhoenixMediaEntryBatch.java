@@ -0,0 +1,198 @@
+package com.kaltura.tvplayer;
+
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.kaltura.playkit.PKMediaEntry;
+import com.kaltura.playkit.PKMediaSource;
+import com.kaltura.playkit.providers.ott.OTTMediaAsset;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Phoenix media assets by asset id: an asset.get and an asset.getPlaybackContext per asset. Assets without a KS share
+ * one anonymous login. Options for other asset, context, reference, URL or streamer types are left to
+ * {@link com.kaltura.playkit.providers.ott.PhoenixMediaProvider}.
+ */
+class PhoenixMediaEntryBatch extends MediaEntryBatch {
+
+    private static final String API_VERSION = "5.2.6";
+    private static final String ANONYMOUS_KS = "{1:result:ks}";
+    private static final String DEFAULT_PROTOCOL = "https";
+    private static final String LINEAR_ASSET_TYPE = "KalturaLinearMediaAsset";
+
+    private final List<Item> items = new ArrayList<>();
+    private int anonymousLoginRequest;
+
+    @Nullable
+    @Override
+    protected String addItem(MediaOptions mediaOptions) {
+        if (!(mediaOptions instanceof OTTMediaOptions)) {
+            return null;
+        }
+        final OTTMediaAsset mediaAsset = ((OTTMediaOptions) mediaOptions).getOttMediaAsset();
+        if (mediaAsset == null || TextUtils.isEmpty(mediaAsset.getAssetId()) || !isDefault(mediaAsset.getAssetType(), "media") ||
+                !isDefault(mediaAsset.getContextType(), "playback") || !isDefault(mediaAsset.getAssetReferenceType(), "media") ||
+                !isDefault(mediaAsset.getUrlType(), "playmanifest") || mediaAsset.getStreamerType() != null) {
+            return null;
+        }
+        final Item item = new Item(String.valueOf(items.size()), mediaAsset);
+        items.add(item);
+        return item.id;
+    }
+
+    // The provider's own default when null; compared by name, whatever the type of the option.
+    private static boolean isDefault(@Nullable Object value, String defaultName) {
+        return value == null || defaultName.equalsIgnoreCase(value.toString());
+    }
+
+    @Override
+    String getUrl(String serverUrl) {
+        return serverUrl + (serverUrl.endsWith("/") ? "" : "/") + "service/multirequest";
+    }
+
+    @Override
+    JsonObject buildRequest(int partnerId) {
+        for (Item item : items) {
+            if (TextUtils.isEmpty(item.ks)) {
+                final JsonObject anonymousLogin = new JsonObject();
+                anonymousLogin.addProperty("service", "ottuser");
+                anonymousLogin.addProperty("action", "anonymousLogin");
+                anonymousLogin.addProperty("partnerId", partnerId);
+                anonymousLoginRequest = addRequest(anonymousLogin);
+                break;
+            }
+        }
+
+        for (Item item : items) {
+            final JsonObject asset = new JsonObject();
+            asset.addProperty("service", "asset");
+            asset.addProperty("action", "get");
+            asset.addProperty("ks", item.getRequestKs());
+            asset.addProperty("id", item.assetId);
+            asset.addProperty("assetReferenceType", "media");
+            item.assetRequest = addRequest(asset);
+
+            final JsonObject contextDataParams = new JsonObject();
+            contextDataParams.addProperty("objectType", "KalturaPlaybackContextOptions");
+            contextDataParams.addProperty("context", "PLAYBACK");
+            contextDataParams.addProperty("mediaProtocol", item.protocol);
+            contextDataParams.addProperty("urlType", "PLAYMANIFEST");
+            if (item.mediaFileIds != null && !item.mediaFileIds.isEmpty()) {
+                contextDataParams.addProperty("assetFileIds", TextUtils.join(",", item.mediaFileIds));
+            }
+            if (item.adapterData != null && !item.adapterData.isEmpty()) {
+                final JsonObject adapterData = new JsonObject();
+                for (Map.Entry<String, String> data : item.adapterData.entrySet()) {
+                    final JsonObject value = new JsonObject();
+                    value.addProperty("objectType", "KalturaStringValue");
+                    value.addProperty("value", data.getValue());
+                    adapterData.add(data.getKey(), value);
+                }
+                contextDataParams.add("adapterData", adapterData);
+            }
+
+            final JsonObject playbackContext = new JsonObject();
+            playbackContext.addProperty("service", "asset");
+            playbackContext.addProperty("action", "getPlaybackContext");
+            playbackContext.addProperty("ks", item.getRequestKs());
+            playbackContext.addProperty("assetId", item.assetId);
+            playbackContext.addProperty("assetType", "media");
+            playbackContext.add("contextDataParams", contextDataParams);
+            item.playbackContextRequest = addRequest(playbackContext);
+        }
+        return buildMultiRequest(API_VERSION);
+    }
+
+    @Override
+    Map<String, PKMediaEntry> parseResponse(JsonElement response, String serverUrl, int partnerId) {
+        final List<JsonObject> results = getResults(response);
+        final boolean anonymousLoginFailed = anonymousLoginRequest > 0 && resultAt(results, anonymousLoginRequest) == null;
+
+        final Map<String, PKMediaEntry> entries = new HashMap<>();
+        for (Item item : items) {
+            final JsonObject asset = resultAt(results, item.assetRequest);
+            final JsonObject playbackContext = resultAt(results, item.playbackContextRequest);
+            if ((anonymousLoginFailed && TextUtils.isEmpty(item.ks)) || asset == null || playbackContext == null ||
+                    isPlaybackRestricted(playbackContext)) {
+                continue;
+            }
+            final JsonObject formatSources = withFormats(playbackContext, item.formats);
+            final List<PKMediaSource> sources = parseSources(formatSources, item.assetId, null);
+            if (!sources.isEmpty()) {
+                entries.put(item.id, toMediaEntry(asset, formatSources, sources));
+            }
+        }
+        return entries;
+    }
+
+    // only the sources of the requested formats, by their Phoenix file type
+    private static JsonObject withFormats(JsonObject playbackContext, @Nullable List<String> formats) {
+        if (formats == null || formats.isEmpty()) {
+            return playbackContext;
+        }
+        final JsonArray sources = new JsonArray();
+        for (JsonObject source : getObjects(playbackContext, "sources")) {
+            if (formats.contains(getString(source, "type"))) {
+                sources.add(source);
+            }
+        }
+        final JsonObject filtered = new JsonObject();
+        filtered.add("sources", sources);
+        return filtered;
+    }
+
+    private static PKMediaEntry toMediaEntry(JsonObject asset, JsonObject playbackContext, List<PKMediaSource> sources) {
+        final boolean live = LINEAR_ASSET_TYPE.equals(getString(asset, "objectType"));
+        final List<JsonObject> contextSources = getObjects(playbackContext, "sources");
+        final long duration = contextSources.isEmpty() ? 0 : getLong(contextSources.get(0), "duration", 0) * 1000;
+
+        final Map<String, String> metadata = new HashMap<>();
+        metadata.put("assetId", getString(asset, "id"));
+        final String name = getString(asset, "name");
+        if (name != null) {
+            metadata.put("name", name);
+        }
+
+        return new PKMediaEntry()
+                .setId(getString(asset, "id"))
+                .setName(name)
+                .setDuration(duration)
+                .setMediaType(live ? PKMediaEntry.MediaEntryType.Live : PKMediaEntry.MediaEntryType.Vod)
+                .setSources(sources)
+                .setMetadata(metadata);
+    }
+
+    private static class Item {
+        final String id;
+        final String assetId;
+        final String ks;
+        final String protocol;
+        final List<String> formats;
+        final List<String> mediaFileIds;
+        final Map<String, String> adapterData;
+        int assetRequest;
+        int playbackContextRequest;
+
+        Item(String id, OTTMediaAsset mediaAsset) {
+            this.id = id;
+            this.assetId = mediaAsset.getAssetId();
+            this.ks = mediaAsset.getKs();
+            this.protocol = (mediaAsset.getProtocol() != null) ? mediaAsset.getProtocol() : DEFAULT_PROTOCOL;
+            this.formats = (mediaAsset.getFormats() != null) ? new ArrayList<>(mediaAsset.getFormats()) : null;
+            this.mediaFileIds = (mediaAsset.getMediaFileIds() != null) ? new ArrayList<>(mediaAsset.getMediaFileIds()) : null;
+            this.adapterData = (mediaAsset.getAdapterData() != null) ? new HashMap<>(mediaAsset.getAdapterData()) : null;
+        }
+
+        String getRequestKs() {
+            return TextUtils.isEmpty(ks) ? ANONYMOUS_KS : ks;
+        }
+    }
+}
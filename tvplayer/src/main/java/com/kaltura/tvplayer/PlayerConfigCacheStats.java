@@ -0,0 +1,69 @@
+package com.kaltura.tvplayer;
+
+import com.kaltura.tvplayer.utils.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Point-in-time view of how {@link PlayerConfigManager#retrieve} calls were answered and how long each kind took,
+ * from the call until the config was delivered.
+ */
+public class PlayerConfigCacheStats {
+
+    public enum Outcome {
+        /** Served from cache, younger than the soft expiration. */
+        FRESH_HIT,
+        /** Served from cache past the soft expiration, with a refresh started in the background. */
+        STALE_HIT,
+        /** No usable cache (missing or past the hard expiration); waited for the network. */
+        HARD_MISS,
+        /** Waited for the network, which failed, and fell back to the expired cache. */
+        STALE_FALLBACK,
+        /** Waited for the network, which failed, with nothing cached to fall back to. */
+        FAILURE
+    }
+
+    private final Map<Outcome, LatencyHistogram.Snapshot> latencies;
+    public final int networkRequestCount;
+    public final int coalescedRequestCount;
+
+    PlayerConfigCacheStats(Map<Outcome, LatencyHistogram.Snapshot> latencies, int networkRequestCount, int coalescedRequestCount) {
+        this.latencies = new EnumMap<>(latencies);
+        this.networkRequestCount = networkRequestCount;
+        this.coalescedRequestCount = coalescedRequestCount;
+    }
+
+    public long getCount(Outcome outcome) {
+        return getLatency(outcome).count;
+    }
+
+    public LatencyHistogram.Snapshot getLatency(Outcome outcome) {
+        return latencies.get(outcome);
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (LatencyHistogram.Snapshot snapshot : latencies.values()) {
+            total += snapshot.count;
+        }
+        return total;
+    }
+
+    /**
+     * @return share of retrieve calls answered without waiting for the network, 0 if there were none.
+     */
+    public double getHitRate() {
+        final long total = getTotalCount();
+        return total > 0 ? (double) (getCount(Outcome.FRESH_HIT) + getCount(Outcome.STALE_HIT)) / total : 0;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("PlayerConfigCacheStats{");
+        for (Map.Entry<Outcome, LatencyHistogram.Snapshot> entry : latencies.entrySet()) {
+            sb.append(entry.getKey()).append(": ").append(entry.getValue()).append(", ");
+        }
+        return sb.append("network=").append(networkRequestCount).append(", coalesced=").append(coalescedRequestCount).append('}').toString();
+    }
+}
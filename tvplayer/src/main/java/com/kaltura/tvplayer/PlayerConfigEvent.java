@@ -0,0 +1,38 @@
+package com.kaltura.tvplayer;
+
+import com.kaltura.playkit.PKEvent;
+
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class PlayerConfigEvent implements PKEvent {
+
+    public static final Class<ConfigCacheStats> configCacheStats = ConfigCacheStats.class;
+
+    public final Type type;
+
+    public PlayerConfigEvent(PlayerConfigEvent.Type type) {
+        this.type = type;
+    }
+
+    /**
+     * Posted each time a load picks up the player config, when
+     * {@link PlayerInitOptions#setConfigCacheStatsEventsEnabled(Boolean)} is on.
+     */
+    public static class ConfigCacheStats extends PlayerConfigEvent {
+
+        public final PlayerConfigCacheStats stats;
+
+        public ConfigCacheStats(PlayerConfigCacheStats stats) {
+            super(Type.CONFIG_CACHE_STATS);
+            this.stats = stats;
+        }
+    }
+
+    public enum Type {
+        CONFIG_CACHE_STATS
+    }
+
+    @Override
+    public Enum eventType() {
+        return this.type;
+    }
+}
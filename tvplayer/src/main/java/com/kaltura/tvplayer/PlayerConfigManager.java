@@ -3,7 +3,9 @@ package com.kaltura.tvplayer;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.text.TextUtils;
+import android.util.LruCache;
 
 import androidx.annotation.Nullable;
 
@@ -13,16 +15,25 @@ import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 import com.kaltura.netkit.utils.ErrorElement;
 import com.kaltura.playkit.PKLog;
-import com.kaltura.tvplayer.config.PhoenixConfigurationsResponse;
 import com.kaltura.tvplayer.config.PhoenixTVPlayerParams;
 import com.kaltura.tvplayer.config.TVPlayerParams;
+import com.kaltura.tvplayer.utils.LatencyHistogram;
 import com.kaltura.tvplayer.utils.NetworkUtils;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PlayerConfigManager {
 
@@ -31,99 +42,343 @@ public class PlayerConfigManager {
     private static Gson gson = new Gson();
     private static final long SOFT_EXPIRATION_SEC = 72 * 60 * 60; // do not refresh till next 3rd day
     private static final long HARD_EXPIRATION_SEC = 148 * 60 * 60; // between 72 and 148 hours get it from cache and refresh o/w get it from network
+    static final long BACKGROUND_REFRESH_AGE_SEC = SOFT_EXPIRATION_SEC / 2; // background refresh renews anything older, well before soft expiration
+    private static final int MEMORY_CACHE_MAX_ENTRIES = 16;
+    private static final int DEFAULT_PREFETCH_PARALLELISM = 4;
     private static Handler mainHandler = new Handler(Looper.getMainLooper());
     private static File dataDir;
+    private static PlayerConfigStore store;
+
+    // Parsed configs by (player type, partnerId), so the hot path never goes back to disk or Gson.
+    private static final LruCache<String, CachedConfig> memoryCache = new LruCache<>(MEMORY_CACHE_MAX_ENTRIES);
+
+    // Callbacks waiting on an in-flight refresh, by (player type, partnerId, serverUrl).
+    private static final Map<String, List<OnPlayerConfigLoaded>> pendingRefreshes = new HashMap<>();
+    private static final AtomicInteger networkRequestCount = new AtomicInteger();
+    private static final AtomicInteger coalescedRequestCount = new AtomicInteger();
+
+    // Filled once for every outcome, so lookups never miss and the map itself is never written again.
+    private static final Map<PlayerConfigCacheStats.Outcome, LatencyHistogram> retrieveLatencies = new EnumMap<>(PlayerConfigCacheStats.Outcome.class);
+    static {
+        for (PlayerConfigCacheStats.Outcome outcome : PlayerConfigCacheStats.Outcome.values()) {
+            retrieveLatencies.put(outcome, new LatencyHistogram());
+        }
+    }
+
+    // Loads queued until initialize() has retrieved the player config.
+    private static final List<ConfigReadyWaiter> readyWaiters = new ArrayList<>();
+    private static volatile boolean configReady;
+
+    static boolean isConfigReady() {
+        return configReady;
+    }
+
+    /**
+     * Marks the player config as available and releases every queued {@link #whenConfigReady} call.
+     */
+    static void markConfigReady() {
+        final List<ConfigReadyWaiter> released;
+        synchronized (readyWaiters) {
+            configReady = true;
+            released = new ArrayList<>(readyWaiters);
+            readyWaiters.clear();
+        }
+        for (ConfigReadyWaiter waiter : released) {
+            mainHandler.post(waiter::release);
+        }
+    }
+
+    /**
+     * Runs onReady as soon as the player config is available - on the next main loop iteration if it already is.
+     * If it doesn't become available within timeoutMs, onTimeout runs instead. Both run on the main thread, never
+     * before this method returns.
+     *
+     * @return cancels the call: neither callback runs afterwards. Must be run on the main thread.
+     */
+    static Runnable whenConfigReady(long timeoutMs, Runnable onReady, Runnable onTimeout) {
+        final ConfigReadyWaiter waiter = new ConfigReadyWaiter(onReady, onTimeout);
+        synchronized (readyWaiters) {
+            if (!configReady) {
+                readyWaiters.add(waiter);
+                mainHandler.postDelayed(waiter, timeoutMs);
+                return waiter::cancel;
+            }
+        }
+        mainHandler.post(waiter::release);
+        return waiter::cancel;
+    }
 
     public static void retrieve(Context context, KalturaPlayer.Type playerType, int partnerId, String serverUrl, final OnPlayerConfigLoaded onPlayerConfigLoaded) {
         //playerType = tvPlayerType;
-        if (dataDir == null) {
-            dataDir = new File(context.getFilesDir(), "KalturaPlayer/PlayerConfigs");
-            dataDir.mkdirs();
-        }
+        initStore(context);
+
+        final long startTime = SystemClock.elapsedRealtime();
 
         // Load from cache
-        final CachedConfig cachedConfig = loadFromCache(partnerId);
+        final CachedConfig cachedConfig = getCachedConfig(playerType, partnerId);
         serverUrl = KalturaPlayer.safeServerUrl(playerType, serverUrl, KalturaPlayer.Type.ovp.equals(playerType) ? KalturaPlayer.DEFAULT_OVP_SERVER_URL : null);
 
         if (cachedConfig == null) {
-            refreshCache(context, playerType, partnerId, serverUrl, null, onPlayerConfigLoaded);
+            refreshCache(context, playerType, partnerId, serverUrl, null, recordingNetworkOutcome(startTime, onPlayerConfigLoaded));
             return;
         }
 
-        final int freshness = cachedConfig.freshness;
+        final int freshness = cachedConfig.getFreshness();
 
         if (freshness < SOFT_EXPIRATION_SEC) {
             // Just return the cache
-            configLoaded(onPlayerConfigLoaded, playerType, partnerId, serverUrl, cachedConfig);
+            recordOutcome(PlayerConfigCacheStats.Outcome.FRESH_HIT, startTime);
+            configLoaded(onPlayerConfigLoaded, cachedConfig);
             return;
         }
 
         if (freshness < HARD_EXPIRATION_SEC) {
             // Refresh the cache, but return the cache immediately
             refreshCache(context, playerType, partnerId, serverUrl, cachedConfig, null);
-            configLoaded(onPlayerConfigLoaded, playerType, partnerId, serverUrl, cachedConfig);
+            recordOutcome(PlayerConfigCacheStats.Outcome.STALE_HIT, startTime);
+            configLoaded(onPlayerConfigLoaded, cachedConfig);
             return;
         }
 
-        refreshCache(context, playerType, partnerId, serverUrl, cachedConfig, onPlayerConfigLoaded);
+        refreshCache(context, playerType, partnerId, serverUrl, cachedConfig, recordingNetworkOutcome(startTime, onPlayerConfigLoaded));
     }
 
-    static TVPlayerParams retrieve(KalturaPlayer.Type tvPlayerType, int partnerId) {
-        final CachedConfig cachedConfig = loadFromCache(partnerId);
-        if (cachedConfig != null) {
-            if (KalturaPlayer.Type.ovp.equals(tvPlayerType)) {
-                return gson.fromJson(cachedConfig.json, TVPlayerParams.class);
-            } else  if (KalturaPlayer.Type.ott.equals(tvPlayerType)) {
-                return gson.fromJson(cachedConfig.json, PhoenixTVPlayerParams.class);
+    // Classifies a retrieve that had to wait for the network by what it finally delivered.
+    private static OnPlayerConfigLoaded recordingNetworkOutcome(long startTime, @Nullable OnPlayerConfigLoaded onPlayerConfigLoaded) {
+        return (config, error, freshness) -> {
+            if (config == null) {
+                recordOutcome(PlayerConfigCacheStats.Outcome.FAILURE, startTime);
+            } else if (freshness >= HARD_EXPIRATION_SEC) {
+                // Only a failed refresh hands back a config this old.
+                recordOutcome(PlayerConfigCacheStats.Outcome.STALE_FALLBACK, startTime);
+            } else {
+                recordOutcome(PlayerConfigCacheStats.Outcome.HARD_MISS, startTime);
             }
+            if (onPlayerConfigLoaded != null) {
+                onPlayerConfigLoaded.onConfigLoadComplete(config, error, freshness);
+            }
+        };
+    }
+
+    private static void recordOutcome(PlayerConfigCacheStats.Outcome outcome, long startTime) {
+        retrieveLatencies.get(outcome).record(SystemClock.elapsedRealtime() - startTime);
+    }
+
+    /**
+     * @return counts and latencies of {@link #retrieve} calls since startup or the last {@link #resetCacheStats()}.
+     */
+    public static PlayerConfigCacheStats getCacheStats() {
+        final Map<PlayerConfigCacheStats.Outcome, LatencyHistogram.Snapshot> latencies = new EnumMap<>(PlayerConfigCacheStats.Outcome.class);
+        for (Map.Entry<PlayerConfigCacheStats.Outcome, LatencyHistogram> entry : retrieveLatencies.entrySet()) {
+            latencies.put(entry.getKey(), entry.getValue().snapshot());
         }
-        return null;
+        return new PlayerConfigCacheStats(latencies, networkRequestCount.get(), coalescedRequestCount.get());
     }
 
-    private static void configLoaded(@Nullable OnPlayerConfigLoaded onPlayerConfigLoaded, KalturaPlayer.Type playerType, int partnerId, String serverUrl, CachedConfig cachedConfig) {
-        if (onPlayerConfigLoaded != null) {
+    public static void resetCacheStats() {
+        for (LatencyHistogram histogram : retrieveLatencies.values()) {
+            histogram.reset();
+        }
+        networkRequestCount.set(0);
+        coalescedRequestCount.set(0);
+    }
 
-            TVPlayerParams playerParams = null;
-            if (KalturaPlayer.Type.ovp.equals(playerType)) {
-                playerParams = gson.fromJson(cachedConfig.json, TVPlayerParams.class);
-            } else  if (KalturaPlayer.Type.ott.equals(playerType)) {
-                playerParams = gson.fromJson(cachedConfig.json, PhoenixTVPlayerParams.class);
+    private static synchronized void initStore(Context context) {
+        if (dataDir == null) {
+            initStore(new File(context.getFilesDir(), "KalturaPlayer/PlayerConfigs"));
+        }
+    }
+
+    // Points the store (and the legacy files it migrates) at dir; tests use a scratch directory.
+    static synchronized void initStore(File dir) {
+        dataDir = dir;
+        dataDir.mkdirs();
+        store = new PlayerConfigStore(dataDir);
+    }
+
+    /**
+     * Opts in to refreshing cached configs in the background, so they are renewed before
+     * they soft-expire instead of on the next cold start. Runs only with network and battery not low.
+     */
+    public static void enableBackgroundRefresh(Context context) {
+        PlayerConfigRefreshWorker.schedule(context);
+    }
+
+    public static void disableBackgroundRefresh(Context context) {
+        PlayerConfigRefreshWorker.cancel(context);
+    }
+
+    /**
+     * Refreshes from the network every cached config that is at least minAgeSec old, and waits up to
+     * timeoutMs for the results. Must not be called on the main thread, which delivers them.
+     * @return the number of configs that are still at least minAgeSec old afterwards.
+     */
+    static int refreshCachedConfigs(Context context, long minAgeSec, long timeoutMs) throws InterruptedException {
+        initStore(context);
+
+        final List<CachedConfig> staleConfigs = new ArrayList<>();
+        final List<PlayerConfigStore.RecordKey> staleKeys = new ArrayList<>();
+        for (PlayerConfigStore.RecordKey key : store.list()) {
+            final CachedConfig cachedConfig = getCachedConfig(key.playerType, key.partnerId);
+            // serviceUrl is the server the config was fetched from; without it there is nothing to refresh against.
+            if (cachedConfig != null && cachedConfig.getFreshness() >= minAgeSec && cachedConfig.params.serviceUrl != null) {
+                staleConfigs.add(cachedConfig);
+                staleKeys.add(key);
             }
-            onPlayerConfigLoaded.onConfigLoadComplete(playerParams, null, cachedConfig.freshness);
+        }
+        if (staleKeys.isEmpty()) {
+            return 0;
+        }
+
+        final CountDownLatch latch = new CountDownLatch(staleKeys.size());
+        final AtomicInteger stillStale = new AtomicInteger();
+        for (int i = 0; i < staleKeys.size(); i++) {
+            final PlayerConfigStore.RecordKey key = staleKeys.get(i);
+            final CachedConfig cachedConfig = staleConfigs.get(i);
+            refreshCache(context, key.playerType, key.partnerId, cachedConfig.params.serviceUrl, cachedConfig, (config, error, freshness) -> {
+                if (config == null || freshness >= minAgeSec) {
+                    stillStale.incrementAndGet();
+                }
+                latch.countDown();
+            });
+        }
+
+        if (!latch.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+            log.w("Background config refresh timed out, " + latch.getCount() + " pending");
+            return stillStale.get() + (int) latch.getCount();
+        }
+        return stillStale.get();
+    }
+
+    static TVPlayerParams retrieve(KalturaPlayer.Type tvPlayerType, int partnerId) {
+        final CachedConfig cachedConfig = getCachedConfig(tvPlayerType, partnerId);
+        return cachedConfig != null ? cachedConfig.params : null;
+    }
+
+    /**
+     * Warms the config cache for several partners, at most {@value #DEFAULT_PREFETCH_PARALLELISM} at a time.
+     * See {@link #prefetch(Context, Collection, int, OnPrefetchComplete)}.
+     */
+    public static void prefetch(Context context, Collection<PartnerSpec> partners, @Nullable OnPrefetchComplete onPrefetchComplete) {
+        prefetch(context, partners, DEFAULT_PREFETCH_PARALLELISM, onPrefetchComplete);
+    }
+
+    /**
+     * Warms the config cache for several partners, with at most maxParallel retrievals in flight. Each partner
+     * goes through the same path as {@link #retrieve(Context, KalturaPlayer.Type, int, String, OnPlayerConfigLoaded)},
+     * so fresh entries cost nothing, concurrent requests for one partner are coalesced and all requests share
+     * the connection pool of {@link NetworkUtils}. onPrefetchComplete is called once on the main thread with
+     * one result per partner, in input order.
+     */
+    public static void prefetch(Context context, Collection<PartnerSpec> partners, int maxParallel, @Nullable OnPrefetchComplete onPrefetchComplete) {
+        new ConfigPrefetch(context.getApplicationContext(), new ArrayList<>(partners), Math.max(1, maxParallel), onPrefetchComplete).start();
+    }
+
+    private static String cacheKey(KalturaPlayer.Type playerType, int partnerId) {
+        return playerType + ":" + partnerId;
+    }
+
+    private static CachedConfig getCachedConfig(KalturaPlayer.Type playerType, int partnerId) {
+        final String key = cacheKey(playerType, partnerId);
+        CachedConfig cachedConfig = memoryCache.get(key);
+        if (cachedConfig == null) {
+            cachedConfig = loadFromCache(playerType, partnerId);
+            if (cachedConfig != null) {
+                memoryCache.put(key, cachedConfig);
+            }
+        }
+        return cachedConfig;
+    }
+
+    private static void configLoaded(@Nullable OnPlayerConfigLoaded onPlayerConfigLoaded, CachedConfig cachedConfig) {
+        if (onPlayerConfigLoaded != null) {
+            onPlayerConfigLoaded.onConfigLoadComplete(cachedConfig.params, null, cachedConfig.getFreshness());
         }
     }
 
     private static void refreshCache(Context context, KalturaPlayer.Type playerType, int partnerId, String serverUrl, final CachedConfig cachedConfig, final OnPlayerConfigLoaded onPlayerConfigLoaded) {
-        load(context, playerType, partnerId, serverUrl, (json, error) -> {
-            if (error == null && json != null) {
-                TVPlayerParams playerParams = null;
-                if (KalturaPlayer.Type.ovp.equals(playerType)) {
-                    playerParams = gson.fromJson(json, TVPlayerParams.class);
-
-                } else  if (KalturaPlayer.Type.ott.equals(playerType)) {
-                    PhoenixConfigurationsResponse phoenixConfigurationsResponse = gson.fromJson(json, PhoenixConfigurationsResponse.class);
-                    playerParams = phoenixConfigurationsResponse.params;
+        // Single-flight: while a request for the same key is on the wire, later callers just wait for its result.
+        final String refreshKey = cacheKey(playerType, partnerId) + ":" + serverUrl;
+        synchronized (pendingRefreshes) {
+            List<OnPlayerConfigLoaded> waiting = pendingRefreshes.get(refreshKey);
+            if (waiting != null) {
+                if (onPlayerConfigLoaded != null) {
+                    waiting.add(onPlayerConfigLoaded);
+                }
+                coalescedRequestCount.incrementAndGet();
+                return;
+            }
+            waiting = new ArrayList<>();
+            if (onPlayerConfigLoaded != null) {
+                waiting.add(onPlayerConfigLoaded);
+            }
+            pendingRefreshes.put(refreshKey, waiting);
+        }
+        networkRequestCount.incrementAndGet();
+
+        // Validators are only worth sending when there is a cached body a 304 can fall back on.
+        final String etag = cachedConfig != null ? cachedConfig.etag : null;
+        final String lastModified = cachedConfig != null ? cachedConfig.lastModified : null;
+
+        load(context, playerType, partnerId, serverUrl, etag, lastModified, (response, error) -> {
+            final List<OnPlayerConfigLoaded> waiting;
+            synchronized (pendingRefreshes) {
+                waiting = pendingRefreshes.remove(refreshKey);
+            }
+
+            if (error == null && response != null && response.notModified && cachedConfig != null) {
+                // Unchanged on the server: keep the parsed params, only restart the expiration clock.
+                final CachedConfig revalidatedConfig = new CachedConfig(System.currentTimeMillis(), cachedConfig.params, response.etag, response.lastModified);
+                final boolean sameValidators = TextUtils.equals(etag, response.etag) && TextUtils.equals(lastModified, response.lastModified);
+                if (!sameValidators || !store.touch(playerType, partnerId, revalidatedConfig.timestamp)) {
+                    saveToCache(playerType, partnerId, revalidatedConfig);
                 }
+                memoryCache.put(cacheKey(playerType, partnerId), revalidatedConfig);
+                for (OnPlayerConfigLoaded callback : waiting) {
+                    configLoaded(callback, revalidatedConfig);
+                }
+            } else if (error == null && response != null && response.params != null) {
+                final TVPlayerParams playerParams = response.params;
                 playerParams.serviceUrl = serverUrl;
                 playerParams.partnerId = partnerId;
 
-
-                String updatedConfig = gson.toJson(playerParams);
                 // No error
-                saveToCache(partnerId, updatedConfig);
-                configLoaded(onPlayerConfigLoaded, playerType, partnerId, serverUrl, new CachedConfig(0, updatedConfig));
+                final CachedConfig updatedConfig = new CachedConfig(System.currentTimeMillis(), playerParams, response.etag, response.lastModified);
+                saveToCache(playerType, partnerId, updatedConfig);
+                memoryCache.put(cacheKey(playerType, partnerId), updatedConfig);
+                for (OnPlayerConfigLoaded callback : waiting) {
+                    configLoaded(callback, updatedConfig);
+                }
             } else {
                 if (cachedConfig != null) {
                     log.e("Failed to load new config from network -- returning old cache partnerId = " + partnerId);
-                    configLoaded(onPlayerConfigLoaded, playerType, partnerId, serverUrl, cachedConfig);
+                    for (OnPlayerConfigLoaded callback : waiting) {
+                        configLoaded(callback, cachedConfig);
+                    }
                 } else {
                     log.e("Failed to load config from network, no cache partnerId = " + partnerId);
-                    onPlayerConfigLoaded.onConfigLoadComplete(null, error, -1);
+                    for (OnPlayerConfigLoaded callback : waiting) {
+                        callback.onConfigLoadComplete(null, error != null ? error : ErrorElement.GeneralError, -1);
+                    }
                 }
             }
         });
     }
 
+    /**
+     * @return number of config requests actually sent to the network.
+     */
+    public static int getNetworkRequestCount() {
+        return networkRequestCount.get();
+    }
+
+    /**
+     * @return number of config refreshes that joined a request already in flight instead of sending their own.
+     */
+    public static int getCoalescedRequestCount() {
+        return coalescedRequestCount.get();
+    }
+
     private static boolean isValidResponse(String responseString, StringBuffer errorMessage) {
         if (TextUtils.isEmpty(responseString)) {
             return false;
@@ -147,96 +402,239 @@ public class PlayerConfigManager {
         return true;
     }
 
-    private static void load(Context context, KalturaPlayer.Type playerType, int partnerId, String serverUrl, final InternalCallback callback) {
+    private static void load(Context context, KalturaPlayer.Type playerType, int partnerId, String serverUrl, String etag, String lastModified, final ConfigCallback callback) {
         mainHandler.post(() -> {
             if (KalturaPlayer.Type.ott.equals(playerType)) {
-                NetworkUtils.requestOttConfigByPartnerId(context, serverUrl, partnerId, callback);
+                NetworkUtils.requestOttConfigByPartnerId(context, serverUrl, partnerId, etag, lastModified, callback);
             } else if (KalturaPlayer.Type.ovp.equals(playerType)) {
-                NetworkUtils.requestOvpConfigByPartnerId(context, serverUrl, partnerId, callback);
+                NetworkUtils.requestOvpConfigByPartnerId(context, serverUrl, partnerId, etag, lastModified, callback);
             }
         });
     }
 
-    private static void saveToCache(int id, String json) {
-        //log.d("saveToCache partnerId = " + id + "->" + json);
-
-        final File file = new File(dataDir, id + ".json");
-
-        FileWriter writer = null;
-        try {
-            writer = new FileWriter(file);
-            writer.write(json);
-        } catch (IOException e) {
-            log.e ("Failed to write config cache " + file, e);
-        } finally {
-            if (writer != null) {
-                try {
-                    writer.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
+    private static void saveToCache(KalturaPlayer.Type playerType, int partnerId, CachedConfig cachedConfig) {
+        if (store != null) {
+            store.save(playerType, partnerId, cachedConfig);
         }
     }
 
-    static CachedConfig loadFromCache(int partnerId) {
-        if (dataDir == null) {
+    static CachedConfig loadFromCache(KalturaPlayer.Type playerType, int partnerId) {
+        if (store == null) {
             return null;
         }
-        final File file = new File(dataDir, partnerId + ".json");
-        if (!file.exists()) {
+        final CachedConfig cachedConfig = store.load(playerType, partnerId);
+        if (cachedConfig != null) {
+            return cachedConfig;
+        }
+        return migrateLegacyCache(playerType, partnerId);
+    }
+
+    // Converts a <partnerId>.json file written by older versions into a store record, so upgrading
+    // doesn't cost a network round trip.
+    private static CachedConfig migrateLegacyCache(KalturaPlayer.Type playerType, int partnerId) {
+        final File legacyFile = new File(dataDir, partnerId + ".json");
+        if (!legacyFile.exists()) {
             return null;
         }
 
-        final long timestamp;
-        final StringBuilder json;
-        BufferedReader reader = null;
+        TVPlayerParams playerParams = null;
         try {
-            timestamp = file.lastModified();
-            reader = new BufferedReader(new FileReader(file));
-            json = new StringBuilder();
-            char[] buffer = new char[1024];
-            int size;
-            while ((size = reader.read(buffer)) > 0) {
-                json.append(buffer, 0, size);
+            final String json = Charset.forName("UTF-8").decode(PlayerConfigStore.readFully(legacyFile)).toString();
+            if (KalturaPlayer.Type.ovp.equals(playerType)) {
+                playerParams = gson.fromJson(json, TVPlayerParams.class);
+            } else if (KalturaPlayer.Type.ott.equals(playerType)) {
+                playerParams = gson.fromJson(json, PhoenixTVPlayerParams.class);
             }
+        } catch (IOException | JsonSyntaxException e) {
+            log.e("Failed to migrate legacy config " + partnerId, e);
+        }
 
-        } catch (IOException e) {
-            log.e("Failed to open config " + partnerId, e);
+        if (playerParams == null) {
             return null;
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
         }
 
-        return new CachedConfig(timestamp, json.toString());
+        final CachedConfig cachedConfig = new CachedConfig(legacyFile.lastModified(), playerParams);
+        if (store.save(playerType, partnerId, cachedConfig)) {
+            //noinspection ResultOfMethodCallIgnored
+            legacyFile.delete();
+        }
+        return cachedConfig;
     }
 
     public interface OnPlayerConfigLoaded {
         void onConfigLoadComplete(TVPlayerParams config, ErrorElement error, int freshness);
     }
 
+    public interface OnPrefetchComplete {
+        void onPrefetchComplete(List<PrefetchResult> results);
+    }
+
     public interface InternalCallback {
         void finished(String json, ErrorElement error);
     }
 
-    static class CachedConfig {
-        final int freshness;
-        final String json;
+    public interface ConfigCallback {
+        void finished(NetworkUtils.ConfigResponse response, ErrorElement error);
+    }
 
-        CachedConfig(long timestamp, String json) {
-            if (timestamp == 0) {
-                this.freshness = 0;
-            } else {
-                this.freshness = (int) (System.currentTimeMillis() - timestamp) / 1000;
+    public static class PartnerSpec {
+        public final KalturaPlayer.Type playerType;
+        public final int partnerId;
+        public final String serverUrl;
+
+        public PartnerSpec(KalturaPlayer.Type playerType, int partnerId, String serverUrl) {
+            this.playerType = playerType;
+            this.partnerId = partnerId;
+            this.serverUrl = serverUrl;
+        }
+    }
+
+    public static class PrefetchResult {
+        public final PartnerSpec partner;
+        public final ErrorElement error;
+        // Age of the config in seconds when it was delivered, -1 if none could be loaded.
+        public final int freshness;
+        public final long latencyMs;
+
+        PrefetchResult(PartnerSpec partner, ErrorElement error, int freshness, long latencyMs) {
+            this.partner = partner;
+            this.error = error;
+            this.freshness = freshness;
+            this.latencyMs = latencyMs;
+        }
+
+        public boolean isSuccess() {
+            return error == null && freshness >= 0;
+        }
+    }
+
+    // Runs retrievals off a shared cursor: each completion starts the next pending partner.
+    private static class ConfigPrefetch {
+        private final Context context;
+        private final List<PartnerSpec> partners;
+        private final int maxParallel;
+        private final OnPrefetchComplete onPrefetchComplete;
+        private final PrefetchResult[] results;
+        private int next;
+        private int completed;
+
+        ConfigPrefetch(Context context, List<PartnerSpec> partners, int maxParallel, OnPrefetchComplete onPrefetchComplete) {
+            this.context = context;
+            this.partners = partners;
+            this.maxParallel = maxParallel;
+            this.onPrefetchComplete = onPrefetchComplete;
+            this.results = new PrefetchResult[partners.size()];
+        }
+
+        void start() {
+            if (partners.isEmpty()) {
+                finish();
+                return;
+            }
+            for (int i = 0; i < maxParallel; i++) {
+                startNext();
+            }
+        }
+
+        private void startNext() {
+            final int index;
+            synchronized (this) {
+                if (next >= partners.size()) {
+                    return;
+                }
+                index = next++;
             }
 
-            this.json = json;
+            final PartnerSpec partner = partners.get(index);
+            final long startTime = SystemClock.elapsedRealtime();
+            retrieve(context, partner.playerType, partner.partnerId, partner.serverUrl, (config, error, freshness) -> {
+                final long latencyMs = SystemClock.elapsedRealtime() - startTime;
+                if (error != null || config == null) {
+                    log.e("Prefetch failed for partnerId = " + partner.partnerId);
+                }
+                final boolean done;
+                synchronized (ConfigPrefetch.this) {
+                    results[index] = new PrefetchResult(partner, error, config != null ? freshness : -1, latencyMs);
+                    done = ++completed == partners.size();
+                }
+                if (done) {
+                    finish();
+                } else {
+                    startNext();
+                }
+            });
+        }
+
+        private void finish() {
+            if (onPrefetchComplete == null) {
+                return;
+            }
+            final List<PrefetchResult> resultList = Collections.unmodifiableList(Arrays.asList(results));
+            mainHandler.post(() -> onPrefetchComplete.onPrefetchComplete(resultList));
+        }
+    }
+
+    // Posted as its own timeout; whichever of release(), run() and cancel() comes first wins. All run on the main thread.
+    private static class ConfigReadyWaiter implements Runnable {
+        private final Runnable onReady;
+        private final Runnable onTimeout;
+        private boolean done;
+
+        ConfigReadyWaiter(Runnable onReady, Runnable onTimeout) {
+            this.onReady = onReady;
+            this.onTimeout = onTimeout;
+        }
+
+        void release() {
+            if (done) {
+                return;
+            }
+            done = true;
+            mainHandler.removeCallbacks(this);
+            onReady.run();
+        }
+
+        void cancel() {
+            synchronized (readyWaiters) {
+                readyWaiters.remove(this);
+            }
+            done = true;
+            mainHandler.removeCallbacks(this);
+        }
+
+        @Override
+        public void run() {
+            synchronized (readyWaiters) {
+                readyWaiters.remove(this);
+            }
+            if (done) {
+                return;
+            }
+            done = true;
+            onTimeout.run();
+        }
+    }
+
+    static class CachedConfig {
+        final long timestamp;
+        final TVPlayerParams params;
+        // HTTP validators of the response the params came from, for conditional refresh.
+        final String etag;
+        final String lastModified;
+
+        CachedConfig(long timestamp, TVPlayerParams params) {
+            this(timestamp, params, null, null);
+        }
+
+        CachedConfig(long timestamp, TVPlayerParams params, String etag, String lastModified) {
+            this.timestamp = timestamp;
+            this.params = params;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        int getFreshness() {
+            return (int) ((System.currentTimeMillis() - timestamp) / 1000);
         }
     }
 }
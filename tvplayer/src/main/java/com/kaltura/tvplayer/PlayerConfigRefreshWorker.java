@@ -0,0 +1,82 @@
+package com.kaltura.tvplayer;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.kaltura.playkit.PKLog;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renews cached partner configs that are past {@link PlayerConfigManager#BACKGROUND_REFRESH_AGE_SEC}, so they never
+ * reach soft expiration while the app isn't running. Enabled with {@link PlayerConfigManager#enableBackgroundRefresh}.
+ */
+public class PlayerConfigRefreshWorker extends Worker {
+
+    private static final PKLog log = PKLog.get("PlayerConfigRefreshWorker");
+
+    private static final String PERIODIC_WORK_NAME = "KalturaPlayerConfigRefresh";
+    private static final String CATCH_UP_WORK_NAME = "KalturaPlayerConfigRefreshNow";
+    private static final long REFRESH_INTERVAL_HOURS = 12;
+    private static final long REFRESH_TIMEOUT_MS = 60 * 1000;
+    private static final int MAX_ATTEMPTS = 3;
+
+    public PlayerConfigRefreshWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    static void schedule(Context context) {
+        final Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+
+        final PeriodicWorkRequest periodicRequest = new PeriodicWorkRequest.Builder(PlayerConfigRefreshWorker.class, REFRESH_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 10, TimeUnit.MINUTES)
+                .build();
+
+        // A one-off run catches up on configs that went stale while refresh was off. It finishes
+        // immediately if nothing is stale. (work-runtime 2.4 has no expedited requests.)
+        final OneTimeWorkRequest catchUpRequest = new OneTimeWorkRequest.Builder(PlayerConfigRefreshWorker.class)
+                .setConstraints(constraints)
+                .build();
+
+        final WorkManager workManager = WorkManager.getInstance(context.getApplicationContext());
+        workManager.enqueueUniquePeriodicWork(PERIODIC_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, periodicRequest);
+        workManager.enqueueUniqueWork(CATCH_UP_WORK_NAME, ExistingWorkPolicy.KEEP, catchUpRequest);
+    }
+
+    static void cancel(Context context) {
+        final WorkManager workManager = WorkManager.getInstance(context.getApplicationContext());
+        workManager.cancelUniqueWork(PERIODIC_WORK_NAME);
+        workManager.cancelUniqueWork(CATCH_UP_WORK_NAME);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            final int stale = PlayerConfigManager.refreshCachedConfigs(getApplicationContext(), PlayerConfigManager.BACKGROUND_REFRESH_AGE_SEC, REFRESH_TIMEOUT_MS);
+            if (stale == 0) {
+                return Result.success();
+            }
+            log.w("Background config refresh left " + stale + " configs stale");
+            return getRunAttemptCount() + 1 < MAX_ATTEMPTS ? Result.retry() : Result.success();
+
+        } catch (InterruptedException e) {
+            return Result.retry();
+        }
+    }
+}
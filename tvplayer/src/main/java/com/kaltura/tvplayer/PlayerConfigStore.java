@@ -0,0 +1,383 @@
+package com.kaltura.tvplayer;
+
+import androidx.annotation.Nullable;
+
+import com.kaltura.playkit.PKLog;
+import com.kaltura.tvplayer.config.PhoenixTVPlayerParams;
+import com.kaltura.tvplayer.config.TVPlayerParams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk store for partner configs. Each (player type, partnerId) is kept in its own file holding one
+ * versioned binary record:
+ *
+ * <pre>
+ * int    magic
+ * short  format version
+ * long   saved-at timestamp (ms)
+ * string player type
+ * bool   phoenix params
+ * short  params field count, then per field:
+ *        string name, byte type (0 null, 1 string, 2 int), value
+ * string ETag, Last-Modified
+ * long   CRC32 of everything above
+ * </pre>
+ *
+ * Strings are length-prefixed UTF-8 (-1 for null). The params fields are found by reflection once per class and
+ * written by name, so fields added to TVPlayerParams or PhoenixTVPlayerParams are kept without a format change,
+ * and fields a record has but the params class no longer has are skipped.
+ * The timestamp sits at a fixed offset so a revalidated record can be touched without re-encoding it.
+ * Records are written to a temp file, synced and renamed over the previous one, so a crash mid-write
+ * leaves the old record in place instead of a truncated file.
+ */
+final class PlayerConfigStore {
+
+    private static final PKLog log = PKLog.get("PlayerConfigStore");
+
+    private static final int MAGIC = 0x4B504346; // "KPCF"
+    private static final short FORMAT_VERSION = 4; // records of any other version are dropped
+    private static final int TIMESTAMP_OFFSET = 6;
+    private static final int CHECKSUM_SIZE = 8;
+    private static final String RECORD_SUFFIX = ".cfg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INT = 2;
+
+    private static final Map<String, Field> tvPlayerParamsFields = paramsFields(TVPlayerParams.class);
+    private static final Map<String, Field> phoenixParamsFields = paramsFields(PhoenixTVPlayerParams.class);
+
+    private final File dir;
+
+    PlayerConfigStore(File dir) {
+        this.dir = dir;
+    }
+
+    boolean save(KalturaPlayer.Type playerType, int partnerId, PlayerConfigManager.CachedConfig config) {
+        final File file = recordFile(playerType, partnerId);
+        try {
+            writeAtomically(file, encode(playerType, config));
+            return true;
+        } catch (IOException e) {
+            log.e("Failed to write config cache " + file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Moves the saved-at timestamp of an existing record, leaving the rest of it as is.
+     * @return false if there is no current-version record to touch; the caller should save a full one.
+     */
+    boolean touch(KalturaPlayer.Type playerType, int partnerId, long timestamp) {
+        final File file = recordFile(playerType, partnerId);
+        if (!file.exists()) {
+            return false;
+        }
+        try {
+            final ByteBuffer buffer = readFully(file);
+            final int length = buffer.remaining();
+            if (length <= TIMESTAMP_OFFSET + 8 + CHECKSUM_SIZE || !hasValidChecksum(buffer)
+                    || buffer.getInt(0) != MAGIC || buffer.getShort(4) != FORMAT_VERSION) {
+                return false;
+            }
+            buffer.putLong(TIMESTAMP_OFFSET, timestamp);
+            final CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, length - CHECKSUM_SIZE);
+            buffer.putLong(length - CHECKSUM_SIZE, crc.getValue());
+
+            writeAtomically(file, buffer.array());
+            return true;
+
+        } catch (IOException e) {
+            log.e("Failed to touch config cache " + file, e);
+            return false;
+        }
+    }
+
+    private void writeAtomically(File file, byte[] bytes) throws IOException {
+        final File tempFile = new File(dir, file.getName() + TEMP_SUFFIX);
+
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(tempFile);
+            out.write(bytes);
+            out.flush();
+            out.getFD().sync();
+            out.close();
+            out = null;
+
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("rename to " + file + " failed");
+            }
+
+        } catch (IOException e) {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            throw e;
+        }
+    }
+
+    @Nullable
+    PlayerConfigManager.CachedConfig load(KalturaPlayer.Type playerType, int partnerId) {
+        final File file = recordFile(playerType, partnerId);
+        if (!file.exists()) {
+            return null;
+        }
+
+        final ByteBuffer buffer;
+        try {
+            buffer = readFully(file);
+        } catch (IOException e) {
+            log.e("Failed to open config " + file, e);
+            return null;
+        }
+
+        final PlayerConfigManager.CachedConfig config = decode(playerType, buffer);
+        if (config == null) {
+            log.e("Dropping corrupt config cache " + file);
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+        return config;
+    }
+
+    static ByteBuffer readFully(File file) throws IOException {
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            final FileChannel channel = in.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the (player type, partnerId) of every record in the store, without reading them.
+     */
+    List<RecordKey> list() {
+        final List<RecordKey> keys = new ArrayList<>();
+        final String[] names = dir.list();
+        if (names == null) {
+            return keys;
+        }
+        for (String name : names) {
+            if (!name.endsWith(RECORD_SUFFIX)) {
+                continue;
+            }
+            final int dash = name.indexOf('-');
+            if (dash < 0) {
+                continue;
+            }
+            try {
+                final KalturaPlayer.Type playerType = KalturaPlayer.Type.valueOf(name.substring(0, dash));
+                final int partnerId = Integer.parseInt(name.substring(dash + 1, name.length() - RECORD_SUFFIX.length()));
+                keys.add(new RecordKey(playerType, partnerId));
+            } catch (IllegalArgumentException e) {
+                log.w("Ignoring unexpected file in config cache: " + name);
+            }
+        }
+        return keys;
+    }
+
+    private File recordFile(KalturaPlayer.Type playerType, int partnerId) {
+        return new File(dir, playerType + "-" + partnerId + RECORD_SUFFIX);
+    }
+
+    static byte[] encode(KalturaPlayer.Type playerType, PlayerConfigManager.CachedConfig config) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final TVPlayerParams params = config.params;
+
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+        out.writeLong(config.timestamp);
+        writeString(out, playerType.name());
+        final boolean phoenix = params instanceof PhoenixTVPlayerParams;
+        out.writeBoolean(phoenix);
+        writeParams(out, params, phoenix ? phoenixParamsFields : tvPlayerParamsFields);
+        writeString(out, config.etag);
+        writeString(out, config.lastModified);
+        out.flush();
+
+        final CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray(), 0, bytes.size());
+        out.writeLong(crc.getValue());
+        out.flush();
+
+        return bytes.toByteArray();
+    }
+
+    @Nullable
+    static PlayerConfigManager.CachedConfig decode(KalturaPlayer.Type playerType, ByteBuffer buffer) {
+        final int length = buffer.remaining();
+        if (length <= CHECKSUM_SIZE) {
+            return null;
+        }
+
+        if (!hasValidChecksum(buffer)) {
+            return null;
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                return null;
+            }
+            if (buffer.getShort() != FORMAT_VERSION) {
+                return null;
+            }
+            final long timestamp = buffer.getLong();
+            if (!playerType.name().equals(readString(buffer))) {
+                return null;
+            }
+
+            final boolean phoenix = buffer.get() != 0;
+            final TVPlayerParams params = phoenix ? new PhoenixTVPlayerParams() : new TVPlayerParams();
+            readParams(buffer, params, phoenix ? phoenixParamsFields : tvPlayerParamsFields);
+            return new PlayerConfigManager.CachedConfig(timestamp, params, readString(buffer), readString(buffer));
+
+        } catch (BufferUnderflowException | IllegalArgumentException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    static final class RecordKey {
+        final KalturaPlayer.Type playerType;
+        final int partnerId;
+
+        RecordKey(KalturaPlayer.Type playerType, int partnerId) {
+            this.playerType = playerType;
+            this.partnerId = partnerId;
+        }
+    }
+
+    // The String and Integer instance fields of a params class, by name. Fields of other types are not stored.
+    private static Map<String, Field> paramsFields(Class<? extends TVPlayerParams> paramsClass) {
+        final Map<String, Field> fields = new HashMap<>();
+        for (Class<?> current = paramsClass; current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                if (field.getType() != String.class && field.getType() != Integer.class) {
+                    log.w("Params field " + field.getName() + " of type " + field.getType() + " is not stored");
+                    continue;
+                }
+                field.setAccessible(true);
+                fields.put(field.getName(), field);
+            }
+        }
+        return fields;
+    }
+
+    private static void writeParams(DataOutputStream out, TVPlayerParams params, Map<String, Field> fields) throws IOException {
+        out.writeShort(fields.size());
+        for (Field field : fields.values()) {
+            final Object value;
+            try {
+                value = field.get(params);
+            } catch (IllegalAccessException e) {
+                throw new IOException("Can't read params field " + field.getName(), e);
+            }
+            writeString(out, field.getName());
+            if (value == null) {
+                out.writeByte(TYPE_NULL);
+            } else if (value instanceof String) {
+                out.writeByte(TYPE_STRING);
+                writeString(out, (String) value);
+            } else {
+                out.writeByte(TYPE_INT);
+                out.writeInt((Integer) value);
+            }
+        }
+    }
+
+    private static void readParams(ByteBuffer buffer, TVPlayerParams params, Map<String, Field> fields) throws IllegalAccessException {
+        final int count = buffer.getShort();
+        for (int i = 0; i < count; i++) {
+            final Field field = fields.get(readString(buffer));
+            final byte type = buffer.get();
+            final Object value;
+            if (type == TYPE_NULL) {
+                value = null;
+            } else if (type == TYPE_STRING) {
+                value = readString(buffer);
+            } else if (type == TYPE_INT) {
+                value = buffer.getInt();
+            } else {
+                throw new IllegalArgumentException("Unknown params field type " + type);
+            }
+            // a field of an older params class, or one that changed type, is dropped
+            if (field != null && (value == null || field.getType().isInstance(value))) {
+                field.set(params, value);
+            }
+        }
+    }
+
+    private static boolean hasValidChecksum(ByteBuffer buffer) {
+        final int length = buffer.remaining();
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length - CHECKSUM_SIZE);
+        return crc.getValue() == buffer.getLong(buffer.position() + length - CHECKSUM_SIZE);
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    private static String readString(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        final String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -61,6 +61,11 @@ public class PlayerInitOptions {
     public Integer maxVideoBitrate;
     public Integer maxAudioBitrate;
     public Integer maxAudioChannelCount;
+    public Long playerConfigTimeoutMs;
+    public Boolean configCacheStatsEventsEnabled;
+    public Long mediaEntryInterceptorTimeoutMs;
+    public PKMediaEntryInterceptor.FailurePolicy mediaEntryInterceptorFailurePolicy;
+    public Boolean mediaEntryCacheEnabled;
 
     public PlayerInitOptions() {
         partnerId = null;
@@ -335,6 +340,44 @@ public class PlayerInitOptions {
         }
         return this;
     }
+
+    public PlayerInitOptions setPlayerConfigTimeoutMs(Long playerConfigTimeoutMs) {
+        if (playerConfigTimeoutMs != null) {
+            this.playerConfigTimeoutMs = playerConfigTimeoutMs;
+        }
+        return this;
+    }
+
+    public PlayerInitOptions setConfigCacheStatsEventsEnabled(Boolean configCacheStatsEventsEnabled) {
+        if (configCacheStatsEventsEnabled != null) {
+            this.configCacheStatsEventsEnabled = configCacheStatsEventsEnabled;
+        }
+        return this;
+    }
+
+    public PlayerInitOptions setMediaEntryInterceptorTimeoutMs(Long mediaEntryInterceptorTimeoutMs) {
+        if (mediaEntryInterceptorTimeoutMs != null) {
+            this.mediaEntryInterceptorTimeoutMs = mediaEntryInterceptorTimeoutMs;
+        }
+        return this;
+    }
+
+    public PlayerInitOptions setMediaEntryInterceptorFailurePolicy(PKMediaEntryInterceptor.FailurePolicy mediaEntryInterceptorFailurePolicy) {
+        if (mediaEntryInterceptorFailurePolicy != null) {
+            this.mediaEntryInterceptorFailurePolicy = mediaEntryInterceptorFailurePolicy;
+        }
+        return this;
+    }
+
+    /**
+     * Serve repeated OVP/OTT media loads from the process-wide {@link MediaEntryCache} while its TTL lasts.
+     */
+    public PlayerInitOptions setMediaEntryCacheEnabled(Boolean mediaEntryCacheEnabled) {
+        if (mediaEntryCacheEnabled != null) {
+            this.mediaEntryCacheEnabled = mediaEntryCacheEnabled;
+        }
+        return this;
+    }
 }
 
 
@@ -0,0 +1,177 @@
+package com.kaltura.tvplayer;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import com.kaltura.netkit.utils.ErrorElement;
+import com.kaltura.playkit.PKLog;
+import com.kaltura.tvplayer.config.TVPlayerParams;
+
+import java.util.Arrays;
+
+/**
+ * Runs the stages of {@code initialize()} - DRM provisioning, player config retrieval and, if asked for, plugin
+ * registration and connection warm-up (once the config is known) - at the same time, and reports them together when the last one
+ * is done, or when the deadline passes with the unfinished ones marked as timed out. Stages that time out keep
+ * running; only their report is dropped.
+ */
+class PlayerInitializer {
+
+    private static final PKLog log = PKLog.get("PlayerInitializer");
+
+    /** Deadline of the whole of {@code initialize()} when it reports to a listener; see the public overloads. */
+    static final long DEFAULT_TIMEOUT_MS = 10000;
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final long startTime = SystemClock.elapsedRealtime();
+    private final long timeoutMs;
+    private final long[] durationsMs = new long[InitializeResult.Stage.values().length];
+    private final ErrorElement[] errors = new ErrorElement[InitializeResult.Stage.values().length];
+    private final boolean[] running = new boolean[InitializeResult.Stage.values().length];
+    private final boolean[] timedOut = new boolean[InitializeResult.Stage.values().length];
+    private final KalturaPlayer.OnInitializeListener listener;
+    private final Runnable deadline = this::timedOut;
+    // Guarded by this.
+    private int pendingStages;
+    private boolean reported;
+    private TVPlayerParams playerConfig;
+
+    private PlayerInitializer(long timeoutMs, @Nullable KalturaPlayer.OnInitializeListener listener) {
+        this.timeoutMs = timeoutMs;
+        this.listener = listener;
+        Arrays.fill(durationsMs, -1);
+    }
+
+    /**
+     * @param preparePlugins look up the plugin classes in the background and register them on the main thread.
+     * @param timeoutMs deadline of the report; 0 or less waits for every stage.
+     */
+    static void initialize(Context context, KalturaPlayer.Type type, int partnerId, @Nullable String serverUrl,
+                           boolean warmUpConnections, boolean preparePlugins, long timeoutMs,
+                           @Nullable KalturaPlayer.OnInitializeListener listener) {
+        final PlayerInitializer initializer = new PlayerInitializer(timeoutMs, listener);
+        initializer.start(InitializeResult.Stage.DRM, InitializeResult.Stage.PLAYER_CONFIG);
+        if (preparePlugins) {
+            initializer.start(InitializeResult.Stage.PLUGINS);
+        }
+        if (warmUpConnections) {
+            initializer.start(InitializeResult.Stage.WARM_UP);
+        }
+        if (timeoutMs > 0) {
+            mainHandler.postDelayed(initializer.deadline, timeoutMs);
+        }
+
+        KalturaPlayer.initializeDrm(context, (pkDeviceCapabilitiesInfo, provisionError) ->
+                initializer.stageDone(InitializeResult.Stage.DRM, provisionError != null
+                        ? new ErrorElement("DRM initialization failed: " + provisionError.getMessage(), "DrmInitError") : null));
+
+        if (preparePlugins) {
+            KnownPlugin.registerAllInBackground(context, KalturaPlayer.Type.ott.equals(type),
+                    () -> initializer.stageDone(InitializeResult.Stage.PLUGINS, null));
+        }
+
+        PlayerConfigManager.retrieve(context, type, partnerId, serverUrl, (config, error, freshness) -> {
+            if (error != null) {
+                log.e("initialize KalturaPlayerType failed");
+            } else {
+                PlayerConfigManager.markConfigReady();
+            }
+            synchronized (initializer) {
+                initializer.playerConfig = config;
+            }
+            initializer.stageDone(InitializeResult.Stage.PLAYER_CONFIG, error);
+
+            if (!warmUpConnections) {
+                return;
+            }
+            if (error != null) {
+                initializer.stageSkipped(InitializeResult.Stage.WARM_UP);
+                return;
+            }
+            final long warmUpStart = SystemClock.elapsedRealtime();
+            KalturaPlayer.warmUpConnections(config, () ->
+                    initializer.stageDone(InitializeResult.Stage.WARM_UP, null, warmUpStart));
+        });
+    }
+
+    private synchronized void start(InitializeResult.Stage... stages) {
+        for (InitializeResult.Stage stage : stages) {
+            running[stage.ordinal()] = true;
+            pendingStages++;
+        }
+    }
+
+    private void stageDone(InitializeResult.Stage stage, @Nullable ErrorElement error) {
+        stageDone(stage, error, startTime);
+    }
+
+    private void stageDone(InitializeResult.Stage stage, @Nullable ErrorElement error, long stageStart) {
+        synchronized (this) {
+            if (!running[stage.ordinal()]) {
+                return; // reported twice, or after its deadline
+            }
+            running[stage.ordinal()] = false;
+            durationsMs[stage.ordinal()] = SystemClock.elapsedRealtime() - stageStart;
+            errors[stage.ordinal()] = error;
+        }
+        finishStage();
+    }
+
+    private void stageSkipped(InitializeResult.Stage stage) {
+        synchronized (this) {
+            if (!running[stage.ordinal()]) {
+                return;
+            }
+            running[stage.ordinal()] = false;
+        }
+        finishStage();
+    }
+
+    // Counts a stage as finished, run or not, and reports once all of them are.
+    private void finishStage() {
+        synchronized (this) {
+            if (--pendingStages > 0 || reported) {
+                return;
+            }
+            reported = true;
+        }
+        mainHandler.removeCallbacks(deadline);
+        report();
+    }
+
+    private void timedOut() {
+        synchronized (this) {
+            if (reported) {
+                return;
+            }
+            reported = true;
+            for (InitializeResult.Stage stage : InitializeResult.Stage.values()) {
+                final int i = stage.ordinal();
+                if (running[i]) {
+                    running[i] = false;
+                    timedOut[i] = true;
+                    durationsMs[i] = SystemClock.elapsedRealtime() - startTime;
+                    errors[i] = new ErrorElement(stage + " didn't complete within " + timeoutMs + "ms", "InitializeTimeout");
+                }
+            }
+        }
+        report();
+    }
+
+    private void report() {
+        final InitializeResult result;
+        synchronized (this) {
+            result = new InitializeResult(SystemClock.elapsedRealtime() - startTime, playerConfig, durationsMs.clone(),
+                    errors.clone(), timedOut.clone());
+        }
+        log.d(result.toString());
+        if (listener != null) {
+            mainHandler.post(() -> listener.onInitialized(result));
+        }
+    }
+}
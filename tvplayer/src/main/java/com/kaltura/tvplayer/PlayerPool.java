@@ -0,0 +1,216 @@
+package com.kaltura.tvplayer;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.kaltura.playkit.PKLog;
+import com.kaltura.playkit.PKPluginConfigs;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The bookkeeping behind {@link KalturaPlayerPool}: idle players by key, lent players and hit / miss counts. It is
+ * generic over the player, and leaves building, resetting and destroying players to {@link Players}, so it can be
+ * exercised without real players. All methods must be called on the main thread.
+ */
+final class PlayerPool<P> {
+
+    private static final PKLog log = PKLog.get("PlayerPool");
+
+    /**
+     * The key of options that can't be compared by value. Players acquired with it are never kept idle, as no later
+     * acquire can be known to ask for the same options. No keyOf() of comparable options produces it.
+     */
+    static final String UNSHARED_KEY = "unshared";
+
+    // Derived from partnerId / ks rather than chosen by the app, so they don't tell players apart.
+    private static final String[] NON_KEY_FIELDS = {"tvPlayerParams", "ks"};
+
+    private static final Gson gson = new Gson();
+
+    interface Players<P> {
+        P create(KalturaPlayer.Type type, PlayerInitOptions initOptions);
+
+        /** Prepares an idle player for the options it is acquired with. */
+        void reuse(P player, PlayerInitOptions initOptions);
+
+        /** Drops the state of the previous owner. */
+        void reset(P player);
+
+        void destroy(P player);
+    }
+
+    private final Players<P> players;
+    private final int maxIdlePerKey;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, ArrayDeque<P>> idlePlayers = new HashMap<>();
+    private final Map<P, String> lentPlayers = new HashMap<>();
+    private int hitCount;
+    private int missCount;
+
+    PlayerPool(Players<P> players, int maxIdlePerKey) {
+        this.players = players;
+        this.maxIdlePerKey = maxIdlePerKey;
+    }
+
+    void prewarm(@NonNull KalturaPlayer.Type type, @NonNull PlayerInitOptions initOptions, int count) {
+        final String key = keyOf(type, initOptions);
+        if (UNSHARED_KEY.equals(key)) {
+            log.w("prewarm() with options that can't be compared by value; no player is built");
+            return;
+        }
+        final int target = Math.min(count, maxIdlePerKey);
+        for (int i = 0; i < target; i++) {
+            mainHandler.post(() -> {
+                final ArrayDeque<P> idle = idleFor(key);
+                if (idle.size() < target) {
+                    idle.push(players.create(type, initOptions));
+                }
+            });
+        }
+    }
+
+    @NonNull
+    P acquire(@NonNull KalturaPlayer.Type type, @NonNull PlayerInitOptions initOptions) {
+        final String key = keyOf(type, initOptions);
+
+        P player = UNSHARED_KEY.equals(key) ? null : idleFor(key).poll();
+        if (player != null) {
+            hitCount++;
+            players.reuse(player, initOptions);
+        } else {
+            missCount++;
+            player = players.create(type, initOptions);
+        }
+        lentPlayers.put(player, key);
+        return player;
+    }
+
+    void release(@NonNull P player) {
+        final String key = lentPlayers.remove(player);
+        if (key == null) {
+            log.w("release() of a player that wasn't acquired from this pool; destroying it");
+            players.destroy(player);
+            return;
+        }
+
+        if (UNSHARED_KEY.equals(key)) {
+            players.destroy(player);
+            return;
+        }
+        final ArrayDeque<P> idle = idleFor(key);
+        if (idle.size() >= maxIdlePerKey) {
+            players.destroy(player);
+            return;
+        }
+        players.reset(player);
+        idle.push(player);
+    }
+
+    void clear() {
+        for (ArrayDeque<P> idle : idlePlayers.values()) {
+            for (P player : idle) {
+                players.destroy(player);
+            }
+        }
+        idlePlayers.clear();
+    }
+
+    int getHitCount() {
+        return hitCount;
+    }
+
+    int getMissCount() {
+        return missCount;
+    }
+
+    int getIdleCount() {
+        int idleCount = 0;
+        for (ArrayDeque<P> idle : idlePlayers.values()) {
+            idleCount += idle.size();
+        }
+        return idleCount;
+    }
+
+    int getLentCount() {
+        return lentPlayers.size();
+    }
+
+    private ArrayDeque<P> idleFor(String key) {
+        ArrayDeque<P> idle = idlePlayers.get(key);
+        if (idle == null) {
+            idle = new ArrayDeque<>();
+            idlePlayers.put(key, idle);
+        }
+        return idle;
+    }
+
+    /**
+     * @return the player type and the values of the public fields of the options, or {@link #UNSHARED_KEY} if one of
+     * them can't be compared by value.
+     */
+    static String keyOf(KalturaPlayer.Type type, PlayerInitOptions initOptions) {
+        final StringBuilder key = new StringBuilder(type.name());
+        for (Field field : PlayerInitOptions.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || isNonKeyField(field.getName())) {
+                continue;
+            }
+            final Object value;
+            try {
+                value = field.get(initOptions);
+            } catch (IllegalAccessException e) {
+                continue;
+            }
+            final String valueKey = valueKeyOf(value);
+            if (valueKey == null) {
+                return UNSHARED_KEY;
+            }
+            key.append('|').append(field.getName()).append('=').append(valueKey);
+        }
+        return key.toString();
+    }
+
+    @Nullable
+    private static String valueKeyOf(Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Enum) {
+            return String.valueOf(value);
+        }
+        if (value instanceof PKPluginConfigs) {
+            final Map<String, String> configs = new TreeMap<>(); // by plugin name, whatever order they were set in
+            for (Map.Entry<String, Object> config : (PKPluginConfigs) value) {
+                final String configKey = valueKeyOf(config.getValue());
+                if (configKey == null) {
+                    return null;
+                }
+                configs.put(config.getKey(), configKey);
+            }
+            return configs.toString();
+        }
+        try {
+            return value.getClass().getName() + gson.toJson(value);
+        } catch (RuntimeException | StackOverflowError e) {
+            // Gson fails on platform types and recurses without end on cyclic references, e.g. an adapter holding a
+            // Context.
+            log.w("Can't key " + value.getClass().getName() + " by value; its player won't be reused");
+            return null;
+        }
+    }
+
+    private static boolean isNonKeyField(String name) {
+        for (String nonKeyField : NON_KEY_FIELDS) {
+            if (nonKeyField.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,37 @@
+package com.kaltura.tvplayer;
+
+import com.kaltura.playkit.PKEvent;
+
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class PlayerStartupEvent implements PKEvent {
+
+    public static final Class<StartupTimeline> startupTimeline = StartupTimeline.class;
+
+    public final Type type;
+
+    public PlayerStartupEvent(PlayerStartupEvent.Type type) {
+        this.type = type;
+    }
+
+    /**
+     * Posted once per playback session, at the first frame (or at canPlay when the player doesn't autoplay).
+     */
+    public static class StartupTimeline extends PlayerStartupEvent {
+
+        public final PlayerStartupTimeline timeline;
+
+        public StartupTimeline(PlayerStartupTimeline timeline) {
+            super(Type.STARTUP_TIMELINE);
+            this.timeline = timeline;
+        }
+    }
+
+    public enum Type {
+        STARTUP_TIMELINE
+    }
+
+    @Override
+    public Enum eventType() {
+        return this.type;
+    }
+}
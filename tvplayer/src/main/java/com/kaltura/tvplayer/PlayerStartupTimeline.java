@@ -0,0 +1,134 @@
+package com.kaltura.tvplayer;
+
+import com.kaltura.tvplayer.utils.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Where the startup time of one playback session went. A session runs from the start of a load (or of the player
+ * construction, for the first one) until the first frame - or until canPlay when the player doesn't autoplay.
+ * Times are taken from {@code SystemClock.elapsedRealtime()}.
+ *
+ * Every session is also added to a summary across all players, see {@link #getSummary()}.
+ */
+public class PlayerStartupTimeline {
+
+    public enum Phase {
+        /** Plugin registration, in the player constructor. Only done by the first player of the process. */
+        REGISTER_PLUGINS,
+        /** Plugin configs and {@code PlayKitManager.loadPlayer}, in the player constructor. */
+        LOAD_PLAYER,
+        /** Applying the init options to the player settings, in the player constructor. */
+        UPDATE_PLAYER_SETTINGS,
+        /** Waiting for the player config before loading the media. */
+        CONFIG_WAIT,
+        /** The media provider request. */
+        PROVIDER_LOAD,
+        /** The media entry interceptors. */
+        INTERCEPTORS,
+        /** From prepare() to canPlay. */
+        PREPARE,
+        /** From prepare() to the first playing event. */
+        FIRST_FRAME
+    }
+
+    private static final Map<Phase, LatencyHistogram> phaseLatencies = new EnumMap<>(Phase.class);
+    private static final LatencyHistogram totalLatency = new LatencyHistogram();
+
+    static {
+        for (Phase phase : Phase.values()) {
+            phaseLatencies.put(phase, new LatencyHistogram());
+        }
+    }
+
+    public final long startTime;
+    public final long totalMs;
+    private final long[] startOffsetsMs;
+    private final long[] durationsMs;
+
+    PlayerStartupTimeline(long startTime, long endTime, long[] phaseStarts, long[] phaseEnds) {
+        this.startTime = startTime;
+        this.totalMs = endTime - startTime;
+        this.startOffsetsMs = new long[phaseStarts.length];
+        this.durationsMs = new long[phaseStarts.length];
+        for (int i = 0; i < phaseStarts.length; i++) {
+            final boolean measured = phaseStarts[i] >= 0 && phaseEnds[i] >= 0;
+            startOffsetsMs[i] = measured ? phaseStarts[i] - startTime : -1;
+            durationsMs[i] = measured ? phaseEnds[i] - phaseStarts[i] : -1;
+        }
+    }
+
+    /**
+     * @return how long the phase took, or -1 if it wasn't part of this session.
+     */
+    public long getDurationMs(Phase phase) {
+        return durationsMs[phase.ordinal()];
+    }
+
+    /**
+     * @return when the phase started, relative to the start of the session, or -1 if it wasn't part of it.
+     */
+    public long getStartOffsetMs(Phase phase) {
+        return startOffsetsMs[phase.ordinal()];
+    }
+
+    void addToSummary() {
+        for (Phase phase : Phase.values()) {
+            final long duration = getDurationMs(phase);
+            if (duration >= 0) {
+                phaseLatencies.get(phase).record(duration);
+            }
+        }
+        totalLatency.record(totalMs);
+    }
+
+    public static Summary getSummary() {
+        final Map<Phase, LatencyHistogram.Snapshot> snapshots = new EnumMap<>(Phase.class);
+        for (Map.Entry<Phase, LatencyHistogram> entry : phaseLatencies.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return new Summary(snapshots, totalLatency.snapshot());
+    }
+
+    public static void resetSummary() {
+        for (LatencyHistogram histogram : phaseLatencies.values()) {
+            histogram.reset();
+        }
+        totalLatency.reset();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder out = new StringBuilder("PlayerStartupTimeline{total=").append(totalMs).append("ms");
+        for (Phase phase : Phase.values()) {
+            if (getDurationMs(phase) >= 0) {
+                out.append(", ").append(phase).append("=+").append(getStartOffsetMs(phase))
+                        .append('/').append(getDurationMs(phase)).append("ms");
+            }
+        }
+        return out.append('}').toString();
+    }
+
+    /**
+     * Latency distribution of each phase, and of whole sessions, over all sessions so far.
+     */
+    public static class Summary {
+        private final Map<Phase, LatencyHistogram.Snapshot> latencies;
+        public final LatencyHistogram.Snapshot total;
+
+        Summary(Map<Phase, LatencyHistogram.Snapshot> latencies, LatencyHistogram.Snapshot total) {
+            this.latencies = latencies;
+            this.total = total;
+        }
+
+        public LatencyHistogram.Snapshot getLatency(Phase phase) {
+            return latencies.get(phase);
+        }
+
+        @Override
+        public String toString() {
+            return "PlayerStartupTimeline.Summary{total: " + total + ", phases: " + latencies + "}";
+        }
+    }
+}
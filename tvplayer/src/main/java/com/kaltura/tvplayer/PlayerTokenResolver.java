@@ -6,84 +6,82 @@ import com.kaltura.playkit.PKMediaEntry;
 import com.kaltura.tvplayer.config.PhoenixTVPlayerParams;
 import com.kaltura.tvplayer.utils.MapTokenResolver;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 class PlayerTokenResolver extends MapTokenResolver {
 
-    private List<String> entryKeys = new ArrayList<>();
-    private List<String> globalKeys = new ArrayList<>();
+    // Tokens from the init options and from the current media entry, each replaced as a whole on update.
+    // The KS is kept apart since both updates set it and the latest one wins.
+    private Map<String, String> globalValues = Collections.emptyMap();
+    private Map<String, String> entryValues = Collections.emptyMap();
+    private String ks;
 
-    void update(PKMediaEntry mediaEntry, String ks) {
+    synchronized void update(PKMediaEntry mediaEntry, String ks) {
 
-        removeAll(entryKeys);
+        final Map<String, String> values = new HashMap<>();
 
         if (mediaEntry != null) {
             Map<String, String> mediaEntryMetadata = mediaEntry.getMetadata();
             if (mediaEntryMetadata != null) {
-                for (Map.Entry<String, String> metadataEntry : mediaEntryMetadata.entrySet()) {
-                    set(metadataEntry.getKey(), metadataEntry.getValue());
-                    entryKeys.add(metadataEntry.getKey());
-                }
-            }
-
-            if (mediaEntry.getMediaType() != null) {
-                set("entryType", mediaEntry.getMediaType().name());
+                values.putAll(mediaEntryMetadata);
             }
 
             if (ks != null) {
-                set("ks", ks);
+                this.ks = ks;
             }
 
             if (TextUtils.isDigitsOnly(mediaEntry.getId())) /* OTT Media */ {
-                set("entryId", (mediaEntryMetadata != null && !TextUtils.isEmpty(mediaEntryMetadata.get("entryId"))) ? mediaEntryMetadata.get("entryId") : "unknown");
-                set("assetId", mediaEntry.getId());
+                values.put("entryId", (mediaEntryMetadata != null && !TextUtils.isEmpty(mediaEntryMetadata.get("entryId"))) ? mediaEntryMetadata.get("entryId") : "unknown");
+                values.put("assetId", mediaEntry.getId());
             } else {
-                set("entryId", mediaEntry.getId());
+                values.put("entryId", mediaEntry.getId());
             }
-            set("entryName", mediaEntry.getName());
+            values.put("entryName", mediaEntry.getName());
             if (mediaEntry.getMediaType() != null) {
-                set("entryType", mediaEntry.getMediaType().name());
+                values.put("entryType", mediaEntry.getMediaType().name());
             }
-
-            entryKeys.add("entryId");
-            entryKeys.add("entryName");
-            entryKeys.add("entryType");
-
-            rebuild();
         }
+
+        entryValues = values;
+        publish();
     }
 
-    void update(PlayerInitOptions initOptions) {
+    synchronized void update(PlayerInitOptions initOptions) {
 
-        removeAll(globalKeys);
+        final Map<String, String> values = new HashMap<>();
 
         if (initOptions != null && initOptions.tvPlayerParams != null) {
             if (initOptions.tvPlayerParams.uiConfId != null) {
-                set("uiConfId", String.valueOf(initOptions.tvPlayerParams.uiConfId));
+                values.put("uiConfId", String.valueOf(initOptions.tvPlayerParams.uiConfId));
             }
             if (initOptions.tvPlayerParams.partnerId != null) {
-                set("partnerId", String.valueOf(initOptions.tvPlayerParams.partnerId));
+                values.put("partnerId", String.valueOf(initOptions.tvPlayerParams.partnerId));
             }
             if (initOptions.tvPlayerParams instanceof PhoenixTVPlayerParams) {
                 Integer kavaPartnerId = ((PhoenixTVPlayerParams)initOptions.tvPlayerParams).ovpPartnerId;
                 if (kavaPartnerId != null) {
-                    set("kavaPartnerId", String.valueOf(kavaPartnerId));
+                    values.put("kavaPartnerId", String.valueOf(kavaPartnerId));
                 }
             }
 
-            set("ks", (initOptions.ks != null) ? initOptions.ks : "");
-            set("referrer", (initOptions.referrer != null) ? initOptions.referrer : "");
-
-            globalKeys.add("uiConfId");
-            globalKeys.add("partnerId");
-            globalKeys.add("kavaPartnerId");
-            globalKeys.add("ks");
-            globalKeys.add("referrer");
+            ks = (initOptions.ks != null) ? initOptions.ks : "";
+            values.put("referrer", (initOptions.referrer != null) ? initOptions.referrer : "");
+        } else {
+            ks = null;
         }
 
-        rebuild();
+        globalValues = values;
+        publish();
     }
 
+    private void publish() {
+        final Map<String, String> values = new HashMap<>(globalValues);
+        values.putAll(entryValues);
+        if (ks != null) {
+            values.put("ks", ks);
+        }
+        publish(values);
+    }
 }
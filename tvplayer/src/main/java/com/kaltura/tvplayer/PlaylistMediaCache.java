@@ -0,0 +1,297 @@
+package com.kaltura.tvplayer;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.kaltura.playkit.PKLog;
+import com.kaltura.playkit.PKMediaEntry;
+import com.kaltura.tvplayer.playlist.PlaylistMediaFootprint;
+import com.kaltura.tvplayer.playlist.PlaylistOptions;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The media entries a {@link PKPlaylistController} has resolved, by media id. Holds at most maxEntries of them:
+ * when it is full, the entries farthest from the current item are dropped first. Entries at pinned indexes - the
+ * current item and its preload window - are never dropped for the limit, so the cache may hold more than maxEntries
+ * while the window is larger than that. While it holds entries it listens to
+ * the application's memory callbacks and drops entries when the system runs low on memory - all but the neighbours of
+ * the current item when the app is running low, all but the current one when memory is critical or the app's process
+ * is in the background LRU list. It is only weakly referenced from there, so a dropped controller does not leak it.
+ *
+ * A media id may be marked as failed to play. The marks are kept apart from the entries: they don't count toward
+ * maxEntries and are never dropped. Entries a prefetch resolved are kept as the provider returned them, the
+ * interceptors are applied when they are played.
+ */
+class PlaylistMediaCache {
+
+    private static final PKLog log = PKLog.get("PlaylistMediaCache");
+
+    interface EvictionListener {
+        /**
+         * @param index - the playlist index of the dropped entry.
+         * @param lowMemory - dropped for low memory rather than for the size limit.
+         */
+        void onEvicted(int index, boolean lowMemory);
+    }
+
+    private final Map<String, Item> items = new HashMap<>();
+    private final Set<String> failedMediaIds = new HashSet<>();
+    private final Set<Integer> pinnedIndexes = new HashSet<>();
+    private final @Nullable Context context;
+    private @Nullable MemoryCallbacks memoryCallbacks;
+    private @Nullable EvictionListener evictionListener;
+    private int maxEntries = PlaylistOptions.DEFAULT_LOADED_MEDIAS_LIMIT;
+    private int currentIndex;
+    private int loopSize; // the playlist size when it loops, otherwise 0
+    private int evictionCount;
+
+    /**
+     * @param context - to register for the memory callbacks with; null to only drop entries for the size limit.
+     */
+    PlaylistMediaCache(@Nullable Context context) {
+        this.context = (context != null) ? context.getApplicationContext() : null;
+    }
+
+    void setMaxEntries(int maxEntries) {
+        this.maxEntries = Math.max(maxEntries, 1);
+        evictToLimit();
+    }
+
+    void setEvictionListener(@Nullable EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Sets the item that distances are measured from.
+     */
+    void setCurrentIndex(int currentIndex) {
+        this.currentIndex = currentIndex;
+    }
+
+    /**
+     * When the playlist loops, distances wrap around its end: the last item is next to the first one.
+     */
+    void setLoop(boolean loopEnabled, int playlistSize) {
+        this.loopSize = loopEnabled ? Math.max(playlistSize, 0) : 0;
+    }
+
+    /**
+     * Sets the indexes whose entries are kept over the size limit; they are still dropped for low memory.
+     */
+    void setPinnedIndexes(Collection<Integer> indexes) {
+        pinnedIndexes.clear();
+        pinnedIndexes.addAll(indexes);
+        evictToLimit();
+    }
+
+    boolean containsKey(String mediaId) {
+        return items.containsKey(mediaId) || failedMediaIds.contains(mediaId);
+    }
+
+    /**
+     * @return the entry of mediaId; null if there is none or the media is marked as failed.
+     */
+    @Nullable
+    PKMediaEntry get(String mediaId) {
+        final Item item = items.get(mediaId);
+        return (item != null) ? item.mediaEntry : null;
+    }
+
+    /**
+     * @return true if the entry of mediaId was prefetched and the interceptors were not applied to it yet.
+     */
+    boolean isResolvedOnly(String mediaId) {
+        final Item item = items.get(mediaId);
+        return item != null && item.resolvedOnly;
+    }
+
+    /**
+     * Adds an entry that the interceptors were applied to; null marks the media as failed to play.
+     */
+    void put(String mediaId, int index, @Nullable PKMediaEntry mediaEntry) {
+        if (mediaEntry == null) {
+            items.remove(mediaId);
+            failedMediaIds.add(mediaId);
+            return;
+        }
+        put(mediaId, new Item(index, mediaEntry, false));
+    }
+
+    /**
+     * Adds a prefetched entry, still without the interceptors.
+     */
+    void putResolved(String mediaId, int index, @NonNull PKMediaEntry mediaEntry) {
+        put(mediaId, new Item(index, mediaEntry, true));
+    }
+
+    private void put(String mediaId, Item item) {
+        failedMediaIds.remove(mediaId);
+        items.put(mediaId, item);
+        registerMemoryCallbacks();
+        evictToLimit();
+    }
+
+    void clear() {
+        items.clear();
+        failedMediaIds.clear();
+        unregisterMemoryCallbacks();
+    }
+
+    /**
+     * Measures the entries that were not measured yet, so it does some work on the first call after they were added.
+     */
+    PlaylistMediaFootprint getFootprint() {
+        long estimatedBytes = 0;
+        for (Item item : items.values()) {
+            estimatedBytes += item.getEstimatedBytes();
+        }
+        return new PlaylistMediaFootprint(items.size(), maxEntries, failedMediaIds.size(), estimatedBytes, evictionCount);
+    }
+
+    void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            evictFartherThan(0);
+        } else if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            evictFartherThan(1);
+        }
+    }
+
+    void onLowMemory() {
+        evictFartherThan(0);
+    }
+
+    private void registerMemoryCallbacks() {
+        if (memoryCallbacks == null && context != null) {
+            memoryCallbacks = new MemoryCallbacks(this, context);
+            context.registerComponentCallbacks(memoryCallbacks);
+        }
+    }
+
+    private void unregisterMemoryCallbacks() {
+        if (memoryCallbacks != null && context != null) {
+            context.unregisterComponentCallbacks(memoryCallbacks);
+        }
+        memoryCallbacks = null;
+    }
+
+    private void evictToLimit() {
+        while (items.size() > maxEntries) {
+            String farthestId = null;
+            int farthestDistance = -1;
+            for (Map.Entry<String, Item> item : items.entrySet()) {
+                final int distance = distanceOf(item.getValue());
+                if (distance > farthestDistance && !pinnedIndexes.contains(item.getValue().index)) {
+                    farthestDistance = distance;
+                    farthestId = item.getKey();
+                }
+            }
+            if (farthestId == null) {
+                return; // only pinned entries left
+            }
+            final Item item = items.remove(farthestId);
+            evictionCount++;
+            if (evictionListener != null) {
+                evictionListener.onEvicted(item.index, false);
+            }
+        }
+    }
+
+    private void evictFartherThan(int maxDistance) {
+        final int sizeBefore = items.size();
+        final Iterator<Map.Entry<String, Item>> iterator = items.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Item item = iterator.next().getValue();
+            if (distanceOf(item) > maxDistance) {
+                iterator.remove();
+                evictionCount++;
+                if (evictionListener != null) {
+                    evictionListener.onEvicted(item.index, true);
+                }
+            }
+        }
+        log.d("trimmed " + (sizeBefore - items.size()) + " entries; " + items.size() + " left");
+    }
+
+    private int distanceOf(Item item) {
+        final int distance = Math.abs(item.index - currentIndex);
+        return (loopSize > 0) ? Math.min(distance % loopSize, loopSize - distance % loopSize) : distance;
+    }
+
+    private static class Item {
+        final int index;
+        final PKMediaEntry mediaEntry;
+        final boolean resolvedOnly;
+        private long estimatedBytes = -1;
+
+        Item(int index, PKMediaEntry mediaEntry, boolean resolvedOnly) {
+            this.index = index;
+            this.mediaEntry = mediaEntry;
+            this.resolvedOnly = resolvedOnly;
+        }
+
+        // The size of the entry's Parcel form - a rough measure of the sources, DRM params and metadata it holds.
+        long getEstimatedBytes() {
+            if (estimatedBytes < 0) {
+                final Parcel parcel = Parcel.obtain();
+                try {
+                    parcel.writeParcelable(mediaEntry, 0);
+                    estimatedBytes = parcel.dataSize();
+                } catch (RuntimeException e) {
+                    log.e("Can't measure media entry " + mediaEntry.getId(), e);
+                    estimatedBytes = 0;
+                } finally {
+                    parcel.recycle();
+                }
+            }
+            return estimatedBytes;
+        }
+    }
+
+    // Registered on the application context, which outlives the cache: holds it weakly and unregisters itself
+    // once the cache is gone.
+    private static class MemoryCallbacks implements ComponentCallbacks2 {
+        private final WeakReference<PlaylistMediaCache> cacheRef;
+        private final Context context;
+
+        MemoryCallbacks(PlaylistMediaCache cache, Context context) {
+            this.cacheRef = new WeakReference<>(cache);
+            this.context = context;
+        }
+
+        @Override
+        public void onTrimMemory(int level) {
+            final PlaylistMediaCache cache = cacheRef.get();
+            if (cache != null) {
+                cache.onTrimMemory(level);
+            } else {
+                context.unregisterComponentCallbacks(this);
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+            final PlaylistMediaCache cache = cacheRef.get();
+            if (cache != null) {
+                cache.onLowMemory();
+            } else {
+                context.unregisterComponentCallbacks(this);
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        }
+    }
+}
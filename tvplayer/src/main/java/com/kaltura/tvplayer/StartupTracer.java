@@ -0,0 +1,91 @@
+package com.kaltura.tvplayer;
+
+import android.os.SystemClock;
+
+import java.util.Arrays;
+
+/**
+ * Collects the phase times of the current playback session of one player; see {@link PlayerStartupTimeline}.
+ * Phases may end on a provider thread, so all methods are synchronized.
+ */
+class StartupTracer {
+
+    private static final int PHASE_COUNT = PlayerStartupTimeline.Phase.values().length;
+
+    private final long[] phaseStarts = new long[PHASE_COUNT];
+    private final long[] phaseEnds = new long[PHASE_COUNT];
+    private long sessionStart = -1;
+
+    StartupTracer() {
+        clearPhases();
+    }
+
+    /**
+     * Starts a new session, discarding the current one - unless the current one only holds the player
+     * construction, which then counts as the start of the new one.
+     */
+    synchronized void beginSession() {
+        if (sessionStart >= 0 && onlyConstruction()) {
+            return;
+        }
+        clearPhases();
+        sessionStart = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Starts a new session for media set directly, unless one is already on its way to prepare().
+     */
+    synchronized void beginSessionIfIdle() {
+        if (sessionStart < 0 || phaseStarts[PlayerStartupTimeline.Phase.PREPARE.ordinal()] >= 0) {
+            clearPhases();
+            sessionStart = SystemClock.elapsedRealtime();
+        }
+    }
+
+    synchronized void begin(PlayerStartupTimeline.Phase phase) {
+        if (sessionStart >= 0) {
+            phaseStarts[phase.ordinal()] = SystemClock.elapsedRealtime();
+            phaseEnds[phase.ordinal()] = -1;
+        }
+    }
+
+    synchronized void end(PlayerStartupTimeline.Phase phase) {
+        if (sessionStart >= 0 && phaseStarts[phase.ordinal()] >= 0 && phaseEnds[phase.ordinal()] < 0) {
+            phaseEnds[phase.ordinal()] = SystemClock.elapsedRealtime();
+        }
+    }
+
+    /**
+     * Ends the session and adds it to the summary.
+     *
+     * @return the session's timeline, or null if there is no session.
+     */
+    synchronized PlayerStartupTimeline finish() {
+        if (sessionStart < 0) {
+            return null;
+        }
+        final PlayerStartupTimeline timeline = new PlayerStartupTimeline(sessionStart, SystemClock.elapsedRealtime(), phaseStarts, phaseEnds);
+        timeline.addToSummary();
+        reset();
+        return timeline;
+    }
+
+    synchronized void reset() {
+        clearPhases();
+        sessionStart = -1;
+    }
+
+    private boolean onlyConstruction() {
+        for (PlayerStartupTimeline.Phase phase : PlayerStartupTimeline.Phase.values()) {
+            if (phaseStarts[phase.ordinal()] >= 0 && phase.compareTo(PlayerStartupTimeline.Phase.UPDATE_PLAYER_SETTINGS) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void clearPhases() {
+        Arrays.fill(phaseStarts, -1);
+        Arrays.fill(phaseEnds, -1);
+    }
+}
@@ -0,0 +1,157 @@
+package com.kaltura.tvplayer.config;
+
+import androidx.annotation.Nullable;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.kaltura.playkit.PKLog;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Single-pass parser for the partner config responses. Reads the body straight off the stream into
+ * {@link TVPlayerParams} / {@link PhoenixTVPlayerParams}, skipping everything else, and recognizes API errors by
+ * their objectType instead of searching the text for it. Field handling matches what Gson did for these classes:
+ * unknown names are skipped, nulls stay null, numeric strings are accepted for numbers.
+ */
+public class PlayerConfigParser {
+
+    private static final PKLog log = PKLog.get("PlayerConfigParser");
+
+    private static final String API_EXCEPTION = "KalturaAPIException";
+
+    /**
+     * @return the OVP partner params, or null if the server answered with an API exception.
+     */
+    @Nullable
+    public static TVPlayerParams parseOvp(Reader in) throws IOException {
+        final JsonReader reader = new JsonReader(in);
+        try {
+            final TVPlayerParams params = new TVPlayerParams();
+            return readParams(reader, params, true) ? params : null;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @return the params object of an OTT configurations response, or null if the server answered with an
+     * API exception. A response without params yields empty params, as the Gson mapping did.
+     */
+    @Nullable
+    public static PhoenixTVPlayerParams parseOtt(Reader in) throws IOException {
+        final JsonReader reader = new JsonReader(in);
+        try {
+            PhoenixTVPlayerParams params = null;
+            boolean failed = false;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if ("params".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    params = new PhoenixTVPlayerParams();
+                    failed |= !readParams(reader, params, true);
+                } else if ("objectType".equals(name)) {
+                    failed |= isApiException(reader);
+                } else if ("result".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    // Phoenix wraps failures as {"result": {"error": {"objectType": "KalturaAPIException", ...}}}
+                    failed |= !readParams(reader, null, false);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (failed) {
+                return null;
+            }
+            return params != null ? params : new PhoenixTVPlayerParams();
+        } finally {
+            reader.close();
+        }
+    }
+
+    // Reads one object into params (when given). Returns false if it, or a nested "error" object, is an API exception.
+    private static boolean readParams(JsonReader reader, @Nullable TVPlayerParams params, boolean topLevel) throws IOException {
+        boolean ok = true;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if ("objectType".equals(name)) {
+                ok &= !isApiException(reader);
+                continue;
+            }
+            if ("error".equals(name) && !topLevel && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                ok &= readParams(reader, null, false);
+                continue;
+            }
+            if (params == null) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "serviceUrl":
+                    params.serviceUrl = nextString(reader);
+                    break;
+                case "analyticsUrl":
+                    params.analyticsUrl = nextString(reader);
+                    break;
+                case "uiConfId":
+                    params.uiConfId = nextInteger(reader);
+                    break;
+                case "partnerId":
+                    params.partnerId = nextInteger(reader);
+                    break;
+                case "ovpServiceUrl":
+                    if (params instanceof PhoenixTVPlayerParams) {
+                        ((PhoenixTVPlayerParams) params).ovpServiceUrl = nextString(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "ovpPartnerId":
+                    if (params instanceof PhoenixTVPlayerParams) {
+                        ((PhoenixTVPlayerParams) params).ovpPartnerId = nextInteger(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return ok;
+    }
+
+    private static boolean isApiException(JsonReader reader) throws IOException {
+        if (API_EXCEPTION.equals(nextString(reader))) {
+            log.e("Config response is a " + API_EXCEPTION);
+            return true;
+        }
+        return false;
+    }
+
+    @Nullable
+    private static String nextString(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                return null;
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            default:
+                return reader.nextString();
+        }
+    }
+
+    @Nullable
+    private static Integer nextInteger(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextInt();
+    }
+}
@@ -0,0 +1,29 @@
+package com.kaltura.tvplayer.playlist;
+
+/**
+ * Number and estimated size of the resolved medias a playlist controller keeps in memory.
+ */
+public class PlaylistMediaFootprint {
+    public final int entryCount;
+    public final int maxEntries;
+    /** Medias marked as failed to play; kept apart from the entries and not limited. */
+    public final int failedCount;
+    /** Sum of the entries' Parcel sizes; an estimate, not the heap size. */
+    public final long estimatedBytes;
+    /** Entries dropped for the size limit or low memory so far. */
+    public final int evictionCount;
+
+    public PlaylistMediaFootprint(int entryCount, int maxEntries, int failedCount, long estimatedBytes, int evictionCount) {
+        this.entryCount = entryCount;
+        this.maxEntries = maxEntries;
+        this.failedCount = failedCount;
+        this.estimatedBytes = estimatedBytes;
+        this.evictionCount = evictionCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PlaylistMediaFootprint{entries=" + entryCount + "/" + maxEntries + ", failed=" + failedCount +
+                ", estimatedBytes=" + estimatedBytes + ", evictions=" + evictionCount + "}";
+    }
+}
@@ -1,10 +1,14 @@
 package com.kaltura.tvplayer.playlist;
 
 public abstract class PlaylistOptions {
+    public static final int DEFAULT_LOADED_MEDIAS_LIMIT = 20;
+
     public boolean loopEnabled;
     public boolean autoContinue = true;
     public boolean recoverOnError = false;
     public int startIndex = 0;
     public CountDownOptions playlistCountDownOptions = new CountDownOptions();
+    public int loadedMediasLimit = DEFAULT_LOADED_MEDIAS_LIMIT; // resolved medias kept in memory, farthest from the current one dropped first; the preload window is always kept
+    public PlaylistPreloadPolicy preloadPolicy; // null - only the next item is preloaded, when the count down starts
 }
 
@@ -0,0 +1,85 @@
+package com.kaltura.tvplayer.playlist;
+
+/**
+ * Which playlist items the controller resolves ahead of time around the current one, and when. The window is
+ * resolved once per played item, when the trigger is reached; jumping to another item cancels the preloads that
+ * are outside its window. Not relevant for basic player.
+ */
+public class PlaylistPreloadPolicy {
+
+    public enum Trigger {
+        /** As soon as the item starts loading. */
+        ON_START,
+        /** When the item starts playing. */
+        AFTER_FIRST_FRAME,
+        /** When the given percent of the item was played. */
+        AT_PERCENT_PLAYED
+    }
+
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 3;
+
+    private int forwardCount;
+    private int backwardCount;
+    private Trigger trigger;
+    private int percentPlayed;
+    private int maxConcurrentRequests;
+
+    public PlaylistPreloadPolicy() {
+        this(1, 0, Trigger.AFTER_FIRST_FRAME);
+    }
+
+    public PlaylistPreloadPolicy(int forwardCount, int backwardCount, Trigger trigger) {
+        this.forwardCount = Math.max(forwardCount, 0);
+        this.backwardCount = Math.max(backwardCount, 0);
+        this.trigger = (trigger != null) ? trigger : Trigger.AFTER_FIRST_FRAME;
+        this.maxConcurrentRequests = DEFAULT_MAX_CONCURRENT_REQUESTS;
+    }
+
+    // will preload once percentPlayed of the current item was played
+    public PlaylistPreloadPolicy(int forwardCount, int backwardCount, int percentPlayed) {
+        this(forwardCount, backwardCount, Trigger.AT_PERCENT_PLAYED);
+        setPercentPlayed(percentPlayed);
+    }
+
+    public int getForwardCount() {
+        return forwardCount;
+    }
+
+    public int getBackwardCount() {
+        return backwardCount;
+    }
+
+    public Trigger getTrigger() {
+        return trigger;
+    }
+
+    public int getPercentPlayed() {
+        return percentPlayed;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public void setForwardCount(int forwardCount) {
+        this.forwardCount = Math.max(forwardCount, 0);
+    }
+
+    public void setBackwardCount(int backwardCount) {
+        this.backwardCount = Math.max(backwardCount, 0);
+    }
+
+    public void setTrigger(Trigger trigger) {
+        if (trigger != null) {
+            this.trigger = trigger;
+        }
+    }
+
+    public void setPercentPlayed(int percentPlayed) {
+        this.percentPlayed = Math.min(Math.max(percentPlayed, 0), 100);
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = Math.max(maxConcurrentRequests, 1);
+    }
+}
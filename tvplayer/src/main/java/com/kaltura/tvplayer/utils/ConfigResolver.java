@@ -1,13 +1,48 @@
 package com.kaltura.tvplayer.utils;
 import android.os.Bundle;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 import com.kaltura.playkit.PKLog;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ConfigResolver {
     private static PKLog log = PKLog.get("ConfigResolver");
+
+    private static final String TOKEN_START = "{{";
+
+    // Deeper structures are left as they are; also stops reference cycles.
+    private static final int MAX_DEPTH = 16;
+
+    // Reflection is done once per class and kept here.
+    private static final Map<Class<?>, ClassAccessor> classAccessors = new ConcurrentHashMap<>();
+    // Hand-written (or generated) resolvers for known config types; they bypass reflection entirely.
+    private static final Map<Class<?>, Accessor<?>> registeredAccessors = new ConcurrentHashMap<>();
+
+    /**
+     * Resolves a config type without reflection. Implementations return a resolved copy, or the config itself when
+     * nothing in it needs resolving.
+     */
+    public interface Accessor<T> {
+        T resolve(T config, TokenResolver tokenResolver);
+    }
+
+    public static <T> void registerAccessor(Class<T> configClass, Accessor<T> accessor) {
+        registeredAccessors.put(configClass, accessor);
+    }
+
     public static <T> T resolve(T config, TokenResolver tokenResolver) {
         if (config instanceof JsonObject) {
             //noinspection unchecked -- the compiler doesn't know that T==JsonObject
@@ -17,6 +52,12 @@ public class ConfigResolver {
             //noinspection unchecked -- the compiler doesn't know that T==Bundle
             return (T) resolveBundle((Bundle)config, tokenResolver);
         }
+        if (config != null) {
+            final Accessor<T> accessor = getRegisteredAccessor(config);
+            if (accessor != null) {
+                return accessor.resolve(config, tokenResolver);
+            }
+        }
         try {
             // We know for sure that the return type is T because of how resolveImp() works.
             //noinspection unchecked
@@ -32,47 +73,352 @@ public class ConfigResolver {
             return null;
         }
     }
+
+    // JsonObject and Bundle configs are walked in place and copied on write: only the containers on the path to a
+    // resolved string - a value, or a key in JSON - are new, untouched subtrees are shared, and the original comes back
+    // if nothing resolved. Callers that hand the result to code that may change it copy it themselves.
     private static JsonObject resolveJsonObject(JsonObject config, TokenResolver tokenResolver) {
-        // Resolve by converting to string and back
-        final String resolved = resolveString(config.toString(), tokenResolver);
-        return (JsonObject) new JsonParser().parse(resolved);
+        JsonObject resolvedObject = null;
+        for (Map.Entry<String, JsonElement> entry : config.entrySet()) {
+            final String key = entry.getKey();
+            String resolvedKey = key;
+            if (key.contains(TOKEN_START)) {
+                final String resolved = resolveString(key, tokenResolver);
+                if (resolved != null) {
+                    resolvedKey = resolved;
+                }
+            }
+            final JsonElement value = entry.getValue();
+            final JsonElement resolved = resolveJsonElement(value, tokenResolver);
+            if (resolvedObject == null && (resolved != value || !resolvedKey.equals(key))) {
+                resolvedObject = new JsonObject();
+                for (Map.Entry<String, JsonElement> previous : config.entrySet()) {
+                    if (previous.getKey().equals(key)) {
+                        break;
+                    }
+                    resolvedObject.add(resolveKey(previous.getKey(), tokenResolver), previous.getValue());
+                }
+            }
+            if (resolvedObject != null) {
+                resolvedObject.add(resolvedKey, resolved);
+            }
+        }
+        return resolvedObject != null ? resolvedObject : config;
+    }
+    // Keys before the first change resolved to themselves; only one holding a placeholder needs another look.
+    private static String resolveKey(String key, TokenResolver tokenResolver) {
+        if (!key.contains(TOKEN_START)) {
+            return key;
+        }
+        final String resolved = resolveString(key, tokenResolver);
+        return resolved != null ? resolved : key;
+    }
+    private static JsonElement resolveJsonElement(JsonElement element, TokenResolver tokenResolver) {
+        if (element.isJsonObject()) {
+            return resolveJsonObject(element.getAsJsonObject(), tokenResolver);
+        }
+        if (element.isJsonArray()) {
+            return resolveJsonArray(element.getAsJsonArray(), tokenResolver);
+        }
+        if (element.isJsonPrimitive() && element.getAsJsonPrimitive().isString()) {
+            final String value = element.getAsString();
+            if (value.contains(TOKEN_START)) {
+                final String resolved = resolveString(value, tokenResolver);
+                if (resolved != null && !resolved.equals(value)) {
+                    return new JsonPrimitive(resolved);
+                }
+            }
+        }
+        return element;
+    }
+    private static JsonArray resolveJsonArray(JsonArray array, TokenResolver tokenResolver) {
+        JsonArray resolvedArray = null;
+        for (int i = 0; i < array.size(); i++) {
+            final JsonElement item = array.get(i);
+            final JsonElement resolved = resolveJsonElement(item, tokenResolver);
+            if (resolvedArray == null && resolved != item) {
+                resolvedArray = new JsonArray();
+                for (int j = 0; j < i; j++) {
+                    resolvedArray.add(array.get(j));
+                }
+            }
+            if (resolvedArray != null) {
+                resolvedArray.add(resolved);
+            }
+        }
+        return resolvedArray != null ? resolvedArray : array;
     }
     private static Bundle resolveBundle(Bundle config, TokenResolver tokenResolver) {
-        Bundle resolvedBundle = new Bundle();
-        resolvedBundle.putAll(config); // add all values and then update the relevant ones only
+        Bundle resolvedBundle = null;
         for (String key : config.keySet()) {
             Object value = config.get(key);
             if (value instanceof String) {
-                final String resolved = resolveString((String) value, tokenResolver);
-                resolvedBundle.putString(key, resolved);
+                final String string = (String) value;
+                if (!string.contains(TOKEN_START)) {
+                    continue;
+                }
+                final String resolved = resolveString(string, tokenResolver);
+                if (resolved == null || !resolved.equals(string)) {
+                    resolvedBundle = resolvedBundle != null ? resolvedBundle : new Bundle(config); // shallow copy, then update the changed values only
+                    resolvedBundle.putString(key, resolved);
+                }
             } else if (value instanceof Bundle) {
                 Bundle resolvedInnerBundle = resolveBundle((Bundle) value, tokenResolver);
-                resolvedBundle.putBundle(key, resolvedInnerBundle);
-            } 
+                if (resolvedInnerBundle != value) {
+                    resolvedBundle = resolvedBundle != null ? resolvedBundle : new Bundle(config);
+                    resolvedBundle.putBundle(key, resolvedInnerBundle);
+                }
+            }
         }
-        return resolvedBundle;
+        return resolvedBundle != null ? resolvedBundle : config;
     }
 
+    /**
+     * @return a copy of a JsonObject or Bundle config that shares no container with it, so whoever gets the copy can
+     * change it freely; any other config as is.
+     */
+    public static Object copyContainers(Object config) {
+        if (config instanceof JsonObject) {
+            return ((JsonObject) config).deepCopy();
+        }
+        if (config instanceof Bundle) {
+            final Bundle bundle = (Bundle) config;
+            final Bundle copy = new Bundle(bundle);
+            for (String key : bundle.keySet()) {
+                final Object value = bundle.get(key);
+                if (value instanceof Bundle) {
+                    copy.putBundle(key, (Bundle) copyContainers(value));
+                }
+            }
+            return copy;
+        }
+        return config;
+    }
+
+    // The top-level config is always copied, as callers expect; nested values are only copied if something in them resolved.
     private static Object resolveObject(Object config, TokenResolver tokenResolver) throws SecurityException, InstantiationException, IllegalAccessException {
-        final Class<?> configClass = config.getClass();
-        Object out = configClass.newInstance();
-        for (Field field : configClass.getDeclaredFields()) {
-            if (Modifier.isStatic(field.getModifiers())) {
-                // Don't look at static fields
-                continue;
-            }
-            field.setAccessible(true);
+        final ClassAccessor accessor = getClassAccessor(config.getClass());
+        Object out = accessor.newInstance();
+        for (Field field : accessor.fields) {
             final Object value = field.get(config);
-            if (value instanceof String) {
-                field.set(out, resolveString((String) value, tokenResolver));
-            } else if (value != null) {
-                field.set(out, value);
+            if (value != null) {
+                field.set(out, resolveValue(value, tokenResolver, 1));
             }
-            // TODO: 2019-06-06 Recurse into Lists, arrays, Maps?
         }
         return out;
     }
+
+    /**
+     * Resolves a value found inside a config: strings, nested config objects, Lists, Maps (values) and object arrays.
+     * @return the value itself if nothing in it resolved to something different, otherwise a resolved copy.
+     */
+    static Object resolveValue(Object value, TokenResolver tokenResolver) {
+        return resolveValue(value, tokenResolver, 0);
+    }
+
+    private static Object resolveValue(Object value, TokenResolver tokenResolver, int depth) {
+        if (value == null || isLeaf(value)) {
+            return value;
+        }
+        if (value instanceof String) {
+            // Keep the original instance when nothing changed, so the containers above it aren't copied.
+            final String resolved = resolveString((String) value, tokenResolver);
+            return value.equals(resolved) ? value : resolved;
+        }
+        if (depth >= MAX_DEPTH) {
+            return value;
+        }
+        if (value instanceof JsonObject || value instanceof Bundle) {
+            return resolve(value, tokenResolver);
+        }
+        final Accessor<Object> registered = getRegisteredAccessor(value);
+        if (registered != null) {
+            return registered.resolve(value, tokenResolver);
+        }
+        if (value instanceof List) {
+            return resolveList((List<?>) value, tokenResolver, depth);
+        }
+        if (value instanceof Map) {
+            return resolveMap((Map<?, ?>) value, tokenResolver, depth);
+        }
+        if (value instanceof Object[]) {
+            return resolveArray((Object[]) value, tokenResolver, depth);
+        }
+        if (isPlatformClass(value.getClass())) {
+            return value;
+        }
+        return resolveNestedObject(value, tokenResolver, depth);
+    }
+
+    private static Object resolveList(List<?> list, TokenResolver tokenResolver, int depth) {
+        List<Object> resolved = null;
+        for (int i = 0; i < list.size(); i++) {
+            final Object item = list.get(i);
+            final Object resolvedItem = resolveValue(item, tokenResolver, depth + 1);
+            if (resolved == null && resolvedItem != item) {
+                resolved = new ArrayList<>(list.size());
+                resolved.addAll(list.subList(0, i));
+            }
+            if (resolved != null) {
+                resolved.add(resolvedItem);
+            }
+        }
+        return resolved != null ? resolved : list;
+    }
+
+    private static Object resolveMap(Map<?, ?> map, TokenResolver tokenResolver, int depth) {
+        Map<Object, Object> resolved = null;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            final Object resolvedValue = resolveValue(entry.getValue(), tokenResolver, depth + 1);
+            if (resolved == null && resolvedValue != entry.getValue()) {
+                resolved = new LinkedHashMap<>(map);
+            }
+            if (resolved != null) {
+                resolved.put(entry.getKey(), resolvedValue);
+            }
+        }
+        return resolved != null ? resolved : map;
+    }
+
+    private static Object resolveArray(Object[] array, TokenResolver tokenResolver, int depth) {
+        Object[] resolved = null;
+        for (int i = 0; i < array.length; i++) {
+            final Object resolvedItem = resolveValue(array[i], tokenResolver, depth + 1);
+            if (resolved == null && resolvedItem != array[i]) {
+                resolved = (Object[]) Array.newInstance(array.getClass().getComponentType(), array.length);
+                System.arraycopy(array, 0, resolved, 0, array.length);
+            }
+            if (resolved != null) {
+                resolved[i] = resolvedItem;
+            }
+        }
+        return resolved != null ? resolved : array;
+    }
+
+    private static Object resolveNestedObject(Object value, TokenResolver tokenResolver, int depth) {
+        final ClassAccessor accessor = getClassAccessor(value.getClass());
+        if (!accessor.canInstantiate()) {
+            return value;
+        }
+        try {
+            Object[] resolvedValues = null;
+            for (int i = 0; i < accessor.fields.length; i++) {
+                final Object fieldValue = accessor.fields[i].get(value);
+                final Object resolvedFieldValue = resolveValue(fieldValue, tokenResolver, depth + 1);
+                if (resolvedValues == null && resolvedFieldValue != fieldValue) {
+                    resolvedValues = new Object[accessor.fields.length];
+                    for (int j = 0; j < i; j++) {
+                        resolvedValues[j] = accessor.fields[j].get(value);
+                    }
+                }
+                if (resolvedValues != null) {
+                    resolvedValues[i] = resolvedFieldValue;
+                }
+            }
+            if (resolvedValues == null) {
+                return value;
+            }
+
+            final Object out = accessor.newInstance();
+            for (int i = 0; i < accessor.fields.length; i++) {
+                if (resolvedValues[i] != null) {
+                    accessor.fields[i].set(out, resolvedValues[i]);
+                }
+            }
+            return out;
+        } catch (InstantiationException | IllegalAccessException | SecurityException e) {
+            log.e("Failed to resolve nested config " + value.getClass().getName(), e);
+            return value;
+        }
+    }
+
+    /**
+     * @return the non-static fields of the class and its superclasses, already made accessible.
+     */
+    public static List<Field> getFields(Class<?> configClass) {
+        return Collections.unmodifiableList(Arrays.asList(getClassAccessor(configClass).fields));
+    }
+
+    static Object newInstance(Class<?> configClass) throws InstantiationException, IllegalAccessException {
+        return getClassAccessor(configClass).newInstance();
+    }
+
+    private static ClassAccessor getClassAccessor(Class<?> configClass) {
+        ClassAccessor accessor = classAccessors.get(configClass);
+        if (accessor == null) {
+            accessor = new ClassAccessor(configClass);
+            classAccessors.put(configClass, accessor);
+        }
+        return accessor;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Accessor<T> getRegisteredAccessor(T config) {
+        return registeredAccessors.isEmpty() ? null : (Accessor<T>) registeredAccessors.get(config.getClass());
+    }
+
+    private static boolean isLeaf(Object value) {
+        return value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Enum;
+    }
+
+    // Framework and library types are never plugin config objects, and their internals are off limits.
+    private static boolean isPlatformClass(Class<?> valueClass) {
+        final String name = valueClass.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("android.")
+                || name.startsWith("androidx.") || name.startsWith("kotlin.") || name.startsWith("com.google.gson.");
+    }
+
     private static String resolveString(String string, TokenResolver tokenResolver) {
         return tokenResolver.resolve(string);
     }
+
+    private static class ClassAccessor {
+        final Field[] fields;
+        private final Constructor<?> constructor;
+
+        ClassAccessor(Class<?> configClass) {
+            final List<Field> fieldList = new ArrayList<>();
+            for (Class<?> c = configClass; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                        // Don't look at static fields, or at compiler-generated ones like this$0
+                        continue;
+                    }
+                    try {
+                        field.setAccessible(true);
+                        fieldList.add(field);
+                    } catch (SecurityException e) {
+                        log.e("Can't access " + configClass.getName() + "." + field.getName(), e);
+                    }
+                }
+            }
+            fields = fieldList.toArray(new Field[0]);
+
+            Constructor<?> noArgConstructor = null;
+            try {
+                noArgConstructor = configClass.getDeclaredConstructor();
+                noArgConstructor.setAccessible(true);
+            } catch (NoSuchMethodException | SecurityException e) {
+                // Can't be copied; newInstance() reports it like Class.newInstance() would.
+            }
+            constructor = noArgConstructor;
+        }
+
+        boolean canInstantiate() {
+            return constructor != null;
+        }
+
+        Object newInstance() throws InstantiationException, IllegalAccessException {
+            if (constructor == null) {
+                throw new InstantiationException("No accessible no-arg constructor");
+            }
+            try {
+                return constructor.newInstance();
+            } catch (InvocationTargetException e) {
+                final InstantiationException instantiationException = new InstantiationException(String.valueOf(e.getCause()));
+                instantiationException.initCause(e.getCause());
+                throw instantiationException;
+            }
+        }
+    }
 }
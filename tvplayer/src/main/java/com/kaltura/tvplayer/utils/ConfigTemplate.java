@@ -0,0 +1,170 @@
+package com.kaltura.tvplayer.utils;
+
+import android.os.Bundle;
+
+import com.google.gson.JsonObject;
+import com.kaltura.playkit.PKLog;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A plugin config scanned once for the {@code {{token}}} placeholders it uses. Resolving it again only does work
+ * when one of those tokens changed value; otherwise the previous result is returned as is, so callers can tell (by
+ * identity) that the plugin doesn't need an update. For plain config objects only the fields that hold placeholders,
+ * directly or anywhere below them, are resolved; JsonObject and Bundle configs go through {@link ConfigResolver}.
+ *
+ * The config is not looked at again after compile(): a config changed in place needs a new template, which
+ * {@code KalturaPlayer.updatePluginConfig} makes for it. Until then the old content keeps being resolved.
+ */
+public class ConfigTemplate {
+
+    private static final PKLog log = PKLog.get("ConfigTemplate");
+
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("\\{\\{(.+?)\\}\\}");
+
+    private final Object config;
+    private String[] tokens;
+    // For plain objects: all instance fields, and the subset holding placeholders. Null for JsonObject / Bundle.
+    private List<Field> fields;
+    private List<Field> tokenFields;
+
+    private String[] lastValues;
+    private Object lastResolved;
+    // The MapTokenResolver (and its version) the last result was resolved against, if it was one.
+    private MapTokenResolver lastSource;
+    private long lastVersion;
+
+    private ConfigTemplate(Object config) {
+        this.config = config;
+        scan();
+    }
+
+    public static ConfigTemplate compile(Object config) {
+        return new ConfigTemplate(config);
+    }
+
+    private void scan() {
+        final Set<String> tokens = new LinkedHashSet<>();
+        // Walk the config the way ConfigResolver will, recording the placeholders it would hand to the resolver.
+        final TokenCollector collector = new TokenCollector(tokens);
+        if (config instanceof JsonObject || config instanceof Bundle) {
+            ConfigResolver.resolve(config, collector);
+            this.tokens = tokens.toArray(new String[0]);
+            return;
+        }
+
+        final List<Field> fields = new ArrayList<>();
+        final List<Field> tokenFields = new ArrayList<>();
+        if (config != null) {
+            fields.addAll(ConfigResolver.getFields(config.getClass()));
+            for (Field field : fields) {
+                try {
+                    collector.found = false;
+                    ConfigResolver.resolveValue(field.get(config), collector);
+                    if (collector.found) {
+                        tokenFields.add(field);
+                    }
+                } catch (IllegalAccessException e) {
+                    log.e("Can't read config field " + field.getName(), e);
+                }
+            }
+        }
+        this.tokens = tokens.toArray(new String[0]);
+        this.fields = fields;
+        this.tokenFields = tokenFields;
+    }
+
+    /**
+     * @return the config this template was compiled from.
+     */
+    public Object getConfig() {
+        return config;
+    }
+
+    public Set<String> getTokens() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(tokens)));
+    }
+
+    /**
+     * @return the resolved config; the very same instance as the previous call if none of the tokens it uses changed.
+     */
+    public Object resolve(TokenResolver tokenResolver) {
+        MapTokenResolver source = null;
+        long version = 0;
+        if (tokenResolver instanceof MapTokenResolver) {
+            // Resolve against one snapshot, so the values compared and the values used are the same ones.
+            source = (MapTokenResolver) tokenResolver;
+            final MapTokenResolver.Snapshot snapshot = source.snapshot();
+            version = snapshot.getVersion();
+            if (lastResolved != null && source == lastSource && version == lastVersion) {
+                return lastResolved;
+            }
+            tokenResolver = snapshot;
+        }
+
+        final String[] values = new String[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            values[i] = tokenResolver.resolve("{{" + tokens[i] + "}}");
+        }
+        if (lastResolved == null || !Arrays.equals(values, lastValues)) {
+            lastResolved = fields != null ? resolveFields(tokenResolver) : ConfigResolver.resolve(config, tokenResolver);
+            lastValues = values;
+        }
+        lastSource = source;
+        lastVersion = version;
+        return lastResolved;
+    }
+
+    private Object resolveFields(TokenResolver tokenResolver) {
+        try {
+            final Object out = ConfigResolver.newInstance(config.getClass());
+            for (Field field : fields) {
+                final Object value = field.get(config);
+                if (value == null) {
+                    continue;
+                }
+                field.set(out, tokenFields.contains(field) ? ConfigResolver.resolveValue(value, tokenResolver) : value);
+            }
+            return out;
+        } catch (InstantiationException | IllegalAccessException | SecurityException e) {
+            log.e("Can't copy config " + config.getClass().getName(), e);
+            return ConfigResolver.resolve(config, tokenResolver);
+        }
+    }
+
+    private static boolean collectTokens(String string, Set<String> tokens) {
+        if (string == null || !string.contains("{{")) {
+            return false;
+        }
+        boolean found = false;
+        final Matcher matcher = TOKEN_PATTERN.matcher(string);
+        while (matcher.find()) {
+            tokens.add(matcher.group(1));
+            found = true;
+        }
+        return found;
+    }
+
+    private static class TokenCollector implements TokenResolver {
+        private final Set<String> tokens;
+        boolean found;
+
+        TokenCollector(Set<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public String resolve(String string) {
+            found |= collectTokens(string, tokens);
+            return string;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.kaltura.tvplayer.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed, roughly logarithmic millisecond buckets. Percentiles are reported as the
+ * upper bound of the bucket they fall in, which is as precise as tuning timeouts and expirations needs.
+ */
+public class LatencyHistogram {
+
+    // Upper bounds (inclusive) in ms; the last bucket takes everything above the final bound.
+    private static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+    private final AtomicLongArray totals = new AtomicLongArray(2); // count, sum of ms
+
+    public void record(long latencyMs) {
+        counts.incrementAndGet(bucketOf(latencyMs));
+        totals.incrementAndGet(0);
+        totals.addAndGet(1, Math.max(0, latencyMs));
+    }
+
+    public Snapshot snapshot() {
+        final long[] bucketCounts = new long[counts.length()];
+        for (int i = 0; i < bucketCounts.length; i++) {
+            bucketCounts[i] = counts.get(i);
+        }
+        return new Snapshot(bucketCounts, totals.get(0), totals.get(1));
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totals.set(0, 0);
+        totals.set(1, 0);
+    }
+
+    private static int bucketOf(long latencyMs) {
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (latencyMs <= BUCKET_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+
+    public static class Snapshot {
+        public final long count;
+        public final long totalMs;
+        private final long[] bucketCounts;
+
+        Snapshot(long[] bucketCounts, long count, long totalMs) {
+            this.bucketCounts = bucketCounts;
+            this.count = count;
+            this.totalMs = totalMs;
+        }
+
+        public long getMeanMs() {
+            return count > 0 ? totalMs / count : 0;
+        }
+
+        /**
+         * @param percentile 0-100
+         * @return upper bound of the bucket holding that percentile, Long.MAX_VALUE if it is in the overflow bucket,
+         * 0 if nothing was recorded.
+         */
+        public long getPercentileMs(double percentile) {
+            long total = 0;
+            for (long bucketCount : bucketCounts) {
+                total += bucketCount;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen >= rank) {
+                    return i < BUCKET_BOUNDS_MS.length ? BUCKET_BOUNDS_MS[i] : Long.MAX_VALUE;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * @return bucket upper bounds in ms, matching {@link #getBucketCounts()} except for its final overflow bucket.
+         */
+        public long[] getBucketBoundsMs() {
+            return BUCKET_BOUNDS_MS.clone();
+        }
+
+        public long[] getBucketCounts() {
+            return bucketCounts.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + " mean=" + getMeanMs() + "ms p50=" + getPercentileMs(50) + "ms p95=" + getPercentileMs(95) + "ms";
+        }
+    }
+}
@@ -2,47 +2,147 @@ package com.kaltura.tvplayer.utils;
 
 import android.text.TextUtils;
 
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Resolves {{token}} placeholders from a key/value map. The map is never changed in place: every change publishes a
+ * new immutable {@link Snapshot}, so readers on any thread resolve without locking against one consistent set of
+ * values, and compare {@link #getVersion()} to know if anything changed since they last looked.
+ */
 public class MapTokenResolver implements TokenResolver {
-    private final Map<String, String> map = new HashMap<>();
-    private String[] sources = new String[0];
-    private String[] destinations = new String[0];
+    private static final String TOKEN_START = "{{";
+    private static final String TOKEN_END = "}}";
+    private static final int RESOLVED_CACHE_MAX_ENTRIES = 256;
 
-    protected void set(String key, String value) {
-        if (!TextUtils.isEmpty(key)) {
-            map.put(key, value);
+    private volatile Snapshot snapshot = new Snapshot(Collections.<String, String>emptyMap(), 0);
+
+    /**
+     * Replaces all values with the given ones, as a single change.
+     */
+    protected synchronized void publish(Map<String, String> values) {
+        final Map<String, String> copy = new HashMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (!TextUtils.isEmpty(entry.getKey())) {
+                copy.put(entry.getKey(), entry.getValue());
+            }
         }
+        snapshot = new Snapshot(Collections.unmodifiableMap(copy), snapshot.version + 1);
     }
 
-    protected void removeAll(List<String> keys) {
-        for (String key : keys) {
-            map.remove(key);
+    protected synchronized void set(String key, String value) {
+        if (!TextUtils.isEmpty(key)) {
+            final Map<String, String> values = new HashMap<>(snapshot.values);
+            values.put(key, value);
+            publish(values);
         }
     }
 
+    protected synchronized void removeAll(List<String> keys) {
+        final Map<String, String> values = new HashMap<>(snapshot.values);
+        values.keySet().removeAll(keys);
+        publish(values);
+    }
+
+    // Kept for subclasses: every change is published immediately, there is nothing left to rebuild.
     protected void rebuild() {
-        sources = new String[map.size()];
-        destinations = new String[map.size()];
-
-        final Iterator<Map.Entry<String, String>> it = map.entrySet().iterator();
-        int i = 0;
-        while (it.hasNext()) {
-            final Map.Entry<String, String> entry = it.next();
-            sources[i] = "{{" + entry.getKey() + "}}";
-            destinations[i] = entry.getValue();
-            i++;
-        }
     }
 
+    /**
+     * @return the current values. Resolving against the snapshot keeps using them even if the resolver changes.
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return a number that changes whenever the values do.
+     */
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    /**
+     * Replaces every {{token}} in the string with its value, in a single scan. Tokens without a value are left as is,
+     * and substituted values are not scanned again.
+     */
     @Override
     public String resolve(String string) {
-        if (string == null || sources.length == 0 || destinations.length == 0) {
-            return string;
+        return snapshot.resolve(string);
+    }
+
+    public static final class Snapshot implements TokenResolver {
+        private final Map<String, String> values;
+        private final long version;
+        // Resolved strings by input; belongs to this set of values only, so a change simply starts a new cache. Once
+        // full it stops taking new strings instead of evicting: the strings of the configs in use come in first, and
+        // a change of values empties it anyway.
+        private final Map<String, String> resolvedCache = new ConcurrentHashMap<>();
+
+        private Snapshot(Map<String, String> values, long version) {
+            this.values = values;
+            this.version = version;
+        }
+
+        public Map<String, String> getValues() {
+            return values;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public String resolve(String string) {
+            if (string == null || values.isEmpty() || !string.contains(TOKEN_START)) {
+                return string;
+            }
+
+            String resolved = resolvedCache.get(string);
+            if (resolved == null) {
+                resolved = substitute(string);
+                if (resolvedCache.size() < RESOLVED_CACHE_MAX_ENTRIES) {
+                    resolvedCache.put(string, resolved);
+                }
+            }
+            return resolved;
+        }
+
+        private String substitute(String string) {
+            StringBuilder out = null;
+            int copiedUpTo = 0;
+            int start = string.indexOf(TOKEN_START);
+
+            while (start >= 0) {
+                final int end = string.indexOf(TOKEN_END, start + TOKEN_START.length());
+                if (end < 0) {
+                    break;
+                }
+                // In "{{a {{b}}" only "{{b}}" is a token.
+                final int innerStart = string.indexOf(TOKEN_START, start + TOKEN_START.length());
+                if (innerStart >= 0 && innerStart < end) {
+                    start = innerStart;
+                    continue;
+                }
+
+                final String value = values.get(string.substring(start + TOKEN_START.length(), end));
+                if (value != null) {
+                    if (out == null) {
+                        out = new StringBuilder(string.length() + 32);
+                    }
+                    out.append(string, copiedUpTo, start).append(value);
+                    copiedUpTo = end + TOKEN_END.length();
+                }
+                start = string.indexOf(TOKEN_START, end + TOKEN_END.length());
+            }
+
+            if (out == null) {
+                return string;
+            }
+            return out.append(string, copiedUpTo, string.length()).toString();
         }
-        return TextUtils.replace(string, sources, destinations).toString();
     }
-}
\ No newline at end of file
+}
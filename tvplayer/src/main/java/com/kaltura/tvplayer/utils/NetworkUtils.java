@@ -4,23 +4,39 @@ import android.content.Context;
 import android.net.Uri;
 import android.os.Handler;
 
+import androidx.annotation.Nullable;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.kaltura.netkit.utils.ErrorElement;
 import com.kaltura.playkit.PKLog;
 import com.kaltura.playkit.PlayKitManager;
+import com.kaltura.playkit.player.PKHttpClientManager;
 import com.kaltura.playkit.plugins.kava.KavaAnalyticsConfig;
 import com.kaltura.playkit.providers.api.ovp.OvpConfigs;
+import com.kaltura.tvplayer.KalturaPlayer;
 import com.kaltura.tvplayer.PlayerConfigManager;
+import com.kaltura.tvplayer.config.PlayerConfigParser;
+import com.kaltura.tvplayer.config.TVPlayerParams;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 
@@ -29,11 +45,37 @@ import static com.kaltura.playkit.Utils.toBase64;
 public class NetworkUtils {
     
     private static final PKLog log = PKLog.get("NetworkUtils");
-    private static OkHttpClient client = new OkHttpClient();
+    private static OkHttpClient client;
     public static final String KALTURA_PLAYER = "com.kaltura.player";
     public static final String UDID = "kaltura-player-android/4.0.0";
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
 
     public static void requestOvpConfigByPartnerId(Context context, String baseUrl, int partnerId, PlayerConfigManager.InternalCallback callback) {
+        executeGETRequest(context, "requestOvpConfigByPartnerId", buildOvpConfigUrl(context, baseUrl, partnerId), null, null, null, toConfigCallback(callback));
+    }
+
+    /**
+     * Requests and parses the OVP partner config. When etag or lastModified is given the request is conditional,
+     * and an unchanged config comes back as a {@link ConfigResponse#notModified} response without params.
+     */
+    public static void requestOvpConfigByPartnerId(Context context, String baseUrl, int partnerId, @Nullable String etag, @Nullable String lastModified, PlayerConfigManager.ConfigCallback callback) {
+        executeGETRequest(context, "requestOvpConfigByPartnerId", buildOvpConfigUrl(context, baseUrl, partnerId), etag, lastModified, KalturaPlayer.Type.ovp, callback);
+    }
+
+    public static void requestOttConfigByPartnerId(Context context, String baseUrl, int partnerId, PlayerConfigManager.InternalCallback callback) {
+        executeGETRequest(context, "requestOttConfigByPartnerId", buildOttConfigUrl(context, baseUrl, partnerId), null, null, null, toConfigCallback(callback));
+    }
+
+    /**
+     * Requests and parses the OTT partner config, conditionally when etag or lastModified is given.
+     * See {@link #requestOvpConfigByPartnerId(Context, String, int, String, String, PlayerConfigManager.ConfigCallback)}.
+     */
+    public static void requestOttConfigByPartnerId(Context context, String baseUrl, int partnerId, @Nullable String etag, @Nullable String lastModified, PlayerConfigManager.ConfigCallback callback) {
+        executeGETRequest(context, "requestOttConfigByPartnerId", buildOttConfigUrl(context, baseUrl, partnerId), etag, lastModified, KalturaPlayer.Type.ott, callback);
+    }
+
+    private static String buildOvpConfigUrl(Context context, String baseUrl, int partnerId) {
 
         Map<String, String> params = new LinkedHashMap<>();
         params.put("service", "partner");
@@ -43,10 +85,10 @@ public class NetworkUtils {
 
         String configByPartnerIdUrl = buildConfigByPartnerIdUrl(context, baseUrl + OvpConfigs.ApiPrefix, params);
         //log.d("ovp configByPartnerIdUrl = " + configByPartnerIdUrl);
-        executeGETRequest(context, "requestOvpConfigByPartnerId", configByPartnerIdUrl, callback);
+        return configByPartnerIdUrl;
     }
 
-    public static void requestOttConfigByPartnerId(Context context, String baseUrl, int partnerId, PlayerConfigManager.InternalCallback callback) {
+    private static String buildOttConfigUrl(Context context, String baseUrl, int partnerId) {
         Map<String, String> params = new LinkedHashMap<>();
         params.put("service", "Configurations");
         params.put("action", "serveByDevice");
@@ -59,7 +101,14 @@ public class NetworkUtils {
 
         String configByPartnerIdUrl = buildConfigByPartnerIdUrl(context, baseUrl, params);
         //log.d("ott configByPartnerIdUrl = " + configByPartnerIdUrl);
-        executeGETRequest(context, "requestOttConfigByPartnerId", configByPartnerIdUrl, callback);
+        return configByPartnerIdUrl;
+    }
+
+    private static PlayerConfigManager.ConfigCallback toConfigCallback(PlayerConfigManager.InternalCallback callback) {
+        if (callback == null) {
+            return null;
+        }
+        return (response, error) -> callback.finished(response != null ? response.body : null, error);
     }
 
     private static String buildConfigByPartnerIdUrl(Context context, String baseUrl, Map<String, String> params) {
@@ -75,9 +124,72 @@ public class NetworkUtils {
     }
 
     public static void sendKavaImpression(Context context) {
-        OkHttpClient client = new OkHttpClient();
         String kavaImpressionUrl = buildKavaImpressionUrl(context);
-        executeGETRequest(context, "sendKavaImpression", kavaImpressionUrl, null);
+        executeGETRequest(context, "sendKavaImpression", kavaImpressionUrl, null, null, null, null);
+    }
+
+    // Built from PKHttpClientManager so config, impression and provider requests share one connection pool.
+    private static synchronized OkHttpClient getClient() {
+        if (client == null) {
+            client = PKHttpClientManager.newClientBuilder().build();
+        }
+        return client;
+    }
+
+    /**
+     * Opens connections to the hosts of the given URLs ahead of their first real request. A HEAD request per host
+     * resolves DNS and completes the TCP/TLS handshake; the connection then waits in the shared pool.
+     */
+    public static void warmUpConnections(Collection<String> urls) {
+        warmUpConnections(urls, null);
+    }
+
+    /**
+     * @param onDone called once every origin was connected to or failed; right away if there are none.
+     */
+    public static void warmUpConnections(Collection<String> urls, @Nullable Runnable onDone) {
+        Set<String> origins = new LinkedHashSet<>();
+        for (String url : urls) {
+            HttpUrl httpUrl = url != null ? HttpUrl.parse(url) : null;
+            if (httpUrl != null) {
+                origins.add(httpUrl.scheme() + "://" + httpUrl.host() + ":" + httpUrl.port() + "/");
+            }
+        }
+
+        if (origins.isEmpty()) {
+            if (onDone != null) {
+                onDone.run();
+            }
+            return;
+        }
+
+        final AtomicInteger pending = new AtomicInteger(origins.size());
+        for (String origin : origins) {
+            Request request = new Request.Builder()
+                    .url(origin)
+                    .head()
+                    .build();
+
+            getClient().newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    log.d("warm-up failed for " + origin + ", error = " + e.getMessage());
+                    originDone();
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                    originDone();
+                }
+
+                private void originDone() {
+                    if (pending.decrementAndGet() == 0 && onDone != null) {
+                        onDone.run();
+                    }
+                }
+            });
+        }
     }
 
     public static String buildKavaImpressionUrl(Context context) {
@@ -106,13 +218,21 @@ public class NetworkUtils {
         return newSessionId;
     }
 
-    private static void executeGETRequest(Context context, String apiName, String configByPartnerIdUrl, PlayerConfigManager.InternalCallback callback) {
+    // With parseAs set, the body is parsed as that player type's config while it streams in; otherwise it is passed on as text.
+    private static void executeGETRequest(Context context, String apiName, String configByPartnerIdUrl, @Nullable String etag, @Nullable String lastModified,
+                                          @Nullable KalturaPlayer.Type parseAs, PlayerConfigManager.ConfigCallback callback) {
         try {
-            Request request = new Request.Builder()
-                    .url(configByPartnerIdUrl)
-                    .build();
+            Request.Builder requestBuilder = new Request.Builder()
+                    .url(configByPartnerIdUrl);
+            if (etag != null) {
+                requestBuilder.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                requestBuilder.header("If-Modified-Since", lastModified);
+            }
+            Request request = requestBuilder.build();
 
-            client.newCall(request).enqueue(new Callback() {
+            getClient().newCall(request).enqueue(new Callback() {
                 Handler mainHandler = new Handler(context.getMainLooper());
                 @Override
                 public void onFailure(Call call, IOException e) {
@@ -124,6 +244,19 @@ public class NetworkUtils {
                 @Override
                 public void onResponse(Call call, final Response response) {
 
+                    if (response != null && response.code() == HTTP_NOT_MODIFIED) {
+                        // Servers may omit validators on a 304; the ones we sent are still current then.
+                        String newEtag = response.header("ETag", etag);
+                        String newLastModified = response.header("Last-Modified", lastModified);
+                        response.close();
+                        mainHandler.post(() -> {
+                            if (callback != null) {
+                                callback.finished(new ConfigResponse(null, null, newEtag, newLastModified, true), null);
+                            }
+                        });
+                        return;
+                    }
+
                     if (response == null || !response.isSuccessful()) {
                         mainHandler.post(() -> {
                             sendError(callback, apiName + " call failed url = " + configByPartnerIdUrl);
@@ -132,12 +265,24 @@ public class NetworkUtils {
                     } else {
                         try {
                             ResponseBody responseBody = response.body();
-                            if (responseBody != null) {
+                            if (responseBody != null && parseAs != null) {
+                                TVPlayerParams params = parseConfig(parseAs, responseBody);
+                                if (params != null) {
+                                    ConfigResponse configResponse = new ConfigResponse(null, params, response.header("ETag"), response.header("Last-Modified"), false);
+                                    mainHandler.post(() -> {
+                                        if (callback != null) {
+                                            callback.finished(configResponse, null);
+                                        }
+                                    });
+                                    return;
+                                }
+                            } else if (responseBody != null) {
                                 String body = responseBody.string();
                                 if (body != null && !body.contains("KalturaAPIException")) {
+                                    ConfigResponse configResponse = new ConfigResponse(body, null, response.header("ETag"), response.header("Last-Modified"), false);
                                     mainHandler.post(() -> {
                                         if (callback != null) {
-                                            callback.finished(body, null);
+                                            callback.finished(configResponse, null);
                                         }
                                     });
                                     return;
@@ -161,10 +306,93 @@ public class NetworkUtils {
         }
     }
 
-    private static void sendError(PlayerConfigManager.InternalCallback callback, String errorMessage) {
+    public interface JsonCallback {
+        void finished(@Nullable JsonElement response, @Nullable ErrorElement error);
+    }
+
+    /**
+     * POSTs a JSON body, such as a Kaltura API multi-request, and parses the JSON response. The callback is called on
+     * the network thread, so a large response can be handled there too; it is not called once the returned call is
+     * cancelled.
+     */
+    public static Call executeJsonPOSTRequest(String apiName, String url, JsonObject body, JsonCallback callback) {
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(JSON, body.toString()))
+                .build();
+
+        Call call = getClient().newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (!call.isCanceled()) {
+                    log.e(apiName + " call failed url = " + url + ", error = " + e.getMessage());
+                    callback.finished(null, ErrorElement.GeneralError);
+                }
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                ResponseBody responseBody = response.body();
+                JsonElement json = null;
+                try {
+                    if (response.isSuccessful() && responseBody != null) {
+                        json = new JsonParser().parse(responseBody.charStream());
+                    }
+                } catch (JsonParseException e) {
+                    log.e(apiName + " invalid response url = " + url + ", error = " + e.getMessage());
+                } finally {
+                    response.close();
+                }
+
+                if (call.isCanceled()) {
+                    return;
+                }
+                if (json == null) {
+                    log.e(apiName + " call failed url = " + url + ", code = " + response.code());
+                    callback.finished(null, ErrorElement.GeneralError);
+                } else {
+                    callback.finished(json, null);
+                }
+            }
+        });
+        return call;
+    }
+
+    @Nullable
+    private static TVPlayerParams parseConfig(KalturaPlayer.Type playerType, ResponseBody responseBody) throws IOException {
+        try {
+            if (KalturaPlayer.Type.ott.equals(playerType)) {
+                return PlayerConfigParser.parseOtt(responseBody.charStream());
+            }
+            return PlayerConfigParser.parseOvp(responseBody.charStream());
+        } catch (IllegalStateException | NumberFormatException e) {
+            // JsonReader reports structurally unexpected input this way
+            throw new IOException("Invalid config response: " + e.getMessage(), e);
+        }
+    }
+
+    private static void sendError(PlayerConfigManager.ConfigCallback callback, String errorMessage) {
         log.e(errorMessage);
         if (callback != null) {
             callback.finished(null, ErrorElement.GeneralError);
         }
     }
+
+    public static class ConfigResponse {
+        // Raw body on the text path, parsed params on the config path; both null when notModified.
+        public final String body;
+        public final TVPlayerParams params;
+        public final String etag;
+        public final String lastModified;
+        public final boolean notModified;
+
+        ConfigResponse(String body, TVPlayerParams params, String etag, String lastModified, boolean notModified) {
+            this.body = body;
+            this.params = params;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.notModified = notModified;
+        }
+    }
 }
@@ -0,0 +1,70 @@
+package com.kaltura.tvplayer
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class LoadRequestTest {
+
+    private val request = LoadRequest()
+
+    @Test
+    fun cancelRunsTheActionsOnce() {
+        var cancelCount = 0
+        request.onCancel { cancelCount++ }
+        request.onCancel { cancelCount++ }
+
+        request.cancel()
+        request.cancel()
+
+        assertEquals(2, cancelCount)
+        assertTrue(request.isCancelled)
+        assertFalse(request.isCompleted)
+    }
+
+    @Test
+    fun actionRegisteredAfterCancelRunsRightAway() {
+        var cancelCount = 0
+        request.cancel()
+
+        request.onCancel { cancelCount++ }
+
+        assertEquals(1, cancelCount)
+    }
+
+    @Test
+    fun cancelledRequestCannotComplete() {
+        request.cancel()
+
+        assertFalse(request.complete())
+        assertFalse(request.isCompleted)
+    }
+
+    @Test
+    fun cancelAfterCompletionDoesNothing() {
+        var cancelCount = 0
+        request.onCancel { cancelCount++ }
+
+        assertTrue(request.complete())
+        request.cancel()
+        request.onCancel { cancelCount++ }
+
+        assertEquals(0, cancelCount)
+        assertTrue(request.isCompleted)
+        assertFalse(request.isCancelled)
+    }
+
+    @Test
+    fun actionMayCancelTheSameRequestAgain() {
+        var cancelCount = 0
+        request.onCancel {
+            cancelCount++
+            request.cancel()
+        }
+
+        request.cancel()
+
+        assertEquals(1, cancelCount)
+    }
+}
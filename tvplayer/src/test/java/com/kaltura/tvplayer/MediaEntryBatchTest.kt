@@ -0,0 +1,194 @@
+package com.kaltura.tvplayer
+
+import com.google.gson.JsonObject
+import com.google.gson.JsonParser
+import com.kaltura.playkit.PKDrmParams
+import com.kaltura.playkit.PKMediaEntry
+import com.kaltura.playkit.PKMediaFormat
+import com.kaltura.playkit.providers.ott.OTTMediaAsset
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+private const val OVP_SERVER_URL = "https://cdnapisec.kaltura.com/"
+private const val OTT_SERVER_URL = "https://api.frs1.ott.kaltura.com/api_v3/"
+private const val PARTNER_ID = 2215841
+
+@RunWith(RobolectricTestRunner::class)
+class MediaEntryBatchTest {
+
+    @Test
+    fun ovpEntriesShareOneListPerKs() {
+        val batch = OvpMediaEntryBatch()
+        val first = batch.add(OVPMediaOptions("1_a", "ks1"))
+        val second = batch.add(OVPMediaOptions("1_b", "ks1"))
+
+        val body = batch.buildRequest(PARTNER_ID)
+
+        assertEquals(OVP_SERVER_URL + "api_v3/service/multirequest", batch.getUrl(OVP_SERVER_URL))
+        assertEquals(listOf("list", "getPlaybackContext", "getPlaybackContext"), actionsOf(body))
+        assertEquals("1_a,1_b", request(body, 1).getAsJsonObject("filter").get("idIn").asString)
+        assertEquals("1_b", request(body, 3).get("entryId").asString)
+        assertTrue(first != second)
+    }
+
+    @Test
+    fun ovpEntriesWithoutKsUseAWidgetSession() {
+        val batch = OvpMediaEntryBatch()
+        batch.add(OVPMediaOptions("1_a"))
+        batch.add(OVPMediaOptions("1_b", "ks1"))
+
+        val body = batch.buildRequest(PARTNER_ID)
+
+        assertEquals(listOf("startWidgetSession", "list", "list", "getPlaybackContext", "getPlaybackContext"), actionsOf(body))
+        assertEquals("_$PARTNER_ID", request(body, 1).get("widgetId").asString)
+        assertEquals("{1:result:ks}", request(body, 2).get("ks").asString)
+        assertEquals("{1:result:ks}", request(body, 4).get("ks").asString)
+        assertEquals("ks1", request(body, 5).get("ks").asString)
+    }
+
+    @Test
+    fun ovpOptionsTheBatchCantExpressAreLeftToTheProvider() {
+        val batch = OvpMediaEntryBatch()
+
+        assertNull(batch.add(OVPMediaOptions(null, "ref1", "ks1", null)))
+        assertNull(batch.add(OVPMediaOptions("1_a", "ks1").setUseApiCaptions(true)))
+        assertNull(batch.add(OTTMediaOptions(OTTMediaAsset().setAssetId("100"))))
+        assertEquals(0, batch.size())
+    }
+
+    @Test
+    fun batchIsFullAtMaxItems() {
+        val batch = OvpMediaEntryBatch()
+        for (i in 0 until MediaEntryBatch.MAX_ITEMS) {
+            assertNotNull(batch.add(OVPMediaOptions("1_$i", "ks1")))
+        }
+
+        assertNull(batch.add(OVPMediaOptions("1_more", "ks1")))
+        assertEquals(MediaEntryBatch.MAX_ITEMS, batch.size())
+    }
+
+    @Test
+    fun ovpResponseIsParsedIntoEntries() {
+        val batch = OvpMediaEntryBatch()
+        val vod = batch.add(OVPMediaOptions("1_vod"))!!
+        val live = batch.add(OVPMediaOptions("1_live"))!!
+        batch.buildRequest(PARTNER_ID)
+
+        val entries = batch.parseResponse(JsonParser().parse("""[
+            {"objectType": "KalturaStartWidgetSessionResponse", "ks": "widgetKs"},
+            {"objects": [
+                {"id": "1_vod", "name": "Vod", "type": 1, "msDuration": 61000},
+                {"id": "1_live", "name": "Live", "type": 7, "dvrStatus": 1, "duration": 0}]},
+            {"sources": [
+                {"deliveryProfileId": 911, "format": "mpegdash", "url": "https://cdn/p/1/sp/100/playManifest/entryId/1_vod/format/mpegdash/a.mpd",
+                    "drm": [{"scheme": "drm.WIDEVINE_CENC", "licenseURL": "https://udrm/widevine"}, {"scheme": "fairplay.FAIRPLAY", "licenseURL": "https://udrm/fps"}]},
+                {"deliveryProfileId": 912, "format": "applehttp", "url": "https://cdn/p/1/sp/100/playManifest/entryId/1_vod/format/applehttp/a.m3u8",
+                    "drm": [{"scheme": "fairplay.FAIRPLAY", "licenseURL": "https://udrm/fps"}]},
+                {"deliveryProfileId": 913, "format": "hdnetworkmanifest", "url": "https://cdn/a.f4m"}],
+             "actions": [], "messages": []},
+            {"sources": [{"deliveryProfileId": 1033, "format": "applehttp", "url": "https://cdn/p/1/sp/100/playManifest/entryId/1_live/format/applehttp/a.m3u8"}]}
+        ]"""), OVP_SERVER_URL, PARTNER_ID)
+
+        val vodEntry = entries[vod]!!
+        assertEquals("1_vod", vodEntry.id)
+        assertEquals(61_000L, vodEntry.duration)
+        assertEquals(PKMediaEntry.MediaEntryType.Vod, vodEntry.mediaType)
+        assertEquals(1, vodEntry.sources.size)
+        val source = vodEntry.sources[0]
+        assertEquals("1_vod_911", source.id)
+        assertEquals(PKMediaFormat.dash, source.mediaFormat)
+        assertEquals("https://cdn/p/1/sp/100/playManifest/entryId/1_vod/format/mpegdash/ks/widgetKs/a.mpd", source.url)
+        assertEquals(listOf(PKDrmParams.Scheme.WidevineCENC), source.drmData.map { it.scheme })
+
+        assertEquals(PKMediaEntry.MediaEntryType.DvrLive, entries[live]!!.mediaType)
+        assertEquals(PKMediaFormat.hls, entries[live]!!.sources[0].mediaFormat)
+    }
+
+    @Test
+    fun ovpFailedOrRestrictedItemsAreLeftOut() {
+        val batch = OvpMediaEntryBatch()
+        val missing = batch.add(OVPMediaOptions("1_missing", "ks1"))!!
+        val blocked = batch.add(OVPMediaOptions("1_blocked", "ks1"))!!
+        val failed = batch.add(OVPMediaOptions("1_failed", "ks1"))!!
+        batch.buildRequest(PARTNER_ID)
+
+        val entries = batch.parseResponse(JsonParser().parse("""[
+            {"objects": [{"id": "1_blocked", "type": 1}, {"id": "1_failed", "type": 1}]},
+            {"sources": [{"deliveryProfileId": 1, "format": "url", "url": "https://cdn/a.mp4"}]},
+            {"sources": [{"deliveryProfileId": 1, "format": "url", "url": "https://cdn/a.mp4"}], "actions": [{"type": 1}]},
+            {"objectType": "KalturaAPIException", "code": "ENTRY_ID_NOT_FOUND", "message": "not found"}
+        ]"""), OVP_SERVER_URL, PARTNER_ID)
+
+        assertFalse(entries.containsKey(missing))
+        assertFalse(entries.containsKey(blocked))
+        assertFalse(entries.containsKey(failed))
+    }
+
+    @Test
+    fun phoenixAssetsWithoutKsUseAnAnonymousLogin() {
+        val batch = PhoenixMediaEntryBatch()
+        batch.add(OTTMediaOptions(OTTMediaAsset().setAssetId("100").setMediaFileIds(listOf("5", "6"))))
+
+        val body = batch.buildRequest(PARTNER_ID)
+
+        assertEquals(OTT_SERVER_URL + "service/multirequest", batch.getUrl(OTT_SERVER_URL))
+        assertEquals(listOf("anonymousLogin", "get", "getPlaybackContext"), actionsOf(body))
+        assertEquals(PARTNER_ID, request(body, 1).get("partnerId").asInt)
+        assertEquals("{1:result:ks}", request(body, 2).get("ks").asString)
+        val contextDataParams = request(body, 3).getAsJsonObject("contextDataParams")
+        assertEquals("5,6", contextDataParams.get("assetFileIds").asString)
+        assertEquals("https", contextDataParams.get("mediaProtocol").asString)
+    }
+
+    @Test
+    fun phoenixResponseIsParsedIntoEntries() {
+        val batch = PhoenixMediaEntryBatch()
+        val vod = batch.add(OTTMediaOptions(OTTMediaAsset().setAssetId("100").setKs("ks1")))!!
+        val live = batch.add(OTTMediaOptions(OTTMediaAsset().setAssetId("200").setKs("ks1")))!!
+        val failed = batch.add(OTTMediaOptions(OTTMediaAsset().setAssetId("300").setKs("ks1")))!!
+        batch.buildRequest(PARTNER_ID)
+
+        val entries = batch.parseResponse(JsonParser().parse("""{"result": [
+            {"objectType": "KalturaMediaAsset", "id": 100, "name": "Vod"},
+            {"sources": [{"id": 5, "type": "Mobile_Devices_Main_HD_Dash", "format": "mpegdash", "duration": 120,
+                "url": "https://ott/a.mpd", "drm": [{"scheme": "WIDEVINE_CENC", "licenseURL": "https://udrm/widevine"}]}]},
+            {"objectType": "KalturaLinearMediaAsset", "id": 200, "name": "Live"},
+            {"sources": [{"id": 6, "type": "Mobile_Devices_Main_HD", "format": "applehttp", "url": "https://ott/a.m3u8", "drm": []}]},
+            {"error": {"objectType": "KalturaAPIException", "code": "500007", "message": "Asset not found"}},
+            {"error": {"objectType": "KalturaAPIException", "code": "500007", "message": "Asset not found"}}
+        ]}"""), OTT_SERVER_URL, PARTNER_ID)
+
+        val vodEntry = entries[vod]!!
+        assertEquals("100", vodEntry.id)
+        assertEquals(120_000L, vodEntry.duration)
+        assertEquals(PKMediaEntry.MediaEntryType.Vod, vodEntry.mediaType)
+        assertEquals("https://ott/a.mpd", vodEntry.sources[0].url)
+        assertEquals(PKDrmParams.Scheme.WidevineCENC, vodEntry.sources[0].drmData[0].scheme)
+
+        assertEquals(PKMediaEntry.MediaEntryType.Live, entries[live]!!.mediaType)
+        assertNull(entries[live]!!.sources[0].drmData)
+        assertFalse(entries.containsKey(failed))
+    }
+
+    @Test
+    fun unexpectedResponseResolvesNothing() {
+        val batch = PhoenixMediaEntryBatch()
+        batch.add(OTTMediaOptions(OTTMediaAsset().setAssetId("100").setKs("ks1")))
+        batch.buildRequest(PARTNER_ID)
+
+        assertTrue(batch.parseResponse(JsonParser().parse("""{"error": "bad request"}"""), OTT_SERVER_URL, PARTNER_ID).isEmpty())
+    }
+
+    private fun request(body: JsonObject, number: Int) = body.getAsJsonObject(number.toString())
+
+    private fun actionsOf(body: JsonObject) = generateSequence(1) { it + 1 }
+            .takeWhile { body.has(it.toString()) }
+            .map { request(body, it).get("action").asString }
+            .toList()
+}
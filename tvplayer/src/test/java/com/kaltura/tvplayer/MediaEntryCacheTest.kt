@@ -0,0 +1,136 @@
+package com.kaltura.tvplayer
+
+import android.os.Looper
+import com.kaltura.playkit.PKMediaEntry
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.LooperMode
+import java.time.Duration
+
+private const val TTL_MS = 60_000L
+private const val SERVER_URL = "https://cdnapisec.kaltura.com/"
+private const val PARTNER_ID = 2215841
+
+@RunWith(RobolectricTestRunner::class)
+@LooperMode(LooperMode.Mode.PAUSED)
+class MediaEntryCacheTest {
+
+    @Before
+    fun setUp() {
+        MediaEntryCache.configure(MediaEntryCache.DEFAULT_MAX_SIZE_BYTES, TTL_MS)
+        MediaEntryCache.invalidateAll()
+        MediaEntryCache.resetStats()
+    }
+
+    @Test
+    fun hitHandsOutACopy() {
+        MediaEntryCache.put(key("1_a"), "1_a", entry("1_a"))
+
+        val first = MediaEntryCache.get(key("1_a"))!!
+        first.name = "changed by an interceptor"
+        val second = MediaEntryCache.get(key("1_a"))!!
+
+        assertNotSame(first, second)
+        assertEquals("1_a-name", second.name)
+        assertEquals(2, MediaEntryCache.getStats().hitCount)
+    }
+
+    @Test
+    fun entryExpiresAfterTheTtl() {
+        MediaEntryCache.put(key("1_a"), "1_a", entry("1_a"))
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(TTL_MS - 1))
+        assertNotNull(MediaEntryCache.get(key("1_a")))
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(1))
+        assertNull(MediaEntryCache.get(key("1_a")))
+
+        val stats = MediaEntryCache.getStats()
+        assertEquals(1, stats.expiredCount)
+        assertEquals(0, stats.size)
+    }
+
+    @Test
+    fun invalidateDropsEveryEntryOfTheMedia() {
+        val otherKs = MediaEntryCache.keyOf(KalturaPlayer.Type.ovp, SERVER_URL, PARTNER_ID, "other-ks", "1_a", null, null, false)
+        MediaEntryCache.put(key("1_a"), "1_a", entry("1_a"))
+        MediaEntryCache.put(otherKs, "1_a", entry("1_a"))
+        MediaEntryCache.put(key("1_b"), "1_b", entry("1_b"))
+
+        MediaEntryCache.invalidate("1_a")
+
+        assertNull(MediaEntryCache.get(key("1_a")))
+        assertNull(MediaEntryCache.get(otherKs))
+        assertNotNull(MediaEntryCache.get(key("1_b")))
+    }
+
+    @Test
+    fun invalidateAllDropsEverything() {
+        MediaEntryCache.put(key("1_a"), "1_a", entry("1_a"))
+        MediaEntryCache.put(key("1_b"), "1_b", entry("1_b"))
+
+        MediaEntryCache.invalidateAll()
+
+        assertEquals(0, MediaEntryCache.getStats().size)
+        assertEquals(0, MediaEntryCache.getStats().sizeBytes)
+    }
+
+    @Test
+    fun entriesAreBoundedByTheirParcelSize() {
+        MediaEntryCache.put(key("1_a"), "1_a", entry("1_a"))
+        val entrySize = MediaEntryCache.getStats().sizeBytes
+        MediaEntryCache.configure(entrySize * 2, TTL_MS)
+
+        MediaEntryCache.put(key("1_a"), "1_a", entry("1_a"))
+        MediaEntryCache.put(key("1_b"), "1_b", entry("1_b"))
+        MediaEntryCache.put(key("1_c"), "1_c", entry("1_c"))
+
+        assertEquals(2, MediaEntryCache.getStats().size)
+        assertNull(MediaEntryCache.get(key("1_a")))
+        assertNotNull(MediaEntryCache.get(key("1_c")))
+    }
+
+    @Test
+    fun keyHoldsAHashOfTheKsOnly() {
+        val ks = "djJ8MjIxNTg0MXzJ9a1YtB8HmZ1GQmvmA6yZxyUEzy7H3nCZqFZ1G0XM"
+        val key = MediaEntryCache.keyOf(KalturaPlayer.Type.ovp, SERVER_URL, PARTNER_ID, ks, "1_a")
+
+        assertFalse(key.contains(ks))
+        assertEquals(key, MediaEntryCache.keyOf(KalturaPlayer.Type.ovp, SERVER_URL, PARTNER_ID, ks, "1_a"))
+        assertNotEquals(key, MediaEntryCache.keyOf(KalturaPlayer.Type.ovp, SERVER_URL, PARTNER_ID, ks + "x", "1_a"))
+    }
+
+    @Test
+    fun keyIsMadeOfTheValuesNotTheirInstances() {
+        val first = MediaEntryCache.keyOf(KalturaPlayer.Type.ott, SERVER_URL, PARTNER_ID, null, "480989",
+                listOf("Mobile_Main"), linkedMapOf("a" to "1", "b" to "2"))
+        val second = MediaEntryCache.keyOf(KalturaPlayer.Type.ott, SERVER_URL, PARTNER_ID, null, "480989",
+                arrayListOf("Mobile_Main"), hashMapOf("b" to "2", "a" to "1"))
+
+        assertEquals(first, second)
+    }
+
+    @Test
+    fun separatorsInsideValuesDontMakeKeysMeet() {
+        assertNotEquals(
+                MediaEntryCache.keyOf(KalturaPlayer.Type.ovp, SERVER_URL, PARTNER_ID, null, "a|b", "c"),
+                MediaEntryCache.keyOf(KalturaPlayer.Type.ovp, SERVER_URL, PARTNER_ID, null, "a", "b|c"))
+        assertNotEquals(
+                MediaEntryCache.keyOf(KalturaPlayer.Type.ovp, SERVER_URL, PARTNER_ID, null, null, "x"),
+                MediaEntryCache.keyOf(KalturaPlayer.Type.ovp, SERVER_URL, PARTNER_ID, null, "null", "x"))
+    }
+
+    private fun key(entryId: String) =
+            MediaEntryCache.keyOf(KalturaPlayer.Type.ovp, SERVER_URL, PARTNER_ID, "ks", entryId, null, null, false)
+
+    private fun entry(entryId: String) = PKMediaEntry().setId(entryId).setName("$entryId-name")
+}
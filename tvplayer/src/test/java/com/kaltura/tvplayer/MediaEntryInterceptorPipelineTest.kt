@@ -0,0 +1,159 @@
+package com.kaltura.tvplayer
+
+import android.os.Handler
+import android.os.Looper
+import com.kaltura.netkit.utils.ErrorElement
+import com.kaltura.playkit.PKMediaEntry
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.LooperMode
+import java.time.Duration
+
+private const val TIMEOUT_MS = 100L
+
+@RunWith(RobolectricTestRunner::class)
+@LooperMode(LooperMode.Mode.PAUSED)
+class MediaEntryInterceptorPipelineTest {
+
+    private val pipeline = MediaEntryInterceptorPipeline(Handler(Looper.getMainLooper()))
+    private val entry = PKMediaEntry().setId("1_w9zx2eti").setName("")
+
+    private var result: PKMediaEntry? = null
+    private var error: ErrorElement? = null
+    private var completeCount = 0
+    private val callback = MediaEntryInterceptorPipeline.Callback { mediaEntry, error ->
+        this.result = mediaEntry
+        this.error = error
+        completeCount++
+    }
+
+    @Test
+    fun withoutDeadlineInterceptorsChangeTheGivenEntryInOrder() {
+        pipeline.apply(listOf(appending("a"), appending("b")), entry, 0, PKMediaEntryInterceptor.FailurePolicy.skip, callback)
+
+        assertEquals(1, completeCount)
+        assertSame(entry, result)
+        assertEquals("ab", entry.name)
+    }
+
+    @Test
+    fun withDeadlineTheResultIsACopyAndTheEntryIsUntouched() {
+        pipeline.apply(listOf(appending("a"), appending("b")), entry, TIMEOUT_MS, PKMediaEntryInterceptor.FailurePolicy.skip, callback)
+
+        assertNotSame(entry, result)
+        assertEquals("ab", result!!.name)
+        assertEquals("1_w9zx2eti", result!!.id)
+        assertEquals("", entry.name)
+    }
+
+    @Test
+    fun concurrentInterceptorsAreAppliedTogether() {
+        val first = ConcurrentHolding()
+        val second = ConcurrentHolding()
+        val last = Holding()
+        pipeline.apply(listOf(first, second, last), entry, 0, PKMediaEntryInterceptor.FailurePolicy.skip, callback)
+
+        assertEquals(1, first.applyCount)
+        assertEquals(1, second.applyCount)
+        assertEquals(0, last.applyCount)
+
+        first.complete()
+        assertEquals(0, last.applyCount)
+        second.complete()
+        assertEquals(1, last.applyCount)
+        last.complete()
+        assertEquals(1, completeCount)
+    }
+
+    @Test
+    fun lateInterceptorIsSkippedAndItsChangesDropped() {
+        val late = Holding()
+        pipeline.apply(listOf(appending("a"), late, appending("c")), entry, TIMEOUT_MS, PKMediaEntryInterceptor.FailurePolicy.skip, callback)
+        assertEquals(0, completeCount)
+
+        late.entry!!.name += "-partial"
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(TIMEOUT_MS))
+
+        assertEquals(1, completeCount)
+        assertNull(error)
+        assertEquals("ac", result!!.name)
+
+        // Completing, or changing its entry, after the deadline affects neither the result nor the entry.
+        late.entry!!.name += "-late"
+        late.complete()
+        assertEquals(1, completeCount)
+        assertEquals("ac", result!!.name)
+        assertEquals("", entry.name)
+        assertEquals(1, pipeline.stats[Holding::class.java.name]!!.timeoutCount)
+    }
+
+    @Test
+    fun lateInterceptorFailsTheRunWithAbortPolicy() {
+        val late = Holding()
+        val next = Holding()
+        pipeline.apply(listOf(late, next), entry, TIMEOUT_MS, PKMediaEntryInterceptor.FailurePolicy.abort, callback)
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(TIMEOUT_MS))
+
+        assertEquals(1, completeCount)
+        assertNotNull(error)
+        assertEquals(0, next.applyCount)
+    }
+
+    @Test
+    fun throwingInterceptorIsSkipped() {
+        val throwing = PKMediaEntryInterceptor { mediaEntry, _ ->
+            mediaEntry.name += "-partial"
+            throw IllegalStateException("no network")
+        }
+        pipeline.apply(listOf(throwing, appending("b")), entry, TIMEOUT_MS, PKMediaEntryInterceptor.FailurePolicy.skip, callback)
+
+        assertNull(error)
+        assertEquals("b", result!!.name)
+        assertEquals(1, pipeline.stats.values.single { it.failureCount > 0 }.failureCount)
+    }
+
+    @Test
+    fun cancelledRunStopsAndIsNotReported() {
+        val first = Holding()
+        val second = Holding()
+        val cancel = pipeline.apply(listOf(first, second), entry, TIMEOUT_MS, PKMediaEntryInterceptor.FailurePolicy.abort, callback)
+
+        cancel.run()
+        first.complete()
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(TIMEOUT_MS * 2))
+
+        assertEquals(0, second.applyCount)
+        assertEquals(0, completeCount)
+        assertFalse(pipeline.stats.values.any { it.timeoutCount > 0 })
+    }
+
+    private fun appending(suffix: String) = PKMediaEntryInterceptor { mediaEntry, listener ->
+        mediaEntry.name += suffix
+        listener.onComplete()
+    }
+
+    private open class Holding : PKMediaEntryInterceptor {
+        var applyCount = 0
+        var entry: PKMediaEntry? = null
+        private var listener: PKMediaEntryInterceptor.Listener? = null
+
+        override fun apply(mediaEntry: PKMediaEntry, listener: PKMediaEntryInterceptor.Listener) {
+            applyCount++
+            entry = mediaEntry
+            this.listener = listener
+        }
+
+        fun complete() = listener!!.onComplete()
+    }
+
+    private class ConcurrentHolding : Holding(), PKMediaEntryInterceptor.Concurrent
+}
@@ -0,0 +1,45 @@
+package com.kaltura.tvplayer
+
+import android.os.Looper
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.LooperMode
+
+@RunWith(RobolectricTestRunner::class)
+@LooperMode(LooperMode.Mode.PAUSED)
+class PlayerConfigManagerTest {
+
+    @Before
+    fun setUp() {
+        PlayerConfigManager.markConfigReady()
+    }
+
+    @Test
+    fun readyCallbackIsNeverRunInsideTheCall() {
+        var readyCount = 0
+        var timedOut = false
+
+        PlayerConfigManager.whenConfigReady(1000, { readyCount++ }, { timedOut = true })
+
+        assertEquals(0, readyCount)
+        shadowOf(Looper.getMainLooper()).idle()
+        assertEquals(1, readyCount)
+        assertFalse(timedOut)
+    }
+
+    @Test
+    fun cancelledCallbackDoesNotRun() {
+        var readyCount = 0
+
+        val cancel = PlayerConfigManager.whenConfigReady(1000, { readyCount++ }, {})
+        cancel.run()
+        shadowOf(Looper.getMainLooper()).idle()
+
+        assertEquals(0, readyCount)
+    }
+}
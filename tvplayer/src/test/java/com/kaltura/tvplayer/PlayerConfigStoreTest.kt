@@ -0,0 +1,253 @@
+package com.kaltura.tvplayer
+
+import com.google.gson.Gson
+import com.kaltura.tvplayer.config.PhoenixTVPlayerParams
+import com.kaltura.tvplayer.config.TVPlayerParams
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.lang.reflect.Field
+import java.lang.reflect.Modifier
+import java.util.zip.CRC32
+
+private const val PARTNER_ID = 3009
+private const val MAGIC = 0x4B504346
+private const val FORMAT_VERSION = 4
+
+@RunWith(RobolectricTestRunner::class)
+class PlayerConfigStoreTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private lateinit var dir: File
+    private lateinit var store: PlayerConfigStore
+
+    @Before
+    fun setUp() {
+        dir = tempFolder.newFolder("PlayerConfigs")
+        store = PlayerConfigStore(dir)
+    }
+
+    @Test
+    fun savedRecordKeepsEveryParamsField() {
+        val params = PhoenixTVPlayerParams()
+        paramsFields(PhoenixTVPlayerParams::class.java).forEachIndexed { i, field ->
+            when (field.type) {
+                String::class.java -> field.set(params, "${field.name}-value")
+                Integer::class.java -> field.set(params, 1000 + i)
+                else -> fail("No test value for ${field.type} ${field.name}; add one so the field is covered")
+            }
+        }
+
+        assertTrue(store.save(KalturaPlayer.Type.ott, PARTNER_ID, PlayerConfigManager.CachedConfig(1234L, params, "\"etag\"", "Mon, 01 Jan 2020 00:00:00 GMT")))
+        // the params are encoded field by field, not as JSON
+        assertFalse(String(File(dir, "ott-$PARTNER_ID.cfg").readBytes(), Charsets.ISO_8859_1).contains("{"))
+        val loaded = store.load(KalturaPlayer.Type.ott, PARTNER_ID)
+
+        assertNotNull(loaded)
+        assertTrue(loaded!!.params is PhoenixTVPlayerParams)
+        for (field in paramsFields(PhoenixTVPlayerParams::class.java)) {
+            assertEquals(field.name, field.get(params), field.get(loaded.params))
+        }
+        assertEquals(1234L, loaded.timestamp)
+        assertEquals("\"etag\"", loaded.etag)
+        assertEquals("Mon, 01 Jan 2020 00:00:00 GMT", loaded.lastModified)
+    }
+
+    @Test
+    fun ovpRecordLoadsPlainParams() {
+        val params = TVPlayerParams().apply {
+            serviceUrl = "https://cdnapisec.kaltura.com/"
+            partnerId = PARTNER_ID
+        }
+        assertTrue(store.save(KalturaPlayer.Type.ovp, PARTNER_ID, PlayerConfigManager.CachedConfig(1L, params)))
+
+        val loaded = store.load(KalturaPlayer.Type.ovp, PARTNER_ID)!!
+        assertFalse(loaded.params is PhoenixTVPlayerParams)
+        assertEquals(params.serviceUrl, loaded.params.serviceUrl)
+        assertNull(loaded.params.uiConfId)
+        assertNull(loaded.etag)
+    }
+
+    @Test
+    fun recordOfAnotherPlayerTypeIsNotLoaded() {
+        store.save(KalturaPlayer.Type.ovp, PARTNER_ID, PlayerConfigManager.CachedConfig(1L, TVPlayerParams()))
+        val file = File(dir, "ovp-$PARTNER_ID.cfg")
+        file.renameTo(File(dir, "ott-$PARTNER_ID.cfg"))
+
+        assertNull(store.load(KalturaPlayer.Type.ott, PARTNER_ID))
+    }
+
+    @Test
+    fun corruptRecordIsDroppedAndDeleted() {
+        store.save(KalturaPlayer.Type.ott, PARTNER_ID, PlayerConfigManager.CachedConfig(1L, phoenixParams()))
+        val file = File(dir, "ott-$PARTNER_ID.cfg")
+        val bytes = file.readBytes()
+        bytes[bytes.size / 2] = (bytes[bytes.size / 2].toInt() xor 0x01).toByte()
+        file.writeBytes(bytes)
+
+        assertNull(store.load(KalturaPlayer.Type.ott, PARTNER_ID))
+        assertFalse(file.exists())
+    }
+
+    @Test
+    fun truncatedRecordIsDropped() {
+        store.save(KalturaPlayer.Type.ott, PARTNER_ID, PlayerConfigManager.CachedConfig(1L, phoenixParams()))
+        val file = File(dir, "ott-$PARTNER_ID.cfg")
+        file.writeBytes(file.readBytes().copyOf(20))
+
+        assertNull(store.load(KalturaPlayer.Type.ott, PARTNER_ID))
+        assertFalse(file.exists())
+    }
+
+    @Test
+    fun touchMovesOnlyTheTimestamp() {
+        val params = phoenixParams()
+        store.save(KalturaPlayer.Type.ott, PARTNER_ID, PlayerConfigManager.CachedConfig(1L, params, "\"etag\"", null))
+
+        assertTrue(store.touch(KalturaPlayer.Type.ott, PARTNER_ID, 5678L))
+
+        val loaded = store.load(KalturaPlayer.Type.ott, PARTNER_ID)!!
+        assertEquals(5678L, loaded.timestamp)
+        assertEquals("\"etag\"", loaded.etag)
+        assertEquals(params.ovpServiceUrl, (loaded.params as PhoenixTVPlayerParams).ovpServiceUrl)
+    }
+
+    @Test
+    fun touchOfAnotherFormatVersionAsksForAFullSave() {
+        File(dir, "ott-$PARTNER_ID.cfg").writeBytes(record { out ->
+            out.writeInt(MAGIC)
+            out.writeShort(3)
+            out.writeLong(1L)
+            writeString(out, KalturaPlayer.Type.ott.name)
+        })
+
+        assertFalse(store.touch(KalturaPlayer.Type.ott, PARTNER_ID, 5678L))
+        assertNull(store.load(KalturaPlayer.Type.ott, PARTNER_ID))
+    }
+
+    @Test
+    fun unknownAndMistypedFieldsAreSkipped() {
+        File(dir, "ott-$PARTNER_ID.cfg").writeBytes(record { out ->
+            out.writeInt(MAGIC)
+            out.writeShort(FORMAT_VERSION)
+            out.writeLong(42L)
+            writeString(out, KalturaPlayer.Type.ott.name)
+            out.writeBoolean(true)
+            out.writeShort(4)
+            writeStringField(out, "removedField", "gone")
+            writeStringField(out, "uiConfId", "not an int")
+            writeStringField(out, "ovpServiceUrl", "https://cdnapisec.kaltura.com/")
+            writeString(out, "ovpPartnerId")
+            out.writeByte(2)
+            out.writeInt(2254732)
+            writeString(out, "\"etag\"")
+            writeString(out, null)
+        })
+
+        val loaded = store.load(KalturaPlayer.Type.ott, PARTNER_ID)!!
+        val params = loaded.params as PhoenixTVPlayerParams
+        assertEquals(42L, loaded.timestamp)
+        assertEquals("https://cdnapisec.kaltura.com/", params.ovpServiceUrl)
+        assertEquals(2254732, params.ovpPartnerId)
+        assertNull(params.uiConfId)
+        assertEquals("\"etag\"", loaded.etag)
+    }
+
+    @Test
+    fun listReturnsRecordKeysOnly() {
+        store.save(KalturaPlayer.Type.ott, PARTNER_ID, PlayerConfigManager.CachedConfig(1L, phoenixParams()))
+        store.save(KalturaPlayer.Type.ovp, 2215841, PlayerConfigManager.CachedConfig(1L, TVPlayerParams()))
+        File(dir, "$PARTNER_ID.json").writeText("{}")
+        File(dir, "garbage.cfg").writeText("")
+
+        val keys = store.list().map { "${it.playerType}-${it.partnerId}" }.sorted()
+        assertEquals(listOf("ott-$PARTNER_ID", "ovp-2215841"), keys)
+    }
+
+    @Test
+    fun legacyJsonFileIsMigratedToARecord() {
+        PlayerConfigManager.initStore(dir)
+        val params = phoenixParams()
+        val legacyFile = File(dir, "$PARTNER_ID.json")
+        legacyFile.writeText(Gson().toJson(params))
+
+        val migrated = PlayerConfigManager.loadFromCache(KalturaPlayer.Type.ott, PARTNER_ID)
+
+        assertNotNull(migrated)
+        assertEquals(params.ovpServiceUrl, (migrated!!.params as PhoenixTVPlayerParams).ovpServiceUrl)
+        assertFalse(legacyFile.exists())
+        assertEquals(params.serviceUrl, store.load(KalturaPlayer.Type.ott, PARTNER_ID)!!.params.serviceUrl)
+    }
+
+    @Test
+    fun corruptLegacyJsonFileIsIgnored() {
+        PlayerConfigManager.initStore(dir)
+        File(dir, "$PARTNER_ID.json").writeText("{not json")
+
+        assertNull(PlayerConfigManager.loadFromCache(KalturaPlayer.Type.ott, PARTNER_ID))
+    }
+
+    private fun phoenixParams() = PhoenixTVPlayerParams().apply {
+        serviceUrl = "https://api.frs1.ott.kaltura.com/api_v3/"
+        analyticsUrl = "https://analytics.kaltura.com"
+        uiConfId = 41188731
+        partnerId = PARTNER_ID
+        ovpServiceUrl = "https://cdnapisec.kaltura.com/"
+        ovpPartnerId = 2254732
+    }
+
+    private fun paramsFields(type: Class<*>): List<Field> {
+        val fields = ArrayList<Field>()
+        var current: Class<*>? = type
+        while (current != null && current != Any::class.java) {
+            current.declaredFields.filter { !Modifier.isStatic(it.modifiers) && !it.isSynthetic }.forEach {
+                it.isAccessible = true
+                fields.add(it)
+            }
+            current = current.superclass
+        }
+        return fields
+    }
+
+    private fun record(body: (DataOutputStream) -> Unit): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        val out = DataOutputStream(bytes)
+        body(out)
+        out.flush()
+        val crc = CRC32()
+        crc.update(bytes.toByteArray())
+        out.writeLong(crc.value)
+        out.flush()
+        return bytes.toByteArray()
+    }
+
+    private fun writeString(out: DataOutputStream, value: String?) {
+        if (value == null) {
+            out.writeInt(-1)
+            return
+        }
+        val bytes = value.toByteArray(Charsets.UTF_8)
+        out.writeInt(bytes.size)
+        out.write(bytes)
+    }
+
+    private fun writeStringField(out: DataOutputStream, name: String, value: String) {
+        writeString(out, name)
+        out.writeByte(1)
+        writeString(out, value)
+    }
+}
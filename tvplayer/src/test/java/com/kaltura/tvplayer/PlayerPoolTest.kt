@@ -0,0 +1,147 @@
+package com.kaltura.tvplayer
+
+import android.os.Looper
+import com.google.gson.annotations.SerializedName
+import com.kaltura.playkit.PKPluginConfigs
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.LooperMode
+
+@RunWith(RobolectricTestRunner::class)
+@LooperMode(LooperMode.Mode.PAUSED)
+class PlayerPoolTest {
+
+    private val players = FakePlayers()
+    private val pool = PlayerPool(players, 2)
+
+    @Test
+    fun releasedPlayerIsReusedForEqualOptions() {
+        val first = pool.acquire(KalturaPlayer.Type.ovp, options("a"))
+        pool.release(first)
+
+        val second = pool.acquire(KalturaPlayer.Type.ovp, options("b"))
+
+        assertSame(first, second)
+        assertEquals(1, pool.hitCount)
+        assertEquals(1, pool.missCount)
+        assertEquals(listOf(first), players.reset)
+        assertEquals(listOf("b"), players.reusedKs)
+    }
+
+    @Test
+    fun otherOptionsOrTypeMissTheIdlePlayer() {
+        pool.release(pool.acquire(KalturaPlayer.Type.ovp, options("a")))
+
+        pool.acquire(KalturaPlayer.Type.ott, options("a"))
+        pool.acquire(KalturaPlayer.Type.ovp, options("a").setReferrer("other"))
+
+        assertEquals(0, pool.hitCount)
+        assertEquals(3, pool.missCount)
+        assertEquals(1, pool.idleCount)
+    }
+
+    @Test
+    fun keyIgnoresTheKsAndThePluginConfigOrder() {
+        val first = options("a").setPluginConfigs(pluginConfigs("ima" to "x", "youbora" to "y"))
+        val second = options("b").setPluginConfigs(pluginConfigs("youbora" to "y", "ima" to "x"))
+
+        assertEquals(PlayerPool.keyOf(KalturaPlayer.Type.ovp, first), PlayerPool.keyOf(KalturaPlayer.Type.ovp, second))
+        assertNotEquals(PlayerPool.keyOf(KalturaPlayer.Type.ovp, first),
+                PlayerPool.keyOf(KalturaPlayer.Type.ovp, options("a").setPluginConfigs(pluginConfigs("ima" to "z"))))
+    }
+
+    @Test
+    fun playersOverTheIdleLimitAreDestroyed() {
+        val lent = List(3) { pool.acquire(KalturaPlayer.Type.ovp, options("a")) }
+
+        lent.forEach { pool.release(it) }
+
+        assertEquals(2, pool.idleCount)
+        assertEquals(0, pool.lentCount)
+        assertEquals(listOf(lent[2]), players.destroyed)
+    }
+
+    @Test
+    fun playerOfUnsharedOptionsIsDestroyedOnRelease() {
+        val options = unsharedOptions()
+        assertEquals(PlayerPool.UNSHARED_KEY, PlayerPool.keyOf(KalturaPlayer.Type.ovp, options))
+
+        val first = pool.acquire(KalturaPlayer.Type.ovp, options)
+        pool.release(first)
+        val second = pool.acquire(KalturaPlayer.Type.ovp, options)
+
+        assertNotSame(first, second)
+        assertEquals(listOf(first), players.destroyed)
+        assertEquals(0, pool.idleCount)
+        assertEquals(2, pool.missCount)
+    }
+
+    @Test
+    fun prewarmBuildsUpToTheLimitButNothingForUnsharedOptions() {
+        pool.prewarm(KalturaPlayer.Type.ovp, options("a"), 5)
+        pool.prewarm(KalturaPlayer.Type.ovp, unsharedOptions(), 2)
+        assertTrue(players.created.isEmpty())
+
+        shadowOf(Looper.getMainLooper()).idle()
+
+        assertEquals(2, players.created.size)
+        assertEquals(2, pool.idleCount)
+    }
+
+    @Test
+    fun clearDestroysOnlyIdlePlayers() {
+        val idle = pool.acquire(KalturaPlayer.Type.ovp, options("a"))
+        pool.acquire(KalturaPlayer.Type.ovp, options("a"))
+        pool.release(idle)
+
+        pool.clear()
+
+        assertEquals(listOf(idle), players.destroyed)
+        assertEquals(0, pool.idleCount)
+        assertEquals(1, pool.lentCount)
+    }
+
+    private fun options(ks: String) = PlayerInitOptions(1234).setKs(ks)
+
+    private fun unsharedOptions() = options("a").setPluginConfigs(pluginConfigs("clashing" to ClashingNames()))
+
+    private fun pluginConfigs(vararg configs: Pair<String, Any>) = PKPluginConfigs().apply {
+        configs.forEach { setPluginConfig(it.first, it.second) }
+    }
+
+    // Gson refuses to write it.
+    class ClashingNames {
+        @SerializedName("value") val first = 1
+        @SerializedName("value") val second = 2
+    }
+
+    class FakePlayer
+
+    class FakePlayers : PlayerPool.Players<FakePlayer> {
+        val created = ArrayList<FakePlayer>()
+        val reusedKs = ArrayList<String?>()
+        val reset = ArrayList<FakePlayer>()
+        val destroyed = ArrayList<FakePlayer>()
+
+        override fun create(type: KalturaPlayer.Type, initOptions: PlayerInitOptions) = FakePlayer().also { created.add(it) }
+
+        override fun reuse(player: FakePlayer, initOptions: PlayerInitOptions) {
+            reusedKs.add(initOptions.ks)
+        }
+
+        override fun reset(player: FakePlayer) {
+            reset.add(player)
+        }
+
+        override fun destroy(player: FakePlayer) {
+            destroyed.add(player)
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.kaltura.tvplayer
+
+import android.content.ComponentCallbacks2
+import com.kaltura.playkit.PKMediaEntry
+import com.kaltura.tvplayer.playlist.PlaylistOptions
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+
+@RunWith(RobolectricTestRunner::class)
+class PlaylistMediaCacheTest {
+
+    private lateinit var cache: PlaylistMediaCache
+    private val evicted = ArrayList<Pair<Int, Boolean>>()
+
+    @Before
+    fun setUp() {
+        cache = PlaylistMediaCache(RuntimeEnvironment.getApplication())
+        cache.setEvictionListener { index, lowMemory -> evicted.add(index to lowMemory) }
+        cache.setCurrentIndex(5)
+    }
+
+    @Test
+    fun farthestEntryIsEvictedWhenFull() {
+        cache.setMaxEntries(3)
+        putAll(2, 4, 5, 6)
+
+        assertEquals(listOf(4, 5, 6), cachedIndexes(0..9))
+        assertEquals(listOf(2 to false), evicted)
+        assertEquals(1, cache.footprint.evictionCount)
+    }
+
+    @Test
+    fun pinnedEntriesAreKeptOverTheLimit() {
+        cache.setMaxEntries(2)
+        cache.setPinnedIndexes(listOf(5, 6, 7, 8))
+        putAll(5, 6, 7, 8, 2)
+
+        assertEquals(listOf(5, 6, 7, 8), cachedIndexes(0..9))
+        assertEquals(listOf(2 to false), evicted)
+    }
+
+    @Test
+    fun unpinnedEntriesAreEvictedOnceThePinsMove() {
+        cache.setMaxEntries(2)
+        cache.setPinnedIndexes(listOf(5, 6, 7))
+        putAll(5, 6, 7)
+
+        cache.setCurrentIndex(6)
+        cache.setPinnedIndexes(listOf(6, 7))
+
+        assertEquals(listOf(6, 7), cachedIndexes(0..9))
+        assertEquals(listOf(5 to false), evicted)
+    }
+
+    @Test
+    fun pinnedEntriesAreStillTrimmedForLowMemory() {
+        cache.setPinnedIndexes(listOf(5, 6, 7))
+        putAll(5, 6, 7)
+
+        cache.onLowMemory()
+
+        assertEquals(listOf(5), cachedIndexes(0..9))
+    }
+
+    @Test
+    fun distancesWrapAroundWhenThePlaylistLoops() {
+        cache.setCurrentIndex(0)
+        cache.setLoop(true, 10)
+        cache.setMaxEntries(3)
+        putAll(0, 1, 9, 5)
+
+        assertEquals(listOf(0, 1, 9), cachedIndexes(0..9))
+        assertEquals(listOf(5 to false), evicted)
+    }
+
+    @Test
+    fun runningLowKeepsTheWrappedNeighboursWhenThePlaylistLoops() {
+        cache.setCurrentIndex(9)
+        cache.setLoop(true, 10)
+        putAll(0, 1, 8, 9)
+
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+
+        assertEquals(listOf(0, 8, 9), cachedIndexes(0..9))
+    }
+
+    @Test
+    fun distancesDontWrapWithoutTheLoop() {
+        cache.setCurrentIndex(0)
+        cache.setLoop(false, 10)
+        cache.setMaxEntries(3)
+        putAll(0, 1, 9, 2)
+
+        assertEquals(listOf(0, 1, 2), cachedIndexes(0..9))
+    }
+
+    @Test
+    fun loweringTheLimitEvicts() {
+        putAll(1, 4, 5, 9)
+
+        cache.setMaxEntries(2)
+
+        assertEquals(listOf(4, 5), cachedIndexes(0..9))
+    }
+
+    @Test
+    fun runningLowKeepsTheNeighbours() {
+        putAll(3, 4, 5, 6, 8)
+
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+
+        assertEquals(listOf(4, 5, 6), cachedIndexes(0..9))
+        assertEquals(listOf(3 to true, 8 to true), evicted.sortedBy { it.first })
+    }
+
+    @Test
+    fun backgroundAndCriticalKeepOnlyTheCurrentEntry() {
+        for (level in intArrayOf(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL, ComponentCallbacks2.TRIM_MEMORY_BACKGROUND,
+                ComponentCallbacks2.TRIM_MEMORY_COMPLETE)) {
+            putAll(4, 5, 6)
+
+            cache.onTrimMemory(level)
+
+            assertEquals("level $level", listOf(5), cachedIndexes(0..9))
+        }
+    }
+
+    @Test
+    fun hidingTheUiDoesNotTrim() {
+        putAll(3, 4, 5, 6, 8)
+
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN)
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE)
+
+        assertEquals(listOf(3, 4, 5, 6, 8), cachedIndexes(0..9))
+        assertTrue(evicted.isEmpty())
+    }
+
+    @Test
+    fun failedMarksAreNotCountedNorEvicted() {
+        cache.setMaxEntries(1)
+        cache.put(id(1), 1, null)
+        cache.put(id(9), 9, null)
+        putAll(5)
+
+        cache.onLowMemory()
+
+        assertTrue(cache.containsKey(id(1)))
+        assertTrue(cache.containsKey(id(9)))
+        assertNull(cache.get(id(9)))
+        assertEquals(listOf(5), cachedIndexes(0..9))
+        assertEquals(1, cache.footprint.entryCount)
+        assertEquals(2, cache.footprint.failedCount)
+        assertTrue(evicted.isEmpty())
+    }
+
+    @Test
+    fun entryReplacesTheFailedMark() {
+        cache.put(id(5), 5, null)
+        putAll(5)
+
+        assertEquals(0, cache.footprint.failedCount)
+        assertEquals(listOf(5), cachedIndexes(0..9))
+    }
+
+    @Test
+    fun prefetchedEntriesAreResolvedOnlyUntilReplaced() {
+        cache.putResolved(id(6), 6, entry(6))
+        assertTrue(cache.isResolvedOnly(id(6)))
+
+        cache.put(id(6), 6, entry(6))
+        assertFalse(cache.isResolvedOnly(id(6)))
+    }
+
+    @Test
+    fun footprintMeasuresTheEntries() {
+        assertEquals(0L, cache.footprint.estimatedBytes)
+        putAll(4, 5)
+
+        val footprint = cache.footprint
+
+        assertEquals(2, footprint.entryCount)
+        assertEquals(PlaylistOptions.DEFAULT_LOADED_MEDIAS_LIMIT, footprint.maxEntries)
+        assertTrue(footprint.estimatedBytes > 0)
+        assertEquals(footprint.estimatedBytes, cache.footprint.estimatedBytes)
+    }
+
+    @Test
+    fun applicationMemoryCallbacksReachTheCacheAgainAfterClear() {
+        val application = RuntimeEnvironment.getApplication()
+        putAll(3, 5)
+        application.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND)
+        assertEquals(listOf(5), cachedIndexes(0..9))
+
+        cache.clear()
+        putAll(4, 5)
+        application.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND)
+
+        assertEquals(listOf(5), cachedIndexes(0..9))
+        assertEquals(listOf(3 to true, 4 to true), evicted)
+    }
+
+    private fun putAll(vararg indexes: Int) {
+        for (index in indexes) {
+            cache.put(id(index), index, entry(index))
+        }
+    }
+
+    private fun cachedIndexes(range: IntRange) = range.filter { cache.get(id(it)) != null }
+
+    private fun id(index: Int) = "1_media$index"
+
+    private fun entry(index: Int) = PKMediaEntry().setId(id(index)).setName("media $index").setDuration(60_000L)
+}
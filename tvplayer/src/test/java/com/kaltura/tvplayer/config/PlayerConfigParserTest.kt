@@ -0,0 +1,151 @@
+package com.kaltura.tvplayer.config
+
+import com.google.gson.Gson
+import com.google.gson.JsonObject
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertThrows
+import org.junit.Assert.fail
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.IOException
+import java.io.StringReader
+import java.lang.reflect.Field
+import java.lang.reflect.Modifier
+
+// A serveByDevice answer with the kind of sections the player doesn't read.
+private val OTT_RESPONSE = """
+    {
+      "id": "f3ef4a8c-3d4e-4b5f-9d1c-1d2e3f4a5b6c",
+      "partnerId": 3009,
+      "appName": "com.kaltura.player.3009",
+      "isForceUpdate": false,
+      "content": "release notes mention KalturaAPIException handling",
+      "params": {
+        "analyticsUrl": "https://analytics.kaltura.com",
+        "ovpPartnerId": 2254732,
+        "ovpServiceUrl": "https://cdnapisec.kaltura.com/",
+        "uiConfId": "41188731",
+        "serviceUrl": null,
+        "languages": [ { "code": "en", "name": "English" } ],
+        "features": { "dvr": true, "objectType": "KalturaFeatures" }
+      },
+      "objectType": "KalturaConfigurations"
+    }
+""".trimIndent()
+
+@RunWith(RobolectricTestRunner::class)
+class PlayerConfigParserTest {
+
+    private val gson = Gson()
+
+    @Test
+    fun ottParamsAreReadAndOtherSectionsSkipped() {
+        val params = PlayerConfigParser.parseOtt(StringReader(OTT_RESPONSE))
+
+        assertNotNull(params)
+        assertEquals("https://analytics.kaltura.com", params!!.analyticsUrl)
+        assertEquals(2254732, params.ovpPartnerId)
+        assertEquals("https://cdnapisec.kaltura.com/", params.ovpServiceUrl)
+        assertEquals(41188731, params.uiConfId)
+        assertNull(params.serviceUrl)
+        // the top level partnerId belongs to the configurations object, not to the params
+        assertNull(params.partnerId)
+    }
+
+    @Test
+    fun ottParsingMatchesGsonForEveryField() {
+        val expected = populated(PhoenixTVPlayerParams())
+        val response = JsonObject().apply { add("params", gson.toJsonTree(expected)) }
+
+        val actual = PlayerConfigParser.parseOtt(StringReader(response.toString()))!!
+
+        for (field in fields(PhoenixTVPlayerParams::class.java)) {
+            assertEquals("${field.name} is not parsed", field.get(expected), field.get(actual))
+        }
+    }
+
+    @Test
+    fun ovpParsingMatchesGsonForEveryField() {
+        val expected = populated(TVPlayerParams())
+
+        val actual = PlayerConfigParser.parseOvp(StringReader(gson.toJson(expected)))!!
+
+        for (field in fields(TVPlayerParams::class.java)) {
+            assertEquals("${field.name} is not parsed", field.get(expected), field.get(actual))
+        }
+    }
+
+    @Test
+    fun ovpApiExceptionIsDetected() {
+        val error = """{"code":"INVALID_KS","message":"Invalid KS","objectType":"KalturaAPIException","args":{}}"""
+        assertNull(PlayerConfigParser.parseOvp(StringReader(error)))
+    }
+
+    @Test
+    fun ottApiExceptionInResultIsDetected() {
+        val error = """{"executionTime":0.002,"result":{"error":{"objectType":"KalturaAPIException","code":"500007","message":"Invalid partner"}}}"""
+        assertNull(PlayerConfigParser.parseOtt(StringReader(error)))
+    }
+
+    @Test
+    fun ottTopLevelApiExceptionIsDetected() {
+        val error = """{"params":{"uiConfId":1},"objectType":"KalturaAPIException"}"""
+        assertNull(PlayerConfigParser.parseOtt(StringReader(error)))
+    }
+
+    @Test
+    fun ottResultWithoutErrorIsNotAFailure() {
+        val response = """{"result":{"objectType":"KalturaConfigurations"},"params":{"uiConfId":7}}"""
+        assertEquals(7, PlayerConfigParser.parseOtt(StringReader(response))!!.uiConfId)
+    }
+
+    @Test
+    fun ottResponseWithoutParamsYieldsEmptyParams() {
+        val params = PlayerConfigParser.parseOtt(StringReader("""{"objectType":"KalturaConfigurations"}"""))
+
+        assertNotNull(params)
+        assertNull(params!!.ovpServiceUrl)
+        assertNull(params.uiConfId)
+    }
+
+    @Test
+    fun truncatedResponseThrows() {
+        assertThrows(IOException::class.java) {
+            PlayerConfigParser.parseOtt(StringReader(OTT_RESPONSE.substring(0, OTT_RESPONSE.length / 2)))
+        }
+    }
+
+    @Test
+    fun nonNumericIdThrows() {
+        assertThrows(NumberFormatException::class.java) {
+            PlayerConfigParser.parseOvp(StringReader("""{"uiConfId":"abc"}"""))
+        }
+    }
+
+    private fun <T : Any> populated(params: T): T {
+        fields(params.javaClass).forEachIndexed { i, field ->
+            when (field.type) {
+                String::class.java -> field.set(params, "${field.name}-value")
+                Integer::class.java -> field.set(params, 1000 + i)
+                else -> fail("No test value for ${field.type} ${field.name}; add one so the field is covered")
+            }
+        }
+        return params
+    }
+
+    private fun fields(type: Class<*>): List<Field> {
+        val fields = ArrayList<Field>()
+        var current: Class<*>? = type
+        while (current != null && current != Any::class.java) {
+            current.declaredFields.filter { !Modifier.isStatic(it.modifiers) && !it.isSynthetic }.forEach {
+                it.isAccessible = true
+                fields.add(it)
+            }
+            current = current.superclass
+        }
+        return fields
+    }
+}
@@ -0,0 +1,102 @@
+package com.kaltura.tvplayer.utils
+
+import android.os.Bundle
+import com.google.gson.JsonArray
+import com.google.gson.JsonObject
+import com.google.gson.JsonParser
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class ConfigResolverTest {
+
+    private val resolver = TokenResolver { it?.replace("{{entryId}}", "1_w9zx2eti")?.replace("{{ks}}", "ks-value") }
+
+    @Test
+    fun jsonValuesAndKeysAreResolved() {
+        val config = JsonParser().parse("""{"{{entryId}}":{"ks":"{{ks}}","list":["{{entryId}}",1,true,null]},"plain":"text"}""").asJsonObject
+
+        val resolved = ConfigResolver.resolve(config, resolver)
+
+        assertEquals(JsonParser().parse("""{"1_w9zx2eti":{"ks":"ks-value","list":["1_w9zx2eti",1,true,null]},"plain":"text"}"""), resolved)
+    }
+
+    @Test
+    fun untouchedJsonIsSharedAndUnchangedJsonComesBackAsIs() {
+        val config = JsonParser().parse("""{"content":{"title":"plain"},"tags":["a","b"],"ids":{"entryId":"{{entryId}}"}}""").asJsonObject
+
+        val resolved = ConfigResolver.resolve(config, resolver)
+        val plain = config.deepCopy().apply { remove("ids") }
+
+        assertNotSame(config, resolved)
+        assertSame(config.getAsJsonObject("content"), resolved.getAsJsonObject("content"))
+        assertSame(config.getAsJsonArray("tags"), resolved.getAsJsonArray("tags"))
+        assertEquals("{{entryId}}", config.getAsJsonObject("ids")["entryId"].asString)
+        assertSame(plain, ConfigResolver.resolve(plain, resolver))
+    }
+
+    @Test
+    fun jsonKeyBeforeTheFirstChangedValueIsResolved() {
+        val config = JsonParser().parse("""{"{{entryId}}":"plain","ks":"{{ks}}"}""").asJsonObject
+
+        val resolved = ConfigResolver.resolve(config, resolver)
+
+        assertEquals(JsonParser().parse("""{"1_w9zx2eti":"plain","ks":"ks-value"}"""), resolved)
+    }
+
+    @Test
+    fun untouchedBundleIsSharedAndUnchangedBundleComesBackAsIs() {
+        val inner = Bundle().apply { putString("title", "plain") }
+        val config = Bundle().apply {
+            putString("entryId", "{{entryId}}")
+            putBundle("content", inner)
+            putInt("count", 3)
+        }
+
+        val resolved = ConfigResolver.resolve(config, resolver)
+
+        assertEquals("1_w9zx2eti", resolved.getString("entryId"))
+        assertEquals(3, resolved.getInt("count"))
+        assertEquals("{{entryId}}", config.getString("entryId"))
+        assertSame(inner, resolved.getBundle("content"))
+        assertSame(inner, ConfigResolver.resolve(inner, resolver))
+    }
+
+    @Test
+    fun copiedContainersShareNothingWithTheOriginal() {
+        val json = JsonParser().parse("""{"content":{"title":"plain"},"tags":["a","b"]}""").asJsonObject
+        val jsonCopy = ConfigResolver.copyContainers(json) as JsonObject
+        jsonCopy.getAsJsonObject("content").addProperty("title", "changed by the plugin")
+        jsonCopy.getAsJsonArray("tags").add("c")
+
+        val inner = Bundle().apply { putString("title", "plain") }
+        val bundle = Bundle().apply { putBundle("content", inner) }
+        val bundleCopy = ConfigResolver.copyContainers(bundle) as Bundle
+        bundleCopy.getBundle("content")!!.putString("title", "changed by the plugin")
+        bundleCopy.putString("extra", "added by the plugin")
+
+        assertEquals("plain", json.getAsJsonObject("content")["title"].asString)
+        assertEquals(2, json.getAsJsonArray("tags").size())
+        assertEquals("plain", inner.getString("title"))
+        assertFalse(bundle.containsKey("extra"))
+    }
+
+    @Test
+    fun stringValuesInJsonAreNotSplicedIntoText() {
+        val quoting = TokenResolver { it?.replace("{{name}}", "say \"hi\"") }
+        val config = JsonObject().apply {
+            addProperty("title", "{{name}}")
+            add("items", JsonArray().apply { add("{{name}}") })
+        }
+
+        val resolved = ConfigResolver.resolve(config, quoting)
+
+        assertEquals("say \"hi\"", resolved["title"].asString)
+        assertEquals("say \"hi\"", resolved.getAsJsonArray("items")[0].asString)
+    }
+}
@@ -0,0 +1,102 @@
+package com.kaltura.tvplayer.utils
+
+import android.os.Bundle
+import com.google.gson.JsonObject
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class ConfigTemplateTest {
+
+    private val resolver = TestResolver(mapOf("entryId" to "1_w9zx2eti", "ks" to "ks-value"))
+
+    @Test
+    fun unchangedConfigAndTokensReturnThePreviousResult() {
+        val template = ConfigTemplate.compile(JsonObject().apply { addProperty("entryId", "{{entryId}}") })
+
+        val first = template.resolve(resolver)
+        assertSame(first, template.resolve(resolver))
+        assertEquals("1_w9zx2eti", (first as JsonObject)["entryId"].asString)
+    }
+
+    @Test
+    fun changedTokenValueIsResolvedAgain() {
+        val template = ConfigTemplate.compile(JsonObject().apply { addProperty("entryId", "{{entryId}}") })
+        val first = template.resolve(resolver)
+
+        resolver.put("entryId", "0_next")
+        val second = template.resolve(resolver) as JsonObject
+
+        assertNotSame(first, second)
+        assertEquals("0_next", second["entryId"].asString)
+    }
+
+    @Test
+    fun configChangedInPlaceIsOnlySeenByANewTemplate() {
+        val config = JsonObject().apply { addProperty("entryId", "{{entryId}}") }
+        val template = ConfigTemplate.compile(config)
+        val first = template.resolve(resolver)
+
+        config.addProperty("user", "{{ks}}")
+        assertSame(first, template.resolve(resolver))
+
+        val recompiled = ConfigTemplate.compile(config)
+        val resolved = recompiled.resolve(resolver) as JsonObject
+        assertEquals("ks-value", resolved["user"].asString)
+        assertEquals(setOf("entryId", "ks"), recompiled.tokens)
+    }
+
+    @Test
+    fun bundleConfigIsResolved() {
+        val config = Bundle().apply { putString("entryId", "fixed-{{ks}}") }
+
+        val resolved = ConfigTemplate.compile(config).resolve(resolver) as Bundle
+
+        assertEquals("fixed-ks-value", resolved.getString("entryId"))
+    }
+
+    @Test
+    fun plainConfigIsResolvedWithoutTouchingTheAppsConfig() {
+        val config = PlainConfig().apply {
+            entryId = "{{entryId}}"
+            tags = mutableListOf("{{ks}}")
+        }
+
+        val resolved = ConfigTemplate.compile(config).resolve(resolver) as PlainConfig
+
+        assertEquals("1_w9zx2eti", resolved.entryId)
+        assertEquals(listOf("ks-value"), resolved.tags)
+        // the app's config keeps its placeholders
+        assertEquals(listOf("{{ks}}"), config.tags)
+    }
+
+    @Test
+    fun plainFieldsWithoutPlaceholdersAreCopiedAsIs() {
+        val config = PlainConfig().apply {
+            entryId = "{{entryId}}"
+            tags = mutableListOf("live")
+        }
+
+        val resolved = ConfigTemplate.compile(config).resolve(resolver) as PlainConfig
+
+        assertNotSame(config, resolved)
+        assertSame(config.tags, resolved.tags)
+    }
+
+    class PlainConfig {
+        var entryId: String? = null
+        var tags: MutableList<String>? = null
+    }
+
+    private class TestResolver(tokens: Map<String, String>) : MapTokenResolver() {
+        init {
+            publish(tokens)
+        }
+
+        fun put(key: String, value: String) = set(key, value)
+    }
+}
@@ -0,0 +1,143 @@
+package com.kaltura.tvplayer.utils
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+private val TOKENS = mapOf(
+        "entryId" to "1_w9zx2eti",
+        "entryName" to "Sintel - Open Movie",
+        "entryType" to "Vod",
+        "ks" to "djJ8MjIxNTg0MXzJ9a1YtB8HmZ1GQmvmA6yZxyUEzy7H3nCZqFZ1G0XM",
+        "uiConfId" to "41188731",
+        "partnerId" to "2215841",
+        "kavaPartnerId" to "2215841",
+        "referrer" to "app://com.kaltura.player.test"
+)
+
+// The String fields ConfigResolver hands to the resolver for an app-supplied KavaAnalyticsConfig.
+private val KAVA_FIELDS = listOf(
+        "https://analytics.kaltura.com/api_v3/index.php",
+        "{{ks}}",
+        "{{referrer}}",
+        "{{entryId}}",
+        "playlist_{{entryId}}",
+        "custom-var-{{entryName}}",
+        "Android",
+        "app-version-4.12.0"
+)
+
+// A Youbora JsonObject config serialized as one string.
+private val YOUBORA_JSON = """{"accountCode":"kalturatest","username":"test-user","haltOnError":true,""" +
+        """"content":{"contentTitle":"{{entryName}}","contentType":"{{entryType}}","contentIsLive":false,""" +
+        """"contentCustomDimensions":{"contentCustomDimension1":"{{entryId}}","contentCustomDimension2":"{{partnerId}}"}},""" +
+        """"properties":{"kalturaInfo":{"entryId":"{{entryId}}","partnerId":"{{kavaPartnerId}}","uiConfId":"{{uiConfId}}"}},""" +
+        """"extraParams":{"param1":"{{ks}}","param2":"mobile","param3":"{{referrer}}"}}"""
+
+@RunWith(RobolectricTestRunner::class)
+class MapTokenResolverTest {
+
+    private val resolver = TestResolver(TOKENS)
+
+    @Test
+    fun resolvesKavaConfigFields() {
+        val expected = listOf(
+                "https://analytics.kaltura.com/api_v3/index.php",
+                TOKENS["ks"],
+                "app://com.kaltura.player.test",
+                "1_w9zx2eti",
+                "playlist_1_w9zx2eti",
+                "custom-var-Sintel - Open Movie",
+                "Android",
+                "app-version-4.12.0"
+        )
+        assertEquals(expected, KAVA_FIELDS.map { resolver.resolve(it) })
+    }
+
+    @Test
+    fun resolvesEveryOccurrenceInAYouboraConfig() {
+        // TextUtils.replace, used before, only replaced the first occurrence of each token.
+        var expected = YOUBORA_JSON
+        for ((key, value) in TOKENS) {
+            expected = expected.replace("{{$key}}", value)
+        }
+        assertEquals(expected, resolver.resolve(YOUBORA_JSON))
+    }
+
+    @Test
+    fun stringWithoutPlaceholdersIsReturnedAsIs() {
+        val input = "https://analytics.kaltura.com/api_v3/index.php"
+        assertSame(input, resolver.resolve(input))
+        assertNull(resolver.resolve(null))
+    }
+
+    @Test
+    fun unknownAndUnterminatedTokensAreLeftAsIs() {
+        assertEquals("{{unknown}}/1_w9zx2eti", resolver.resolve("{{unknown}}/{{entryId}}"))
+        assertEquals("Vod {{entryId", resolver.resolve("{{entryType}} {{entryId"))
+    }
+
+    @Test
+    fun onlyTheInnermostOfNestedOpeningsIsAToken() {
+        assertEquals("{{a 1_w9zx2eti", resolver.resolve("{{a {{entryId}}"))
+    }
+
+    @Test
+    fun substitutedValuesAreNotScannedAgain() {
+        resolver.put("loop", "{{entryId}}")
+        assertEquals("{{entryId}}", resolver.resolve("{{loop}}"))
+    }
+
+    @Test
+    fun changedValuesAreResolvedAndBumpTheVersion() {
+        val input = "playlist_{{entryId}}"
+        assertEquals("playlist_1_w9zx2eti", resolver.resolve(input))
+        val version = resolver.version
+
+        resolver.put("entryId", "0_next")
+
+        assertNotEquals(version, resolver.version)
+        assertEquals("playlist_0_next", resolver.resolve(input))
+    }
+
+    @Test
+    fun snapshotKeepsItsValuesAfterAChange() {
+        val snapshot = resolver.snapshot()
+
+        resolver.put("entryId", "0_next")
+        resolver.remove("ks")
+
+        assertEquals("1_w9zx2eti", snapshot.resolve("{{entryId}}"))
+        assertEquals(TOKENS["ks"], snapshot.resolve("{{ks}}"))
+        assertEquals("{{ks}}", resolver.resolve("{{ks}}"))
+    }
+
+    @Test
+    fun emptyKeysAreIgnored() {
+        resolver.put("", "value")
+        assertEquals("{{}}", resolver.resolve("{{}}"))
+    }
+
+    @Test
+    fun stringsPastTheCacheLimitAreStillResolved() {
+        val inputs = (0 until 1000).map { "item-$it-{{entryId}}" }
+
+        repeat(2) {
+            inputs.forEachIndexed { i, input -> assertEquals("item-$i-1_w9zx2eti", resolver.resolve(input)) }
+        }
+    }
+
+    private class TestResolver(tokens: Map<String, String>) : MapTokenResolver() {
+        init {
+            publish(tokens)
+        }
+
+        fun put(key: String, value: String) = set(key, value)
+
+        fun remove(key: String) = removeAll(listOf(key))
+    }
+}